@@ -0,0 +1,118 @@
+package org.eclipse.ditto.wodt.DTDManager.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.ditto.wodt.common.ThingModelElement;
+import org.eclipse.ditto.wodt.model.ontology.Node;
+import org.eclipse.ditto.wodt.model.ontology.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-lookup cost of the ontology mapping.
+ * {@code rebuildPerLookup} reproduces the previous behaviour, where every lookup merged again the Thing Model
+ * elements with the YAML mapping, while the other benchmarks use the precompiled {@link OntologyIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OntologyIndexBenchmark {
+
+    private static final String YAML_ONTOLOGY = "BulbHolderDTOntology.yaml";
+
+    @Param({"10", "50"})
+    private int features;
+
+    @Param({"10"})
+    private int propertiesPerFeature;
+
+    private List<ThingModelElement> tmProperties;
+    private List<ThingModelElement> tmActions;
+    private List<ThingModelElement> tmEvents;
+    private Optional<YamlOntologyProvider> yamlOntologyProvider;
+    private OntologyIndex index;
+    private OntologyManagerImpl ontologyManager;
+    private String[] rawNames;
+    private String[] featureIds;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.tmProperties = new ArrayList<>();
+        this.tmActions = new ArrayList<>();
+        this.tmEvents = new ArrayList<>();
+        this.rawNames = new String[this.features * this.propertiesPerFeature];
+        this.featureIds = new String[this.rawNames.length];
+        for (int f = 0; f < this.features; f++) {
+            final String featureId = "feature" + f;
+            for (int p = 0; p < this.propertiesPerFeature; p++) {
+                final String field = "property" + f + "-" + p;
+                this.tmProperties.add(new ThingModelElement(field, Optional.of(featureId),
+                    Optional.of("https://www.w3.org/2001/XMLSchema#double"),
+                    Optional.of("https://example.org/ontology#" + field)));
+                this.rawNames[f * this.propertiesPerFeature + p] = field;
+                this.featureIds[f * this.propertiesPerFeature + p] = featureId;
+            }
+            this.tmActions.add(new ThingModelElement("toggle", Optional.of(featureId),
+                Optional.of("https://example.org/ontology#Toggle"), Optional.empty()));
+            this.tmEvents.add(new ThingModelElement("overheating", Optional.of(featureId),
+                Optional.of("boolean"), Optional.empty()));
+        }
+        this.yamlOntologyProvider = Optional.of(new YamlOntologyProvider(YAML_ONTOLOGY));
+        this.index = this.compile();
+        this.ontologyManager = new OntologyManagerImpl(this.index);
+    }
+
+    private OntologyIndex compile() {
+        return OntologyIndex.compile(Optional.empty(), List.of(), this.tmProperties, this.tmActions,
+            this.tmEvents, this.yamlOntologyProvider);
+    }
+
+    private int nextPosition() {
+        this.next = (this.next + 1) % this.rawNames.length;
+        return this.next;
+    }
+
+    @Benchmark
+    public Optional<Pair<String, String>> rebuildPerLookup() {
+        return this.compile().obtainPredicate(this.rawNames[this.nextPosition()]);
+    }
+
+    @Benchmark
+    public Optional<Pair<String, String>> indexedLookup() {
+        return this.index.obtainPredicate(this.rawNames[this.nextPosition()]);
+    }
+
+    @Benchmark
+    public Optional<ThingModelElement> indexedFeatureFieldLookup() {
+        final int position = this.nextPosition();
+        return this.index.findProperty(Optional.of(this.featureIds[position]), this.rawNames[position]);
+    }
+
+    @Benchmark
+    public Optional<String> indexedActionLookup() {
+        return this.index.obtainActionType("toggle");
+    }
+
+    @Benchmark
+    public Optional<Pair<Property, Node>> managerConvertPropertyValue() {
+        final int position = this.nextPosition();
+        return this.ontologyManager.convertPropertyValue(this.rawNames[position], (double) position);
+    }
+}
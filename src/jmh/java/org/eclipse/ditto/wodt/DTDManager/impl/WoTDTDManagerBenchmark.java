@@ -0,0 +1,71 @@
+package org.eclipse.ditto.wodt.DTDManager.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ditto.wodt.PlatformManagementInterface.impl.BasePlatformManagementInterface;
+import org.eclipse.ditto.wodt.SyntheticTwin;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of obtaining the DTD.
+ * {@code cachedDTDJson} is the cost of a request when the DTD did not change,
+ * while {@code rebuildDTDJson} changes the affordances before each request so that the DTD is rebuilt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WoTDTDManagerBenchmark {
+
+    @Param({"10", "50"})
+    private int features;
+
+    @Param({"10"})
+    private int propertiesPerFeature;
+
+    private WoTDTDManager dtdManager;
+    private String rebuiltProperty;
+
+    @Setup
+    public void setup() {
+        final SyntheticTwin twin = new SyntheticTwin(this.features, this.propertiesPerFeature);
+        final WoDTDigitalAdapterConfiguration configuration = twin.createConfiguration();
+        this.dtdManager = new WoTDTDManager(configuration,
+            new BasePlatformManagementInterface(configuration.getDigitalTwinUri()), new AdapterMetrics());
+        for (int f = 0; f < this.features; f++) {
+            for (int p = 0; p < this.propertiesPerFeature; p++) {
+                this.dtdManager.addProperty(SyntheticTwin.rawPropertyName(f, p));
+            }
+            this.dtdManager.addAction(SyntheticTwin.featureId(f) + "_toggle");
+            this.dtdManager.addEvent(SyntheticTwin.featureId(f) + "_overheating");
+        }
+        this.rebuiltProperty = SyntheticTwin.rawPropertyName(0, 0);
+        this.dtdManager.getDTDJson();
+    }
+
+    @Benchmark
+    public String cachedDTDJson() {
+        return this.dtdManager.getDTDJson();
+    }
+
+    @Benchmark
+    public String rebuildDTDJson() {
+        this.dtdManager.removeProperty(this.rebuiltProperty);
+        this.dtdManager.addProperty(this.rebuiltProperty);
+        return this.dtdManager.getDTDJson();
+    }
+}
@@ -0,0 +1,89 @@
+package org.eclipse.ditto.wodt.DTKGEngine.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGFormat;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGTransaction;
+import org.eclipse.ditto.wodt.model.ontology.Individual;
+import org.eclipse.ditto.wodt.model.ontology.Literal;
+import org.eclipse.ditto.wodt.model.ontology.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of encoding the DTKG in each format after a change, and of parsing it on the client side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DTKGFormatBenchmark {
+
+    private static final String ONTOLOGY = "https://example.org/ontology#";
+
+    @Param({"10", "100"})
+    private int properties;
+
+    @Param({"TURTLE", "N_TRIPLES", "RDF_THRIFT", "RDF_PROTOBUF"})
+    private DTKGFormat format;
+
+    private JenaDTKGEngine engine;
+    private Property[] predicates;
+    private ByteArrayOutputStream output;
+    private byte[] payload;
+    private long value;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        this.engine = new JenaDTKGEngine("http://localhost:3000/");
+        this.predicates = new Property[this.properties];
+        final DTKGTransaction transaction = this.engine.beginTransaction();
+        for (int i = 0; i < this.properties; i++) {
+            this.predicates[i] = new Property(ONTOLOGY + "property" + i);
+            transaction.addDigitalTwinPropertyUpdate(this.predicates[i], new Literal<>((double) i));
+            transaction.addRelationship(new Property(ONTOLOGY + "relationship" + i),
+                    new Individual("http://localhost:300" + (i % 10) + "/"));
+        }
+        transaction.commit();
+        this.output = new ByteArrayOutputStream();
+        this.engine.writeCurrentDigitalTwinKnowledgeGraph(() -> this.output, this.format);
+        this.payload = this.output.toByteArray();
+    }
+
+    @Benchmark
+    public int updateAndEncode() throws IOException {
+        this.next = (this.next + 1) % this.predicates.length;
+        this.engine.addDigitalTwinPropertyUpdate(this.predicates[this.next], new Literal<>((double) ++this.value));
+        this.output.reset();
+        this.engine.writeCurrentDigitalTwinKnowledgeGraph(() -> this.output, this.format);
+        return this.output.size();
+    }
+
+    @Benchmark
+    public Graph decode() {
+        final Graph graph = GraphFactory.createDefaultGraph();
+        RDFParser.source(new ByteArrayInputStream(this.payload))
+                .lang(RDFLanguages.contentTypeToLang(this.format.getMediaType()))
+                .parse(graph);
+        return graph;
+    }
+}
@@ -0,0 +1,93 @@
+package org.eclipse.ditto.wodt.DTKGEngine.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGTransaction;
+import org.eclipse.ditto.wodt.model.ontology.Literal;
+import org.eclipse.ditto.wodt.model.ontology.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the DTKG mutations and of its serialization.
+ * {@code updateAndSerialize} is the cost paid by a reader after every change,
+ * while {@code cachedSerialization} is the cost paid when the DTKG did not change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JenaDTKGEngineBenchmark {
+
+    private static final String ONTOLOGY = "https://example.org/ontology#";
+
+    @Param({"10", "100"})
+    private int properties;
+
+    @Param({"true", "false"})
+    private boolean slotStorage;
+
+    @Param({"false", "true"})
+    private boolean snapshotReads;
+
+    private JenaDTKGEngine engine;
+    private Property[] predicates;
+    private long value;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.engine = new JenaDTKGEngine("http://localhost:3000/", this.slotStorage, this.snapshotReads);
+        this.predicates = new Property[this.properties];
+        final DTKGTransaction transaction = this.engine.beginTransaction();
+        for (int i = 0; i < this.properties; i++) {
+            this.predicates[i] = new Property(ONTOLOGY + "property" + i);
+            transaction.addDigitalTwinPropertyUpdate(this.predicates[i], new Literal<>((double) i));
+        }
+        transaction.commit();
+    }
+
+    private Property nextPredicate() {
+        this.next = (this.next + 1) % this.predicates.length;
+        return this.predicates[this.next];
+    }
+
+    @Benchmark
+    public long propertyUpdate() {
+        this.engine.addDigitalTwinPropertyUpdate(this.nextPredicate(), new Literal<>((double) ++this.value));
+        return this.engine.getCurrentSequenceNumber();
+    }
+
+    @Benchmark
+    public long transactionalUpdate() {
+        final DTKGTransaction transaction = this.engine.beginTransaction();
+        this.value++;
+        for (final Property predicate : this.predicates) {
+            transaction.addDigitalTwinPropertyUpdate(predicate, new Literal<>((double) this.value));
+        }
+        transaction.commit();
+        return this.engine.getCurrentSequenceNumber();
+    }
+
+    @Benchmark
+    public String updateAndSerialize() {
+        this.engine.addDigitalTwinPropertyUpdate(this.nextPredicate(), new Literal<>((double) ++this.value));
+        return this.engine.getCurrentDigitalTwinKnowledgeGraph();
+    }
+
+    @Benchmark
+    public String cachedSerialization() {
+        return this.engine.getCurrentDigitalTwinKnowledgeGraph();
+    }
+}
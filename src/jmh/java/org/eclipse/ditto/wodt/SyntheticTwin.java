@@ -0,0 +1,152 @@
+package org.eclipse.ditto.wodt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.ditto.base.model.headers.DittoHeaders;
+import org.eclipse.ditto.client.changes.ChangeAction;
+import org.eclipse.ditto.client.changes.ThingChange;
+import org.eclipse.ditto.client.changes.internal.ImmutableThingChange;
+import org.eclipse.ditto.json.JsonPointer;
+import org.eclipse.ditto.things.model.Thing;
+import org.eclipse.ditto.things.model.ThingId;
+import org.eclipse.ditto.things.model.ThingsModelFactory;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyIndex;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyManagerImpl;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.eclipse.ditto.wodt.common.ThingModelElement;
+
+/**
+ * Synthetic Ditto Thing, with its ontology and its changes, used by the benchmarks to exercise
+ * the adapter without a Ditto instance and without resolving Thing Models over HTTP.
+ * Each feature has numeric properties mapped to the ontology, an action and an event.
+ */
+public final class SyntheticTwin {
+
+    private static final String THING_ID = "org.eclipse.ditto.wodt:synthetic-twin";
+    private static final String DIGITAL_TWIN_URI = "http://localhost:3000/";
+    private static final String ONTOLOGY = "https://example.org/ontology#";
+    private static final String XSD_DOUBLE = "https://www.w3.org/2001/XMLSchema#double";
+
+    private final int features;
+    private final int propertiesPerFeature;
+    private final OntologyIndex ontologyIndex;
+
+    /**
+     * Default constructor.
+     * @param features the number of features of the Thing
+     * @param propertiesPerFeature the number of properties of each feature
+     */
+    public SyntheticTwin(final int features, final int propertiesPerFeature) {
+        this.features = features;
+        this.propertiesPerFeature = propertiesPerFeature;
+        final List<ThingModelElement> properties = new ArrayList<>();
+        final List<ThingModelElement> actions = new ArrayList<>();
+        final List<ThingModelElement> events = new ArrayList<>();
+        for (int f = 0; f < features; f++) {
+            final Optional<String> featureId = Optional.of(featureId(f));
+            for (int p = 0; p < propertiesPerFeature; p++) {
+                final String rawName = rawPropertyName(f, p);
+                properties.add(new ThingModelElement(rawName, featureId,
+                    Optional.of(XSD_DOUBLE), Optional.of(ONTOLOGY + rawName)));
+            }
+            actions.add(new ThingModelElement("toggle", featureId, Optional.of(ONTOLOGY + "Toggle"), Optional.empty()));
+            events.add(new ThingModelElement("overheating", featureId, Optional.of("boolean"), Optional.empty()));
+        }
+        this.ontologyIndex = OntologyIndex.compile(Optional.of(ONTOLOGY + "SyntheticTwin"), List.of(),
+            properties, actions, events, Optional.empty());
+    }
+
+    public static String featureId(final int feature) {
+        return "feature" + feature;
+    }
+
+    public static String propertyName(final int property) {
+        return "property" + property;
+    }
+
+    /**
+     * Obtain the raw name of a feature property, as used by the ontology.
+     * @param feature the feature index
+     * @param property the property index
+     * @return the raw property name
+     */
+    public static String rawPropertyName(final int feature, final int property) {
+        return featureId(feature) + "_" + propertyName(property);
+    }
+
+    public int getFeatures() {
+        return this.features;
+    }
+
+    public int getPropertiesPerFeature() {
+        return this.propertiesPerFeature;
+    }
+
+    public OntologyIndex getOntologyIndex() {
+        return this.ontologyIndex;
+    }
+
+    /**
+     * Create the configuration of an adapter shadowing the synthetic Thing.
+     * @return the configuration
+     */
+    public WoDTDigitalAdapterConfiguration createConfiguration() {
+        return new WoDTDigitalAdapterConfiguration(
+            this.createThing(0),
+            new OntologyManagerImpl(this.ontologyIndex),
+            DIGITAL_TWIN_URI,
+            3000,
+            "synthetic-asset",
+            Set.of()
+        );
+    }
+
+    /**
+     * Create the Thing with all the properties set.
+     * @param seed the base of the property values
+     * @return the Thing
+     */
+    public Thing createThing(final double seed) {
+        final StringBuilder json = new StringBuilder("{\"thingId\":\"").append(THING_ID).append("\",\"features\":{");
+        for (int f = 0; f < this.features; f++) {
+            json.append(f > 0 ? "," : "").append('"').append(featureId(f)).append("\":{\"properties\":{");
+            for (int p = 0; p < this.propertiesPerFeature; p++) {
+                json.append(p > 0 ? "," : "").append('"').append(propertyName(p)).append("\":").append(seed + p);
+            }
+            json.append("}}");
+        }
+        return ThingsModelFactory.newThing(json.append("}}").toString());
+    }
+
+    /**
+     * Create the change of the whole Thing.
+     * @param seed the base of the property values
+     * @return the change
+     */
+    public ThingChange createThingChange(final double seed) {
+        return createChange(JsonPointer.empty(), this.createThing(seed));
+    }
+
+    /**
+     * Create the change of a single feature property, carrying the partial Thing with only that property
+     * as the Ditto client does.
+     * @param feature the feature index
+     * @param property the property index
+     * @param value the new value
+     * @return the change
+     */
+    public ThingChange createPropertyChange(final int feature, final int property, final double value) {
+        final String path = "/features/" + featureId(feature) + "/properties/" + propertyName(property);
+        final Thing thing = ThingsModelFactory.newThing("{\"thingId\":\"" + THING_ID + "\",\"features\":{\""
+            + featureId(feature) + "\":{\"properties\":{\"" + propertyName(property) + "\":" + value + "}}}}");
+        return createChange(JsonPointer.of(path), thing);
+    }
+
+    private static ThingChange createChange(final JsonPointer path, final Thing thing) {
+        return new ImmutableThingChange(ThingId.of(THING_ID), ChangeAction.UPDATED, thing, path, 0L,
+            null, null, DittoHeaders.empty());
+    }
+}
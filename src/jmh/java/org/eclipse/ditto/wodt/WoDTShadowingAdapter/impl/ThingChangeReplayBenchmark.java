@@ -0,0 +1,85 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ditto.client.changes.ThingChange;
+import org.eclipse.ditto.wodt.DTDManager.impl.WoTDTDManager;
+import org.eclipse.ditto.wodt.DTKGEngine.impl.JenaDTKGEngine;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.impl.BasePlatformManagementInterface;
+import org.eclipse.ditto.wodt.SyntheticTwin;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end cost of applying a Ditto Thing change to the DTKG and to the DTD, without a Ditto connection.
+ * The changes are synthetic and precomputed, so only the work of the adapter is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThingChangeReplayBenchmark {
+
+    private static final int PRECOMPUTED_CHANGES = 64;
+
+    @Param({"10", "50"})
+    private int features;
+
+    @Param({"10"})
+    private int propertiesPerFeature;
+
+    private ThingChangeApplier applier;
+    private JenaDTKGEngine dtkgEngine;
+    private ThingChange[] thingChanges;
+    private ThingChange[] propertyChanges;
+    private int next;
+
+    @Setup
+    public void setup() {
+        final SyntheticTwin twin = new SyntheticTwin(this.features, this.propertiesPerFeature);
+        final WoDTDigitalAdapterConfiguration configuration = twin.createConfiguration();
+        this.dtkgEngine = new JenaDTKGEngine(configuration.getDigitalTwinUri());
+        final WoTDTDManager dtdManager = new WoTDTDManager(configuration,
+            new BasePlatformManagementInterface(configuration.getDigitalTwinUri()), new AdapterMetrics());
+        this.applier = new ThingChangeApplier(configuration, this.dtkgEngine, dtdManager);
+        this.applier.syncWithDittoThing(configuration.getDittoThing());
+
+        this.thingChanges = new ThingChange[PRECOMPUTED_CHANGES];
+        this.propertyChanges = new ThingChange[PRECOMPUTED_CHANGES];
+        for (int i = 0; i < PRECOMPUTED_CHANGES; i++) {
+            this.thingChanges[i] = twin.createThingChange(i + 1);
+            this.propertyChanges[i] = twin.createPropertyChange(i % this.features,
+                i % this.propertiesPerFeature, i + 1);
+        }
+    }
+
+    private int nextPosition() {
+        this.next = (this.next + 1) % PRECOMPUTED_CHANGES;
+        return this.next;
+    }
+
+    @Benchmark
+    public long fullThingReplay() {
+        this.applier.onThingChange(this.thingChanges[this.nextPosition()]);
+        return this.dtkgEngine.getCurrentSequenceNumber();
+    }
+
+    @Benchmark
+    public long singlePropertyUpdate() {
+        this.applier.onThingChange(this.propertyChanges[this.nextPosition()]);
+        return this.dtkgEngine.getCurrentSequenceNumber();
+    }
+}
@@ -0,0 +1,91 @@
+package org.eclipse.ditto.wodt.common;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ditto.json.JsonFactory;
+import org.eclipse.ditto.json.JsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of the typed conversion of a feature property value.
+ * {@code stringRoundTrip} reproduces the previous behaviour, where the value was serialized and parsed again
+ * once per sub-property, while {@code singlePass} converts all the sub-properties walking the Ditto JSON tree once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonConversionBenchmark {
+
+    @Param({"4", "16"})
+    private int subProperties;
+
+    private JsonValue complexProperty;
+    private JsonValue scalarProperty;
+
+    @Setup
+    public void setup() {
+        final StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < this.subProperties; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"sub").append(i).append("\":");
+            switch (i % 4) {
+                case 0:
+                    json.append(20 + i);
+                    break;
+                case 1:
+                    json.append(21.5 + i);
+                    break;
+                case 2:
+                    json.append(i % 3 == 0);
+                    break;
+                default:
+                    json.append("\"state-").append(i).append('"');
+                    break;
+            }
+        }
+        this.complexProperty = JsonFactory.readFrom(json.append('}').toString());
+        this.scalarProperty = JsonFactory.readFrom("23.75");
+    }
+
+    @Benchmark
+    public void stringRoundTrip(final Blackhole blackhole) {
+        final List<String> names = ThingModelUtils.extractSubPropertiesNames(this.complexProperty.toString());
+        for (final String name : names) {
+            blackhole.consume(ThingModelUtils.convertStringToType(
+                ThingModelUtils.extractSubPropertyValue(this.complexProperty.toString(), name)));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> singlePass() {
+        return ThingModelUtils.convertSubProperties(this.complexProperty);
+    }
+
+    @Benchmark
+    public Object scalarStringConversion() {
+        return ThingModelUtils.convertStringToType(this.scalarProperty.toString());
+    }
+
+    @Benchmark
+    public Object scalarJsonValueConversion() {
+        return ThingModelUtils.convertJsonValueToType(this.scalarProperty);
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.eclipse.ditto.wodt.DTDManager.api;
 
+import java.time.Instant;
+
 import io.github.sanecity.wot.thing.Thing;
 
 /**
@@ -28,4 +30,37 @@ public interface DTDManagerReader {
     * @return Digital Twin Descriptor implemented with a Thing Description
     */
     Thing<?, ?, ?> getDTD();
+
+    /**
+     * Obtain the JSON serialization of the Digital Twin Descriptor.
+    * The serialization is cached and computed again only after the DTD changes.
+    * @return the serialized Digital Twin Descriptor
+    */
+    String getDTDJson();
+
+    /**
+     * Obtain the version of the Digital Twin Descriptor, incremented each time it changes.
+    * @return the current version of the DTD
+    */
+    long getDTDVersion();
+
+    /**
+     * Obtain the instant of the last change of the Digital Twin Descriptor.
+    * @return the last modification instant
+    */
+    Instant getDTDLastModified();
+
+    /**
+     * Add a listener notified each time the Digital Twin Descriptor changes, i.e. its properties, relationships,
+    * actions or events, the ontology that describes them or the Platforms to which the DT is registered.
+    * The listener is called synchronously and must not block.
+    * @param listener the listener to notify
+    */
+    void addDTDChangeListener(Runnable listener);
+
+    /**
+     * Remove a listener of the changes of the Digital Twin Descriptor, that will no more be notified.
+    * @param listener the listener to remove
+    */
+    void removeDTDChangeListener(Runnable listener);
 }
\ No newline at end of file
@@ -0,0 +1,350 @@
+package org.eclipse.ditto.wodt.DTDManager.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.ditto.wodt.common.ThingModelElement;
+
+/**
+ * Immutable snapshot of the ontology obtained merging the Thing Model elements with the YAML ontology mapping,
+ * prioritizing the YAML mapping.
+ * The snapshot is compiled once and offers hash based lookups both by raw name and by feature and field,
+ * so that it can be safely shared between threads and swapped atomically when the sources change.
+ */
+public final class OntologyIndex {
+
+    private final String digitalTwinType;
+    private final Map<String, Pair<String, String>> predicates;
+    private final Map<String, String> actionTypes;
+    private final Map<String, String> eventTypes;
+    private final List<ThingModelElement> contextExtensions;
+    private final List<ThingModelElement> properties;
+    private final List<ThingModelElement> relationships;
+    private final List<ThingModelElement> actions;
+    private final List<ThingModelElement> events;
+    private final Map<String, ThingModelElement> propertiesByFeatureField;
+    private final Map<String, ThingModelElement> actionsByFeatureField;
+    private final Map<String, ThingModelElement> eventsByFeatureField;
+    private final Map<Optional<String>, List<ThingModelElement>> propertiesByFeature;
+    private final Map<Optional<String>, List<ThingModelElement>> actionsByFeature;
+    private final Map<Optional<String>, List<ThingModelElement>> eventsByFeature;
+
+    private OntologyIndex(
+        final String digitalTwinType,
+        final Map<String, Pair<String, String>> predicates,
+        final Map<String, String> actionTypes,
+        final Map<String, String> eventTypes,
+        final List<ThingModelElement> contextExtensions,
+        final List<ThingModelElement> properties,
+        final List<ThingModelElement> relationships,
+        final List<ThingModelElement> actions,
+        final List<ThingModelElement> events
+    ) {
+        this.digitalTwinType = digitalTwinType;
+        this.predicates = Collections.unmodifiableMap(predicates);
+        this.actionTypes = Collections.unmodifiableMap(actionTypes);
+        this.eventTypes = Collections.unmodifiableMap(eventTypes);
+        this.contextExtensions = List.copyOf(contextExtensions);
+        this.properties = List.copyOf(properties);
+        this.relationships = List.copyOf(relationships);
+        this.actions = List.copyOf(actions);
+        this.events = List.copyOf(events);
+        this.propertiesByFeatureField = indexByFeatureField(this.properties);
+        this.actionsByFeatureField = indexByFeatureField(this.actions);
+        this.eventsByFeatureField = indexByFeatureField(this.events);
+        this.propertiesByFeature = groupByFeature(this.properties);
+        this.actionsByFeature = groupByFeature(this.actions);
+        this.eventsByFeature = groupByFeature(this.events);
+    }
+
+    /**
+     * Compile a new snapshot merging the Thing Model elements with the YAML ontology mapping.
+     * @param tmDigitalTwinType the digital twin type obtained from the Thing Model
+     * @param tmContextExtensions the context extensions obtained from the Thing Model
+     * @param tmProperties the properties and relationships obtained from the Thing Model
+     * @param tmActions the actions obtained from the Thing Model
+     * @param tmEvents the events obtained from the Thing Model
+     * @param yamlOntologyProvider the optional YAML ontology mapping
+     * @return the compiled snapshot
+     */
+    public static OntologyIndex compile(
+        final Optional<String> tmDigitalTwinType,
+        final List<ThingModelElement> tmContextExtensions,
+        final List<ThingModelElement> tmProperties,
+        final List<ThingModelElement> tmActions,
+        final List<ThingModelElement> tmEvents,
+        final Optional<YamlOntologyProvider> yamlOntologyProvider
+    ) {
+        final String digitalTwinType = yamlOntologyProvider
+            .flatMap(YamlOntologyProvider::getDigitalTwinType)
+            .orElse(tmDigitalTwinType.orElse("UnknownDigitalTwinType"));
+        final Map<String, Pair<String, String>> predicates = mergePropertiesAndRelationships(
+            tmProperties, yamlOntologyProvider);
+        final Map<String, String> actionTypes = mergeTypes(
+            tmActions, yamlOntologyProvider.map(YamlOntologyProvider::getActions));
+        final Map<String, String> eventTypes = mergeTypes(
+            tmEvents, yamlOntologyProvider.map(YamlOntologyProvider::getEvents));
+
+        final List<ThingModelElement> properties = new ArrayList<>();
+        tmProperties.forEach(element -> {
+            final Pair<String, String> predicate = predicates.get(element.getField());
+            if (predicate != null) {
+                properties.add(new ThingModelElement(element.getField(), Optional.of(element.getFeature().orElse("")),
+                    Optional.ofNullable(predicate.getRight()), Optional.ofNullable(predicate.getLeft())));
+            } else {
+                properties.add(element);
+            }
+        });
+
+        final List<ThingModelElement> relationships = new ArrayList<>();
+        tmProperties.stream()
+            .filter(element -> element.getField().startsWith("rel-"))
+            .forEach(relationships::add);
+        yamlOntologyProvider.ifPresent(provider ->
+            provider.getProperties().forEach(optionalMap ->
+                optionalMap.ifPresent(property -> {
+                    final String name = property.get("name");
+                    if (name.startsWith("rel-")) {
+                        relationships.add(new ThingModelElement(name, Optional.empty(),
+                            Optional.ofNullable(property.get("type")),
+                            Optional.ofNullable(property.get("domainPredicate"))));
+                    }
+                })
+            )
+        );
+
+        return new OntologyIndex(
+            digitalTwinType,
+            predicates,
+            actionTypes,
+            eventTypes,
+            tmContextExtensions,
+            properties,
+            relationships,
+            withMergedTypes(tmActions, actionTypes),
+            withMergedTypes(tmEvents, eventTypes)
+        );
+    }
+
+    private static Map<String, Pair<String, String>> mergePropertiesAndRelationships(
+        final List<ThingModelElement> tmProperties,
+        final Optional<YamlOntologyProvider> yamlOntologyProvider
+    ) {
+        final Map<String, Pair<String, String>> mergedMap = new HashMap<>();
+        tmProperties.forEach(element ->
+            mergedMap.put(
+                element.getField(),
+                Pair.of(element.getDomainPredicate().orElse(""), element.getType().orElse(""))
+            )
+        );
+        yamlOntologyProvider.ifPresent(provider ->
+            provider.getProperties().forEach(properties ->
+                properties.ifPresent(prop ->
+                    mergedMap.merge(
+                        prop.get("name"),
+                        Pair.of(prop.get("domainPredicate"), prop.get("type")),
+                        (existing, newValue) -> Pair.of(
+                            newValue.getLeft() != null ? newValue.getLeft() : existing.getLeft(),
+                            newValue.getRight() != null ? newValue.getRight() : existing.getRight()
+                        )
+                    )
+                )
+            )
+        );
+        return mergedMap;
+    }
+
+    private static Map<String, String> mergeTypes(
+        final List<ThingModelElement> tmElements,
+        final Optional<List<Optional<Map<String, String>>>> yamlElements
+    ) {
+        final Map<String, String> mergedTypes = new HashMap<>();
+        tmElements.forEach(element -> mergedTypes.put(element.getField(), element.getType().orElse("")));
+        yamlElements.ifPresent(elements ->
+            elements.forEach(optionalMap ->
+                optionalMap.ifPresent(element ->
+                    mergedTypes.merge(element.get("name"), element.get("type"),
+                        (existing, newValue) -> newValue != null ? newValue : existing)
+                )
+            )
+        );
+        return mergedTypes;
+    }
+
+    private static List<ThingModelElement> withMergedTypes(
+        final List<ThingModelElement> tmElements,
+        final Map<String, String> mergedTypes
+    ) {
+        final List<ThingModelElement> elements = new ArrayList<>();
+        tmElements.forEach(element -> {
+            final String type = mergedTypes.get(element.getField());
+            if (type != null) {
+                elements.add(new ThingModelElement(element.getField(), Optional.of(element.getFeature().orElse("")),
+                    Optional.of(type), Optional.empty()));
+            } else {
+                elements.add(element);
+            }
+        });
+        return elements;
+    }
+
+    private static Map<String, ThingModelElement> indexByFeatureField(final List<ThingModelElement> elements) {
+        final Map<String, ThingModelElement> index = new HashMap<>();
+        elements.forEach(element ->
+            index.putIfAbsent(featureFieldKey(element.getFeature(), element.getField()), element));
+        return Collections.unmodifiableMap(index);
+    }
+
+    private static Map<Optional<String>, List<ThingModelElement>> groupByFeature(
+        final List<ThingModelElement> elements
+    ) {
+        return elements.stream().collect(Collectors.collectingAndThen(
+            Collectors.groupingBy(ThingModelElement::getFeature, Collectors.toUnmodifiableList()),
+            Collections::unmodifiableMap));
+    }
+
+    // Merged Thing-level elements have an empty feature id, and are found as the ones without a feature.
+    private static String featureFieldKey(final Optional<String> feature, final String field) {
+        return feature.filter(featureId -> !featureId.isEmpty())
+            .map(featureId -> featureId + "/" + field)
+            .orElse(field);
+    }
+
+    /**
+     * Obtain the type of the digital twin.
+     * @return the digital twin type
+     */
+    public String getDigitalTwinType() {
+        return this.digitalTwinType;
+    }
+
+    /**
+     * Obtain the merged domain predicate and value type of a raw property or relationship.
+     * @param rawProperty the raw property name
+     * @return the pair (domain predicate, value type) if mapped
+     */
+    public Optional<Pair<String, String>> obtainPredicate(final String rawProperty) {
+        return Optional.ofNullable(this.predicates.get(rawProperty));
+    }
+
+    /**
+     * Obtain the merged type of a raw action.
+     * @param rawAction the raw action name
+     * @return the action type if mapped
+     */
+    public Optional<String> obtainActionType(final String rawAction) {
+        return Optional.ofNullable(this.actionTypes.get(rawAction));
+    }
+
+    /**
+     * Obtain the merged type of a raw event.
+     * @param rawEvent the raw event name
+     * @return the event type if mapped
+     */
+    public Optional<String> obtainEventType(final String rawEvent) {
+        return Optional.ofNullable(this.eventTypes.get(rawEvent));
+    }
+
+    /**
+     * Find a property by the feature it belongs to and its field.
+     * @param feature the feature id, empty for Thing attributes
+     * @param field the property field
+     * @return the property if present
+     */
+    public Optional<ThingModelElement> findProperty(final Optional<String> feature, final String field) {
+        return Optional.ofNullable(this.propertiesByFeatureField.get(featureFieldKey(feature, field)));
+    }
+
+    /**
+     * Find an action by the feature it belongs to and its field.
+     * @param feature the feature id, empty for Thing actions
+     * @param field the action field
+     * @return the action if present
+     */
+    public Optional<ThingModelElement> findAction(final Optional<String> feature, final String field) {
+        return Optional.ofNullable(this.actionsByFeatureField.get(featureFieldKey(feature, field)));
+    }
+
+    /**
+     * Find an event by the feature it belongs to and its field.
+     * @param feature the feature id, empty for Thing events
+     * @param field the event field
+     * @return the event if present
+     */
+    public Optional<ThingModelElement> findEvent(final Optional<String> feature, final String field) {
+        return Optional.ofNullable(this.eventsByFeatureField.get(featureFieldKey(feature, field)));
+    }
+
+    /**
+     * Find the properties of a feature.
+     * @param feature the feature id, empty for Thing attributes
+     * @return the immutable list of properties of the feature
+     */
+    public List<ThingModelElement> findPropertiesByFeature(final Optional<String> feature) {
+        return this.propertiesByFeature.getOrDefault(feature, List.of());
+    }
+
+    /**
+     * Find the actions of a feature.
+     * @param feature the feature id, empty for Thing actions
+     * @return the immutable list of actions of the feature
+     */
+    public List<ThingModelElement> findActionsByFeature(final Optional<String> feature) {
+        return this.actionsByFeature.getOrDefault(feature, List.of());
+    }
+
+    /**
+     * Find the events of a feature.
+     * @param feature the feature id, empty for Thing events
+     * @return the immutable list of events of the feature
+     */
+    public List<ThingModelElement> findEventsByFeature(final Optional<String> feature) {
+        return this.eventsByFeature.getOrDefault(feature, List.of());
+    }
+
+    /**
+     * Obtain the context extensions.
+     * @return the immutable list of context extensions
+     */
+    public List<ThingModelElement> getContextExtensions() {
+        return this.contextExtensions;
+    }
+
+    /**
+     * Obtain the merged properties.
+     * @return the immutable list of properties
+     */
+    public List<ThingModelElement> getProperties() {
+        return this.properties;
+    }
+
+    /**
+     * Obtain the merged relationships.
+     * @return the immutable list of relationships
+     */
+    public List<ThingModelElement> getRelationships() {
+        return this.relationships;
+    }
+
+    /**
+     * Obtain the merged actions.
+     * @return the immutable list of actions
+     */
+    public List<ThingModelElement> getActions() {
+        return this.actions;
+    }
+
+    /**
+     * Obtain the merged events.
+     * @return the immutable list of events
+     */
+    public List<ThingModelElement> getEvents() {
+        return this.events;
+    }
+}
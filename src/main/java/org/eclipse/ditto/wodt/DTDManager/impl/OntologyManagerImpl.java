@@ -1,10 +1,9 @@
 package org.eclipse.ditto.wodt.DTDManager.impl;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.ditto.things.model.Thing;
@@ -18,222 +17,150 @@ import org.eclipse.ditto.wodt.model.ontology.Node;
 import org.eclipse.ditto.wodt.model.ontology.Property;
 
 public final class OntologyManagerImpl implements DTOntology, OntologyManager {
-    
-    private final ThingModelUtils thingModelUtils;
-    private Optional<YamlOntologyProvider> yamlOntologyHandler = Optional.empty();
+
+    private final String yamlOntologyPath;
+    private final YamlOntologyCache yamlOntologyCache;
+    private final AtomicReference<OntologyIndex> ontologyIndex;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
 
     public OntologyManagerImpl(
         Thing dittoThing,
         String yamlOntologyPath
     ) {
-        this.thingModelUtils = new ThingModelUtils(dittoThing);
-        if(!yamlOntologyPath.isEmpty()) {
-            yamlOntologyHandler = Optional.of(new YamlOntologyProvider(yamlOntologyPath));
-        }
+        this(dittoThing, yamlOntologyPath, new YamlOntologyCache());
+    }
+
+    /*
+     * Create the ontology manager reading the YAML mapping from a cache shared with other Digital Twins.
+     */
+    public OntologyManagerImpl(
+        Thing dittoThing,
+        String yamlOntologyPath,
+        YamlOntologyCache yamlOntologyCache
+    ) {
+        this.yamlOntologyPath = yamlOntologyPath;
+        this.yamlOntologyCache = yamlOntologyCache;
+        this.ontologyIndex = new AtomicReference<>(this.compileIndex(dittoThing));
+    }
+
+    /*
+     * Create the ontology manager from an already compiled ontology snapshot, without resolving
+     * the Thing Model, e.g. to replay Thing changes offline.
+     */
+    public OntologyManagerImpl(OntologyIndex ontologyIndex) {
+        this.yamlOntologyPath = "";
+        this.yamlOntologyCache = new YamlOntologyCache();
+        this.ontologyIndex = new AtomicReference<>(ontologyIndex);
+    }
+
+    /*
+     * Resolve again the Thing Model of the Ditto Thing and the YAML mapping, atomically replacing
+     * the current ontology snapshot. To be called only when the Thing Model or the YAML mapping change.
+     * The change listeners are notified once the new snapshot is in place.
+     */
+    public void refresh(Thing dittoThing) {
+        this.yamlOntologyCache.invalidate(this.yamlOntologyPath);
+        this.ontologyIndex.set(this.compileIndex(dittoThing));
+        this.changeListeners.forEach(Runnable::run);
+    }
+
+    /*
+     * Add a listener notified synchronously each time the ontology snapshot is replaced.
+     */
+    public void addOntologyChangeListener(Runnable listener) {
+        this.changeListeners.add(listener);
+    }
+
+    /*
+     * Remove a listener of the ontology changes, that will no more be notified.
+     */
+    public void removeOntologyChangeListener(Runnable listener) {
+        this.changeListeners.remove(listener);
+    }
+
+    /*
+     * Obtain the current immutable ontology snapshot.
+     */
+    public OntologyIndex getOntologyIndex() {
+        return this.ontologyIndex.get();
+    }
+
+    private OntologyIndex compileIndex(Thing dittoThing) {
+        final ThingModelUtils thingModelUtils = new ThingModelUtils(dittoThing);
+        final Optional<YamlOntologyProvider> yamlOntologyProvider = this.yamlOntologyPath.isEmpty()
+            ? Optional.empty()
+            : Optional.of(this.yamlOntologyCache.obtain(this.yamlOntologyPath));
+        return OntologyIndex.compile(
+            thingModelUtils.getDigitalTwinType(),
+            thingModelUtils.getTMContextExtensions(),
+            thingModelUtils.getTMProperties(),
+            thingModelUtils.getTMActions(),
+            thingModelUtils.getTMEvents(),
+            yamlOntologyProvider
+        );
     }
 
     @Override
     public String getDigitalTwinType() {
-        return yamlOntologyHandler
-            .flatMap(YamlOntologyProvider::getDigitalTwinType)
-            .orElse(thingModelUtils.getDigitalTwinType()
-            .orElse("UnknownDigitalTwinType"));
+        return this.ontologyIndex.get().getDigitalTwinType();
     }
 
     @Override
     public Optional<Property> obtainProperty(String rawProperty) {
-        Map<String, Pair<String, String>> predicates = getMergedPropertiesAndRelationships();
-        return Optional.ofNullable(predicates.get(rawProperty))
+        return this.ontologyIndex.get().obtainPredicate(rawProperty)
             .map(pair -> new Property(pair.getLeft()));
     }
 
     @Override
     public Optional<String> obtainPropertyValueType(String rawProperty) {
-        Map<String, Pair<String, String>> predicates = getMergedPropertiesAndRelationships();
-        return Optional.ofNullable(predicates.get(rawProperty))
+        return this.ontologyIndex.get().obtainPredicate(rawProperty)
             .map(Pair::getRight);
     }
 
     @Override
     public <T> Optional<Pair<Property, Node>> convertPropertyValue(String rawProperty, T value) {
-        Map<String, Pair<String, String>> propertiesMap = getMergedPropertiesAndRelationships();
-        return Optional.ofNullable(propertiesMap.get(rawProperty))
+        return this.ontologyIndex.get().obtainPredicate(rawProperty)
             .map(pair -> Pair.of(new Property(pair.getLeft()), new Literal<>(value)));
     }
 
     @Override
     public Optional<Pair<Property, Individual>> convertRelationship(String rawRelationship, String targetUri) {
-        Map<String, Pair<String, String>> relationshipsMap = getMergedPropertiesAndRelationships();
-        return Optional.ofNullable(relationshipsMap.get(rawRelationship))
+        return this.ontologyIndex.get().obtainPredicate(rawRelationship)
             .map(pair -> Pair.of(new Property(pair.getLeft()), new Individual(targetUri)));
     }
 
     @Override
     public Optional<String> obtainActionType(String rawAction) {
-        Map<String, String> mergedActions = getMergedActions();
-        return Optional.ofNullable(mergedActions.get(rawAction));
+        return this.ontologyIndex.get().obtainActionType(rawAction);
     }
 
     @Override
     public Optional<String> obtainEventType(String rawEvent) {
-        Map<String, String> mergedEvents = getMergedEvents();
-        return Optional.ofNullable(mergedEvents.get(rawEvent));
-    }
-    
-    private Map<String, Pair<String, String>> getMergedPropertiesAndRelationships() {
-        Map<String, Pair<String, String>> mergedMap = new HashMap<>();
-        thingModelUtils.getTMProperties().forEach(element -> {
-            mergedMap.put(
-                element.getField(),
-                Pair.of(element.getDomainPredicate().orElse(""), element.getType().orElse(""))
-            );
-        });
-        
-        yamlOntologyHandler.ifPresent(handler ->
-            handler.getProperties().stream().forEach(properties -> {
-                properties.ifPresent(prop -> {
-                    String name = prop.get("name");
-                    String domainPredicate = prop.get("domainPredicate");
-                    String type = prop.get("type");
-                    mergedMap.merge(name, Pair.of(domainPredicate, type), (existing, newValue) -> {
-                        String mergedDomainPredicate = newValue.getLeft() != null ? newValue.getLeft() : existing.getLeft();
-                        String mergedType = newValue.getRight() != null ? newValue.getRight() : existing.getRight();
-                        return Pair.of(mergedDomainPredicate, mergedType);
-                    });
-                });
-            })
-        );
-        return mergedMap;
-    }
-    
-    private Map<String, String> getMergedActions() {
-        Map<String, String> mergedActions = new HashMap<>();
-        thingModelUtils.getTMActions().forEach(element -> {
-            mergedActions.put(element.getField(), element.getType().orElse(""));
-        });
-        
-        yamlOntologyHandler.ifPresent(handler ->
-            handler.getActions().stream().forEach(actions -> {
-                actions.ifPresent(action -> {
-                    String name = action.get("name");
-                    String type = action.get("type");
-                    mergedActions.merge(name, type, (existing, newValue) -> 
-                        newValue != null ? newValue : existing);
-                });
-            })
-        );
-        return mergedActions;
-    }
-    
-    private Map<String, String> getMergedEvents() {
-        Map<String, String> mergedEvents = new HashMap<>();
-        thingModelUtils.getTMEvents().forEach(element -> {
-            mergedEvents.put(element.getField(), element.getType().orElse(""));
-        });
-        
-        yamlOntologyHandler.ifPresent(handler ->
-            handler.getEvents().stream().forEach(events -> {
-                events.ifPresent(event -> {
-                    String name = event.get("name");
-                    String type = event.get("type");
-                    mergedEvents.merge(name, type, (existing, newValue) -> 
-                        newValue != null ? newValue : existing);
-                });
-            })
-        );
-        return mergedEvents;
+        return this.ontologyIndex.get().obtainEventType(rawEvent);
     }
 
     @Override
     public List<ThingModelElement> getAvailableContextExtensions() {
-        return thingModelUtils.getTMContextExtensions();
+        return this.ontologyIndex.get().getContextExtensions();
     }
 
     @Override
     public List<ThingModelElement> getAvailableProperties() {
-        Map<String, Pair<String, String>> mergedPropertiesAndRelationships = getMergedPropertiesAndRelationships();
-        List<ThingModelElement> propertiesList = new ArrayList<>();
-        thingModelUtils.getTMProperties().forEach(element -> {
-            String field = element.getField();
-            String featureName = element.getFeature().orElse("");
-            
-            if (mergedPropertiesAndRelationships.containsKey(field)) {
-                String domainPredicate = mergedPropertiesAndRelationships.get(field).getLeft();
-                String type = mergedPropertiesAndRelationships.get(field).getRight();
-                propertiesList.add(new ThingModelElement(field, Optional.of(featureName),
-                    Optional.of(type), Optional.of(domainPredicate)));
-            } else {
-                propertiesList.add(element);
-            }
-        });
-
-        return propertiesList;
+        return this.ontologyIndex.get().getProperties();
     }
 
     @Override
     public List<ThingModelElement> getAvailableRelationships() {
-        List<ThingModelElement> relationshipsList = new ArrayList<>();
-        thingModelUtils.getTMProperties().forEach(element -> {
-            String field = element.getField();
-            if (field.startsWith("rel-")) {
-                relationshipsList.add(element);
-            }
-        });
-
-        yamlOntologyHandler.ifPresent(handler -> 
-            handler.getProperties().stream().forEach(optionalMap -> {
-                optionalMap.ifPresent(property -> {
-                    String name = property.get("name");
-                    if (name.startsWith("rel-")) {
-                        String domainPredicate = property.get("domainPredicate");
-                        String type = property.get("type");
-                        relationshipsList.add(new ThingModelElement(name, Optional.empty(),
-                            Optional.ofNullable(type), Optional.ofNullable(domainPredicate)));
-                    }
-                });
-            })
-        );
-        return relationshipsList;
+        return this.ontologyIndex.get().getRelationships();
     }
 
     @Override
     public List<ThingModelElement> getAvailableActions() {
-        Map<String, String> mergedActions = getMergedActions();
-        List<ThingModelElement> actionsList = new ArrayList<>();
-        thingModelUtils.getTMActions().forEach(element -> {
-            String field = element.getField();
-            String featureName = element.getFeature().orElse("");
-            
-            if (mergedActions.containsKey(field)) {
-                String type = mergedActions.get(field);
-                actionsList.add(new ThingModelElement(field, Optional.of(featureName),
-                    Optional.of(type), Optional.empty()));
-            } else {
-                actionsList.add(element);
-            }
-        });
-
-        return actionsList;
+        return this.ontologyIndex.get().getActions();
     }
 
     @Override
     public List<ThingModelElement> getAvailableEvents() {
-        Map<String, String> mergedEvents = getMergedEvents();
-        List<ThingModelElement> eventsList = new ArrayList<>();
-        thingModelUtils.getTMEvents().forEach(element -> {
-            String field = element.getField();
-            String featureName = element.getFeature().orElse("");
-
-            if (mergedEvents.containsKey(field)) {
-                String type = mergedEvents.get(field);
-                eventsList.add(new ThingModelElement(field, Optional.of(featureName),
-                    Optional.of(type), Optional.empty()));
-            } else {
-                eventsList.add(element);
-            }
-        });
-
-        return eventsList;
+        return this.ontologyIndex.get().getEvents();
     }
-
 }
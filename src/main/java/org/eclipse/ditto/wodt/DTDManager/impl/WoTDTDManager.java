@@ -1,14 +1,22 @@
 package org.eclipse.ditto.wodt.DTDManager.impl;
 
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.eclipse.ditto.wodt.DTDManager.api.DTDManager;
 import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterfaceReader;
 import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
 import org.eclipse.ditto.wodt.common.ThingModelElement;
 import org.eclipse.ditto.wodt.model.ontology.DTOntology;
 import org.eclipse.ditto.wodt.model.ontology.Property;
@@ -30,13 +38,20 @@ import io.github.sanecity.wot.thing.property.ExposedThingProperty;
 import io.github.sanecity.wot.thing.property.ThingProperty;
 import io.github.sanecity.wot.thing.schema.VariableDataSchema;
 import io.github.sanecity.wot.thing.security.BasicSecurityScheme;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This class provide an implementation of the {@link io.github.webbasedwodt.application.component.DTDManager} using
 * a WoT Thing Description to implement the Digital Twin Descriptor.
+* The Thing Description and its serialization are cached and rebuilt only when the set of
+* properties, relationships, actions and events, the ontology or the registered platforms change,
+* and the DTD change listeners are notified of each of these changes.
 */
 public class WoTDTDManager implements DTDManager {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(WoTDTDManager.class);
+
     private static final int DITTO_PORT_NUMBER = 8080;    
     private static final String BASE_URL = "http://localhost:" + DITTO_PORT_NUMBER + "/api/2/things/";
     private static final String ATTRIBUTE_URL = "/attributes/{attributePath}";
@@ -48,10 +63,10 @@ public class WoTDTDManager implements DTDManager {
     private static final String THING_DESCRIPTION_CONTEXT = "https://www.w3.org/2019/wot/td/v1";
     private static final String VERSION = "1.0.0";
     private static final String SNAPSHOT_DTD_PROPERTY = "snapshot";
+    private static final String DTKG_PATH = "dtkg";
     private final String digitalTwinUri;
     private final String physicalAssetId;
     private final DTOntology ontology;
-    private final int portNumber;
     private final String dittoThingId;
     private final PlatformManagementInterfaceReader platformManagementInterfaceReader;
     private final WoDTDigitalAdapterConfiguration configuration;
@@ -60,67 +75,169 @@ public class WoTDTDManager implements DTDManager {
     private final Map<String, ThingProperty<Object>> relationships;
     private final Map<String, ThingAction<Object, Object>> actions;
     private final Map<String, ThingEvent<Object>> events;
+    private final AdapterMetrics.Timer rebuildTimer;
+    private final List<Runnable> changeListeners;
+    private long elementsVersion;
+    private long dtdVersion;
+    private CachedDTD cachedDTD;
 
     /**
      * Default constructor.
     * @param digitalTwinUri the uri of the WoDT Digital Twin
     * @param ontology the ontology used to obtain the semantics
     * @param physicalAssetId the id of the associated physical asset
-    * @param portNumber the port number where to offer the affordances
     * @param platformManagementInterfaceReader the platform management interface reader reference
+    * @param metrics the metrics where to record the DTD rebuilds
     */
     public WoTDTDManager(
         final WoDTDigitalAdapterConfiguration configuration,
-        final PlatformManagementInterfaceReader platformManagementInterfaceReader
+        final PlatformManagementInterfaceReader platformManagementInterfaceReader,
+        final AdapterMetrics metrics
     ) {
         this.configuration = configuration;
         this.dittoThingId = configuration.getDittoThing().getEntityId().get().toString();
         this.digitalTwinUri = configuration.getDigitalTwinUri();
         this.ontology = configuration.getOntology();
         this.physicalAssetId = configuration.getPhysicalAssetId();
-        this.portNumber = configuration.getPortNumber();
         this.platformManagementInterfaceReader = platformManagementInterfaceReader;
         this.properties = new HashMap<>();
         this.relationships = new HashMap<>();
         this.actions = new HashMap<>();
         this.events = new HashMap<>();
+        this.rebuildTimer = metrics.timer("dtd.rebuild");
+        this.changeListeners = new CopyOnWriteArrayList<>();
+        this.elementsVersion = 0;
+        this.dtdVersion = 0;
+        configuration.getOntology().addOntologyChangeListener(this::ontologyChanged);
+        platformManagementInterfaceReader.addPlatformsChangeListener(this::notifyChangeListeners);
     }
 
     @Override
-    public void addProperty(final String rawPropertyName) {
-        this.createThingDescriptionProperty(rawPropertyName, true)
-                .ifPresent(property -> this.properties.put(rawPropertyName, property));
+    public synchronized void addProperty(final String rawPropertyName) {
+        if (!this.properties.containsKey(rawPropertyName)) {
+            this.createThingDescriptionProperty(rawPropertyName, true)
+                    .ifPresent(property -> this.putElement(this.properties, rawPropertyName, property));
+        }
     }
 
     @Override
-    public boolean removeProperty(final String rawPropertyName) {
-        return this.properties.remove(rawPropertyName) != null;
+    public synchronized boolean removeProperty(final String rawPropertyName) {
+        return this.removeElement(this.properties, rawPropertyName);
+    }
+
+    @Override
+    public synchronized void addRelationship(final String rawRelationshipName) {
+        if (!this.relationships.containsKey(rawRelationshipName)) {
+            this.createThingDescriptionProperty(rawRelationshipName, false)
+                    .ifPresent(relationship -> this.putElement(this.relationships, rawRelationshipName, relationship));
+        }
+    }
+
+    @Override
+    public synchronized boolean removeRelationship(final String rawRelationshipName) {
+        return this.removeElement(this.relationships, rawRelationshipName);
+    }
+
+    @Override
+    public synchronized void addAction(final String rawActionName) {
+        if (!this.actions.containsKey(rawActionName)) {
+            this.createThingDescriptionAction(rawActionName)
+                .ifPresent(action -> this.putElement(this.actions, rawActionName, action));
+        }
     }
 
     @Override
-    public void addRelationship(final String rawRelationshipName) {
-        this.createThingDescriptionProperty(rawRelationshipName, false)
-                .ifPresent(relationship -> this.relationships.put(rawRelationshipName, relationship));
+    public synchronized boolean removeAction(final String rawActionName) {
+        return this.removeElement(this.actions, rawActionName);
     }
 
     @Override
-    public boolean removeRelationship(final String rawRelationshipName) {
-        return this.relationships.remove(rawRelationshipName) != null;
+    public synchronized Thing<?, ?, ?> getDTD() {
+        return this.obtainCachedDTD().dtd;
     }
 
     @Override
-    public void addAction(final String rawActionName) {
-        this.createThingDescriptionAction(rawActionName)
-            .ifPresent(action -> this.actions.put(rawActionName, action));
+    public synchronized String getDTDJson() {
+        return this.obtainCachedDTD().json;
     }
 
     @Override
-    public boolean removeAction(final String rawActionName) {
-        return this.actions.remove(rawActionName) != null;
+    public synchronized long getDTDVersion() {
+        return this.obtainCachedDTD().version;
     }
 
     @Override
-    public Thing<?, ?, ?> getDTD() {
+    public synchronized Instant getDTDLastModified() {
+        return this.obtainCachedDTD().lastModified;
+    }
+
+    @Override
+    public void addDTDChangeListener(final Runnable listener) {
+        this.changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeDTDChangeListener(final Runnable listener) {
+        this.changeListeners.remove(listener);
+    }
+
+    private <T> void putElement(final Map<String, T> elements, final String rawName, final T element) {
+        elements.put(rawName, element);
+        this.elementsChanged();
+    }
+
+    private boolean removeElement(final Map<String, ?> elements, final String rawName) {
+        final boolean removed = elements.remove(rawName) != null;
+        if (removed) {
+            this.elementsChanged();
+        }
+        return removed;
+    }
+
+    private void elementsChanged() {
+        this.elementsVersion++;
+        this.notifyChangeListeners();
+    }
+
+    /*
+     * The elements embed the semantic types of the ontology they have been created with,
+     * so they are created again from the new ontology, dropping the ones that it no longer maps.
+     */
+    private synchronized void ontologyChanged() {
+        this.recreateElements(this.properties, rawName -> this.createThingDescriptionProperty(rawName, true));
+        this.recreateElements(this.relationships, rawName -> this.createThingDescriptionProperty(rawName, false));
+        this.recreateElements(this.actions, this::createThingDescriptionAction);
+        this.recreateElements(this.events, this::createThingDescriptionEvent);
+        this.elementsChanged();
+    }
+
+    private <T> void recreateElements(final Map<String, T> elements, final Function<String, Optional<T>> factory) {
+        new ArrayList<>(elements.keySet()).forEach(rawName -> factory.apply(rawName).ifPresentOrElse(
+                element -> elements.put(rawName, element),
+                () -> elements.remove(rawName)));
+    }
+
+    private void notifyChangeListeners() {
+        this.changeListeners.forEach(Runnable::run);
+    }
+
+    private CachedDTD obtainCachedDTD() {
+        final OntologyIndex ontologyIndex = this.configuration.getOntology().getOntologyIndex();
+        final Set<URI> platformUrls = this.platformManagementInterfaceReader.getRegisteredPlatformUrls();
+        if (this.cachedDTD == null || !this.cachedDTD.isBuiltFrom(this.elementsVersion, ontologyIndex, platformUrls)) {
+            final long rebuildStart = System.nanoTime();
+            final Thing<?, ?, ?> dtd = this.buildDTD(platformUrls);
+            this.dtdVersion++;
+            this.cachedDTD = new CachedDTD(this.dtdVersion, this.elementsVersion, ontologyIndex, platformUrls,
+                    dtd, dtd.toJson());
+            final long rebuildTime = System.nanoTime() - rebuildStart;
+            this.rebuildTimer.record(rebuildTime);
+            LOGGER.debug("DTD rebuilt to version {} in {} us", this.dtdVersion, rebuildTime / 1000);
+        }
+        return this.cachedDTD;
+    }
+
+    private Thing<?, ?, ?> buildDTD(final Set<URI> platformUrls) {
         try {
             Context context = new Context(THING_DESCRIPTION_CONTEXT);
             this.configuration.getOntology().getAvailableContextExtensions().forEach(contextExtensions ->
@@ -131,7 +248,7 @@ public class WoTDTDManager implements DTDManager {
                     .setObjectContext(context)
                     .build()
             );
-            this.initializeThingDescription(thingDescription);
+            this.initializeThingDescription(thingDescription, platformUrls);
             this.properties.forEach(thingDescription::addProperty);
             this.relationships.forEach(thingDescription::addProperty);
             this.actions.forEach((rawActionName, action) ->
@@ -165,7 +282,8 @@ public class WoTDTDManager implements DTDManager {
 
     private void addStandardPropertyAffordances(String name, ExposedThingProperty<Object> property) {
         String[] splitName = splitStringAtFirstCharOccurrence(name, '_');
-        ThingModelElement prop = findThingModelElement(this.configuration.getOntology().getAvailableProperties(), name, splitName);    
+        ThingModelElement prop = findThingModelElement(
+            this.configuration.getOntology().getOntologyIndex()::findProperty, name, splitName);    
         String href = BASE_URL + this.dittoThingId;
         if (prop.getFeature().isPresent()) {
             href += PROPERTY_URL.replace("{featureId}", prop.getFeature().get())
@@ -195,7 +313,8 @@ public class WoTDTDManager implements DTDManager {
 
     private void addActionAffordances(String name, ExposedThingAction<Object, Object> action) {
         String[] splitName = splitStringAtFirstCharOccurrence(name, '_');
-        ThingModelElement act = findThingModelElement(this.configuration.getOntology().getAvailableActions(), name, splitName);    
+        ThingModelElement act = findThingModelElement(
+            this.configuration.getOntology().getOntologyIndex()::findAction, name, splitName);    
         String href = BASE_URL + this.dittoThingId;
         if (act.getFeature().isPresent()) {
             href += FEATURE_URL.replace("{featureId}", act.getFeature().get()) + ACTION_URL + splitName[1];
@@ -210,7 +329,8 @@ public class WoTDTDManager implements DTDManager {
 
     private void addEventAffordances(String name, ExposedThingEvent<Object> event) {
         String[] splitName = splitStringAtFirstCharOccurrence(name, '_');
-        ThingModelElement evt = findThingModelElement(this.configuration.getOntology().getAvailableEvents(), name, splitName);    
+        ThingModelElement evt = findThingModelElement(
+            this.configuration.getOntology().getOntologyIndex()::findEvent, name, splitName);    
         String href = BASE_URL + this.dittoThingId;
         if (evt.getFeature().isPresent()) {
             href += FEATURE_URL.replace("{featureId}", evt.getFeature().get()) + EVENT_URL + splitName[1];
@@ -224,14 +344,16 @@ public class WoTDTDManager implements DTDManager {
             .build());
     }
 
-    private ThingModelElement findThingModelElement(List<ThingModelElement> list, String name, String[] splitName) {
-        return list.stream()
-            .filter(p -> splitName != null 
-                    ? p.getField().equals(splitName[1]) && p.getFeature().get().equals(splitName[0])
-                    : p.getField().equals(name))
-            .findFirst()
+    private ThingModelElement findThingModelElement(
+            BiFunction<Optional<String>, String, Optional<ThingModelElement>> lookup,
+            String name,
+            String[] splitName
+    ) {
+        return Optional.ofNullable(splitName)
+            .flatMap(split -> lookup.apply(Optional.of(split[0]), split[1]))
+            .or(() -> lookup.apply(Optional.empty(), name))
             .orElse(null);
-    }    
+    }
 
     private String[] splitStringAtFirstCharOccurrence(String input, char character) {
         int underscoreIndex = input.indexOf(character);
@@ -244,7 +366,7 @@ public class WoTDTDManager implements DTDManager {
         }
     }
 
-    private void initializeThingDescription(final ExposedThing thingDescription) {
+    private void initializeThingDescription(final ExposedThing thingDescription, final Set<URI> platformUrls) {
         thingDescription.setObjectType(new Type(this.ontology.getDigitalTwinType()));
         thingDescription.addProperty(SNAPSHOT_DTD_PROPERTY, new ExposedThingProperty.Builder()
                 .setReadOnly(true)
@@ -255,13 +377,12 @@ public class WoTDTDManager implements DTDManager {
         final ThingProperty<?> snapshotProperty = thingDescription.getProperty(SNAPSHOT_DTD_PROPERTY);
         snapshotProperty.addForm(new Form.Builder()
                 .addOp(Operation.OBSERVE_PROPERTY)
-                .setHref("ws://" + System.getenv("MODULE_URI") + ":" + this.portNumber + "/dtkg")
+                .setHref(this.obtainDTKGWebSocketUri().toString())
                 .setSubprotocol("websocket")
                 .build());
         thingDescription.getMetadata()
                         .put("links",
-                            this.platformManagementInterfaceReader
-                                .getRegisteredPlatformUrls()
+                            platformUrls
                                 .stream().map(uri -> new WoDTDigitalTwinsPlatformLink(uri.toString()))
                                 .collect(Collectors.toList())
                         );
@@ -272,6 +393,16 @@ public class WoTDTDManager implements DTDManager {
         thingDescription.setSecurity(List.of("basic_sc"));
     }
 
+    /*
+     * The DTKG WebSocket is served relative to the Digital Twin uri, e.g. under /{twinId}/dtkg in multi-twin mode.
+     */
+    private URI obtainDTKGWebSocketUri() {
+        final URI uri = URI.create(this.digitalTwinUri);
+        final String scheme = "https".equalsIgnoreCase(uri.getScheme()) ? "wss" : "ws";
+        final String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return URI.create(scheme + "://" + uri.getRawAuthority() + path).resolve(DTKG_PATH);
+    }
+
     private Optional<ThingProperty<Object>> createThingDescriptionProperty(
             final String rawPropertyName,
             final boolean indicateAugmentation
@@ -312,13 +443,52 @@ public class WoTDTDManager implements DTDManager {
     }
 
     @Override
-    public void addEvent(String rawEventName) {
-        this.createThingDescriptionEvent(rawEventName).ifPresent(event -> this.events.put(rawEventName, event));
+    public synchronized void addEvent(String rawEventName) {
+        if (!this.events.containsKey(rawEventName)) {
+            this.createThingDescriptionEvent(rawEventName)
+                .ifPresent(event -> this.putElement(this.events, rawEventName, event));
+        }
     }
 
     @Override
-    public boolean removeEvent(String rawEventName) {
-        return this.events.remove(rawEventName) != null;
+    public synchronized boolean removeEvent(String rawEventName) {
+        return this.removeElement(this.events, rawEventName);
+    }
+
+    /**
+     * Snapshot of the DTD together with the inputs it has been built from.
+    */
+    private static final class CachedDTD {
+        private final long version;
+        private final long elementsVersion;
+        private final OntologyIndex ontologyIndex;
+        private final Set<URI> platformUrls;
+        private final Thing<?, ?, ?> dtd;
+        private final String json;
+        private final Instant lastModified;
+
+        CachedDTD(
+                final long version,
+                final long elementsVersion,
+                final OntologyIndex ontologyIndex,
+                final Set<URI> platformUrls,
+                final Thing<?, ?, ?> dtd,
+                final String json
+        ) {
+            this.version = version;
+            this.elementsVersion = elementsVersion;
+            this.ontologyIndex = ontologyIndex;
+            this.platformUrls = platformUrls;
+            this.dtd = dtd;
+            this.json = json;
+            this.lastModified = Instant.now();
+        }
+
+        boolean isBuiltFrom(final long elementsVersion, final OntologyIndex ontologyIndex, final Set<URI> platformUrls) {
+            return this.elementsVersion == elementsVersion
+                    && this.ontologyIndex == ontologyIndex
+                    && this.platformUrls.equals(platformUrls);
+        }
     }
 
     /**
@@ -0,0 +1,27 @@
+package org.eclipse.ditto.wodt.DTDManager.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the parsed YAML ontology mappings, keyed by path, that can be shared by the
+ * ontology managers of many Digital Twins using the same mapping.
+ */
+public final class YamlOntologyCache {
+
+    private final Map<String, YamlOntologyProvider> providers = new ConcurrentHashMap<>();
+
+    /*
+     * Obtain the parsed YAML ontology mapping, parsing the file only on the first request.
+     */
+    public YamlOntologyProvider obtain(String yamlOntologyPath) {
+        return this.providers.computeIfAbsent(yamlOntologyPath, YamlOntologyProvider::new);
+    }
+
+    /*
+     * Forget a parsed mapping, so that the next request reads the file again.
+     */
+    public void invalidate(String yamlOntologyPath) {
+        this.providers.remove(yamlOntologyPath);
+    }
+}
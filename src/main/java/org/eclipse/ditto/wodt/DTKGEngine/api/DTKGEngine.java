@@ -71,9 +71,21 @@ public interface DTKGEngine extends DTKGEngineReader {
     */
     boolean removeActionId(String actionId);
 
+    /**
+     * Begin a new transaction to apply many mutations atomically with a single notification.
+    * @return the transaction where to stage the mutations
+    */
+    DTKGTransaction beginTransaction();
+
     /**
      * Add a {@link DTKGObserver} that will be notified for each DTKG update.
     * @param observer the observer to add.
     */
     void addDTKGObserver(DTKGObserver observer);
+
+    /**
+     * Remove a {@link DTKGObserver}, that will no more be notified.
+    * @param observer the observer to remove.
+    */
+    void removeDTKGObserver(DTKGObserver observer);
 }
\ No newline at end of file
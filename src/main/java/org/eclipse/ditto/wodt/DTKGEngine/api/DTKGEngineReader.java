@@ -16,6 +16,11 @@ package org.eclipse.ditto.wodt.DTKGEngine.api;
  * limitations under the License.
  */
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.function.Supplier;
+
 /**
  * Reader part of the DTKGEngine component of the Abstract Architecture -- for ISP.
 */
@@ -23,7 +28,62 @@ public interface DTKGEngineReader {
 
     /**
      * Obtain the current status of the Digital Twin Knowledge Graph.
+    * The serialization is cached and computed again only after the graph changes.
     * @return the current state of the DTKG
     */
     String getCurrentDigitalTwinKnowledgeGraph();
+
+    /**
+     * Obtain the current status of the Digital Twin Knowledge Graph together with its sequence number,
+    * read atomically so that the serialization is exactly the graph at that sequence number.
+    * @return the current version of the DTKG
+    */
+    DTKGVersion getCurrentDTKGVersion();
+
+    /**
+     * Write the current status of the Digital Twin Knowledge Graph to a stream, without building it as a String.
+    * The output stream is obtained only if the graph is not empty, and it is flushed but not closed.
+    * @param output the supplier of the output stream
+    * @param format the format of the serialization
+    * @return false if the graph is empty and nothing has been written
+    * @throws IOException if the graph cannot be written to the stream
+    */
+    boolean writeCurrentDigitalTwinKnowledgeGraph(Supplier<OutputStream> output, DTKGFormat format) throws IOException;
+
+    /**
+     * Write the Digital Twin Knowledge Graph of an update to a stream, e.g. to send it in a binary format
+    * together with the update, as the graph at the sequence number of the update rather than the current one.
+    * It must be called while the update is notified, see {@link DTKGUpdate}.
+    * The output stream is obtained only if the graph is not empty, and it is flushed but not closed.
+    * @param update the update whose graph is written
+    * @param output the supplier of the output stream
+    * @param format the format of the serialization
+    * @return false if the graph is empty and nothing has been written
+    * @throws IOException if the graph cannot be written to the stream
+    */
+    boolean writeDigitalTwinKnowledgeGraph(DTKGUpdate update, Supplier<OutputStream> output, DTKGFormat format)
+            throws IOException;
+
+    /**
+     * Prepare a SPARQL query over the current Digital Twin Knowledge Graph.
+    * The query is executed on a snapshot of the graph when its result is written, so it never blocks the updates.
+    * @param query the text of a SELECT, ASK, CONSTRUCT or DESCRIBE query
+    * @return the result of the query, to be written
+    * @throws IllegalArgumentException if the query is not valid
+    */
+    DTKGQueryResult query(String query);
+
+    /**
+     * Obtain the sequence number of the current Digital Twin Knowledge Graph.
+    * It is incremented by each update that changes the graph, so it can be used to align
+    * the current DTKG with the following {@link DTKGUpdate}s.
+    * @return the current sequence number
+    */
+    long getCurrentSequenceNumber();
+
+    /**
+     * Obtain the instant of the last update of the Digital Twin Knowledge Graph.
+    * @return the last modification instant
+    */
+    Instant getLastModified();
 }
\ No newline at end of file
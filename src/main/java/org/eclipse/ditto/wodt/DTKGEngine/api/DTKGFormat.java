@@ -0,0 +1,59 @@
+package org.eclipse.ditto.wodt.DTKGEngine.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * RDF formats in which the Digital Twin Knowledge Graph can be serialized.
+*/
+public enum DTKGFormat {
+    /** Turtle, grouped by subject and pretty printed. */
+    TURTLE("text/turtle"),
+    /** N-Triples, written one triple at a time without grouping them. */
+    N_TRIPLES("application/n-triples"),
+    /** Binary RDF Thrift encoding of Apache Jena, faster to write and parse than the text formats. */
+    RDF_THRIFT("application/rdf+thrift"),
+    /** Binary RDF Protobuf encoding of Apache Jena, faster to write and parse than the text formats. */
+    RDF_PROTOBUF("application/rdf+protobuf");
+
+    private final String mediaType;
+
+    DTKGFormat(final String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Obtain the media type of the format.
+    * @return the media type
+    */
+    public String getMediaType() {
+        return this.mediaType;
+    }
+
+    /**
+     * Obtain the format of a media type.
+    * @param mediaType the media type, without parameters
+    * @return the format, if supported
+    */
+    public static Optional<DTKGFormat> fromMediaType(final String mediaType) {
+        return Arrays.stream(values())
+                .filter(format -> format.mediaType.equalsIgnoreCase(mediaType))
+                .findFirst();
+    }
+}
@@ -26,4 +26,22 @@ public interface DTKGObserver {
     * @param dtkg the new Digital Twin Knowledge Graph.
     */
     void notifyNewDTKG(String dtkg);
+
+    /**
+     * Method to notify an update of the Digital Twin Knowledge Graph.
+    * By default it notifies the resulting Digital Twin Knowledge Graph.
+    * @param update the update with the added and removed triples.
+    */
+    default void notifyDTKGUpdate(DTKGUpdate update) {
+        this.notifyNewDTKG(update.getDigitalTwinKnowledgeGraph());
+    }
+
+    /**
+     * Check if the observer currently needs the added and removed triples of the updates.
+    * When no observer needs them, they are not recorded and the updates carry only the resulting graph.
+    * @return true if the triples must be recorded
+    */
+    default boolean requiresTriples() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package org.eclipse.ditto.wodt.DTKGEngine.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Result of a SPARQL query over the Digital Twin Knowledge Graph, streamed to the client while it is computed.
+*/
+public interface DTKGQueryResult {
+
+    /**
+     * Check if the result is a graph, i.e. if the query is a CONSTRUCT or a DESCRIBE query.
+    * @return true for a graph, false for SELECT bindings or an ASK boolean
+    */
+    boolean isGraph();
+
+    /**
+     * Obtain the media types in which the result can be written.
+    * @return the supported media types, the default one first
+    */
+    List<String> getMediaTypes();
+
+    /**
+     * Execute the query and write its result to a stream.
+    * The output stream is obtained only when the first result is available, so a query that fails or times out
+    * before producing it leaves the output untouched. The stream is flushed but not closed.
+    * @param output the supplier of the output stream
+    * @param mediaType the media type of the result, one of the supported ones
+    * @throws IOException if the result cannot be written to the stream
+    * @throws TimeoutException if the query does not complete within the query timeout
+    */
+    void write(Supplier<OutputStream> output, String mediaType) throws IOException, TimeoutException;
+}
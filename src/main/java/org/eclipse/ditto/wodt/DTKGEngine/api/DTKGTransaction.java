@@ -0,0 +1,73 @@
+package org.eclipse.ditto.wodt.DTKGEngine.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.eclipse.ditto.wodt.model.ontology.Individual;
+import org.eclipse.ditto.wodt.model.ontology.Node;
+import org.eclipse.ditto.wodt.model.ontology.Property;
+
+/**
+ * This interface models a batch of mutations of the Digital Twin Knowledge Graph.
+* The mutations are only staged until {@link #commit()}, that applies all of them atomically:
+* readers never observe a partially applied batch and observers are notified once per commit.
+*/
+public interface DTKGTransaction {
+    /**
+     * Stage the addition or update of a Digital Twin property.
+    * @param property the property to add/update
+    * @param newValue the value of the property.
+    */
+    void addDigitalTwinPropertyUpdate(Property property, Node newValue);
+
+    /**
+     * Stage the removal of a Digital Twin property.
+    * @param property the property to delete.
+    */
+    void removeProperty(Property property);
+
+    /**
+     * Stage the addition of a relationship with another Digital Twin.
+    * @param relationshipPredicate the associated predicate
+    * @param targetIndividual the target individual
+    */
+    void addRelationship(Property relationshipPredicate, Individual targetIndividual);
+
+    /**
+     * Stage the removal of a relationship with another Digital Twin.
+    * @param relationshipPredicate the associated predicate
+    * @param targetIndividual the target individual.
+    */
+    void removeRelationship(Property relationshipPredicate, Individual targetIndividual);
+
+    /**
+     * Stage the addition of an available action.
+    * @param actionId the action identifier to identify the available action.
+    */
+    void addActionId(String actionId);
+
+    /**
+     * Stage the removal of an available action.
+    * @param actionId the action identifier to remove
+    */
+    void removeActionId(String actionId);
+
+    /**
+     * Apply all the staged mutations atomically, notifying the observers once.
+    * The transaction cannot be used after the commit.
+    */
+    void commit();
+}
@@ -0,0 +1,157 @@
+package org.eclipse.ditto.wodt.DTKGEngine.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Immutable description of an update of the Digital Twin Knowledge Graph.
+* It carries the triples added and removed by the update, as N-Triples lines, and the sequence number
+* of the resulting graph. The triples are recorded only if some observer requires them: otherwise the update
+* carries only the resulting graph. The full graph is obtained lazily, only if an observer needs it, and it is the graph
+* at the sequence number of the update. It must be obtained while the update is notified: once a following
+* update is written it may no more be available, e.g. observers that keep the update read the current
+* {@link DTKGVersion} instead.
+*/
+public final class DTKGUpdate {
+    private final long sequenceNumber;
+    private final Set<String> addedTriples;
+    private final Set<String> removedTriples;
+    private final boolean withTriples;
+    private final Supplier<String> dtkgSupplier;
+    private String dtkg;
+
+    /**
+     * Default constructor.
+    * @param sequenceNumber the sequence number of the graph after the update
+    * @param addedTriples the added triples as N-Triples lines
+    * @param removedTriples the removed triples as N-Triples lines
+    * @param dtkgSupplier the supplier of the full Digital Twin Knowledge Graph after the update
+    */
+    public DTKGUpdate(
+            final long sequenceNumber,
+            final Set<String> addedTriples,
+            final Set<String> removedTriples,
+            final Supplier<String> dtkgSupplier
+    ) {
+        this.sequenceNumber = sequenceNumber;
+        this.addedTriples = Collections.unmodifiableSet(new LinkedHashSet<>(addedTriples));
+        this.removedTriples = Collections.unmodifiableSet(new LinkedHashSet<>(removedTriples));
+        this.withTriples = true;
+        this.dtkgSupplier = dtkgSupplier;
+    }
+
+    /**
+     * Constructor of an update whose added and removed triples have not been recorded.
+    * @param sequenceNumber the sequence number of the graph after the update
+    * @param dtkgSupplier the supplier of the full Digital Twin Knowledge Graph after the update
+    */
+    public DTKGUpdate(final long sequenceNumber, final Supplier<String> dtkgSupplier) {
+        this.sequenceNumber = sequenceNumber;
+        this.addedTriples = Set.of();
+        this.removedTriples = Set.of();
+        this.withTriples = false;
+        this.dtkgSupplier = dtkgSupplier;
+    }
+
+    /**
+     * Obtain the sequence number of the graph after this update.
+    * @return the sequence number
+    */
+    public long getSequenceNumber() {
+        return this.sequenceNumber;
+    }
+
+    /**
+     * Obtain the triples added by this update.
+    * @return the N-Triples lines
+    */
+    public Set<String> getAddedTriples() {
+        return this.addedTriples;
+    }
+
+    /**
+     * Obtain the triples removed by this update.
+    * @return the N-Triples lines
+    */
+    public Set<String> getRemovedTriples() {
+        return this.removedTriples;
+    }
+
+    /**
+     * Check if the update carries the added and removed triples. An update without them changes the graph,
+    * so the observers that follow the triples must read its full graph.
+    * @return true if the triples have been recorded
+    */
+    public boolean hasTriples() {
+        return this.withTriples;
+    }
+
+    /**
+     * Check if the update does not change the graph.
+    * @return true if no triple is added nor removed
+    */
+    public boolean isEmpty() {
+        return this.withTriples && this.addedTriples.isEmpty() && this.removedTriples.isEmpty();
+    }
+
+    /**
+     * Merge this update with the following one, obtaining a single update equivalent to applying both.
+    * Triples added by one and removed by the other cancel each other out. If either update has no triples,
+    * neither has the merged one.
+    * @param next the update that follows this one
+    * @return the merged update, with the sequence number and the graph of the following update
+    */
+    public DTKGUpdate merge(final DTKGUpdate next) {
+        if (!this.withTriples || !next.hasTriples()) {
+            return new DTKGUpdate(next.getSequenceNumber(), next::getDigitalTwinKnowledgeGraph);
+        }
+        final Set<String> mergedAddedTriples = new LinkedHashSet<>(this.addedTriples);
+        final Set<String> mergedRemovedTriples = new LinkedHashSet<>(this.removedTriples);
+        next.getRemovedTriples().forEach(triple -> {
+            if (!mergedAddedTriples.remove(triple)) {
+                mergedRemovedTriples.add(triple);
+            }
+        });
+        next.getAddedTriples().forEach(triple -> {
+            if (!mergedRemovedTriples.remove(triple)) {
+                mergedAddedTriples.add(triple);
+            }
+        });
+        return new DTKGUpdate(
+                next.getSequenceNumber(),
+                mergedAddedTriples,
+                mergedRemovedTriples,
+                next::getDigitalTwinKnowledgeGraph
+        );
+    }
+
+    /**
+     * Obtain the full Digital Twin Knowledge Graph. It is computed only once, at the first request.
+    * @return the DTKG after this update
+    * @throws IllegalStateException if the graph has been superseded by a following update before being obtained
+    */
+    public synchronized String getDigitalTwinKnowledgeGraph() {
+        if (this.dtkg == null) {
+            this.dtkg = this.dtkgSupplier.get();
+        }
+        return this.dtkg;
+    }
+}
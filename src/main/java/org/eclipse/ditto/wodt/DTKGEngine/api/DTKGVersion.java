@@ -0,0 +1,52 @@
+package org.eclipse.ditto.wodt.DTKGEngine.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Immutable Turtle serialization of the Digital Twin Knowledge Graph together with its sequence number,
+* so that the two are always read as a consistent pair.
+*/
+public final class DTKGVersion {
+    private final long sequenceNumber;
+    private final String dtkg;
+
+    /**
+     * Default constructor.
+    * @param sequenceNumber the sequence number of the graph
+    * @param dtkg the Turtle serialization of the graph
+    */
+    public DTKGVersion(final long sequenceNumber, final String dtkg) {
+        this.sequenceNumber = sequenceNumber;
+        this.dtkg = dtkg;
+    }
+
+    /**
+     * Obtain the sequence number of the graph.
+    * @return the sequence number
+    */
+    public long getSequenceNumber() {
+        return this.sequenceNumber;
+    }
+
+    /**
+     * Obtain the Turtle serialization of the graph.
+    * @return the DTKG
+    */
+    public String getDigitalTwinKnowledgeGraph() {
+        return this.dtkg;
+    }
+}
@@ -0,0 +1,213 @@
+package org.eclipse.ditto.wodt.DTKGEngine.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGEngineReader;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGObserver;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGUpdate;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DTKGObserver} that coalesces the updates received within a flush window into a single update,
+* notified to the wrapped observer on a dedicated thread. In this way a burst of updates costs a single
+* serialization and a single broadcast.
+* The sequence numbers notified to the wrapped observer are increasing but not necessarily contiguous.
+* The graph of the coalesced update is read from the DTKG Engine once, when it is notified, so the coalesced
+* updates never need a copy of their graph. With a zero window the updates are forwarded synchronously.
+*/
+public final class CoalescingDTKGObserver implements DTKGObserver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingDTKGObserver.class);
+    private final DTKGObserver observer;
+    private final DTKGEngineReader dtkgEngine;
+    private final long flushWindowMillis;
+    private final ScheduledExecutorService scheduler;
+    private DTKGUpdate pendingUpdate;
+    private ScheduledFuture<?> scheduledNotification;
+    private long awaitedSequenceNumber;
+    private boolean closed;
+
+    /**
+     * Default constructor.
+    * @param observer the observer to notify with the coalesced updates
+    * @param dtkgEngine the DTKG Engine that notifies the updates, from which the coalesced graph is read
+    * @param flushWindow the window within which the updates are coalesced
+    */
+    public CoalescingDTKGObserver(
+            final DTKGObserver observer,
+            final DTKGEngineReader dtkgEngine,
+            final Duration flushWindow
+    ) {
+        this(observer, dtkgEngine, flushWindow, newNotifierScheduler());
+    }
+
+    /**
+     * Constructor that notifies the coalesced updates on a scheduler shared with other observers,
+    * e.g. to avoid a thread for each Digital Twin hosted by the same process.
+    * The scheduler must be single threaded to keep the notifications of each observer ordered.
+    * @param observer the observer to notify with the coalesced updates
+    * @param dtkgEngine the DTKG Engine that notifies the updates, from which the coalesced graph is read
+    * @param flushWindow the window within which the updates are coalesced
+    * @param scheduler the scheduler where to notify the coalesced updates
+    */
+    public CoalescingDTKGObserver(
+            final DTKGObserver observer,
+            final DTKGEngineReader dtkgEngine,
+            final Duration flushWindow,
+            final ScheduledExecutorService scheduler
+    ) {
+        this.observer = observer;
+        this.dtkgEngine = dtkgEngine;
+        this.flushWindowMillis = flushWindow.toMillis();
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Create the single threaded scheduler used to notify the coalesced updates.
+    * @return the scheduler
+    */
+    public static ScheduledExecutorService newNotifierScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "dtkg-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void notifyNewDTKG(final String dtkg) {
+        this.observer.notifyNewDTKG(dtkg);
+    }
+
+    @Override
+    public void notifyDTKGUpdate(final DTKGUpdate update) {
+        if (this.flushWindowMillis <= 0) {
+            if (!this.isClosed()) {
+                this.observer.notifyDTKGUpdate(update);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            if (this.pendingUpdate == null) {
+                this.pendingUpdate = update;
+                this.scheduledNotification = this.scheduler.schedule(
+                        this::notifyPendingUpdate, this.flushWindowMillis, TimeUnit.MILLISECONDS);
+            } else {
+                this.pendingUpdate = this.pendingUpdate.merge(update);
+                if (this.awaitedSequenceNumber > 0
+                        && this.pendingUpdate.getSequenceNumber() >= this.awaitedSequenceNumber) {
+                    // The graph read at the end of the window is now aligned with the coalesced update.
+                    this.awaitedSequenceNumber = 0;
+                    this.scheduler.execute(this::notifyPendingUpdate);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresTriples() {
+        return this.observer.requiresTriples();
+    }
+
+    /**
+     * Notify as soon as possible the pending coalesced update, if any, without waiting for the end of the window.
+    */
+    public void flush() {
+        this.scheduler.execute(this::notifyPendingUpdate);
+    }
+
+    /**
+     * Stop notifying the wrapped observer, discarding the pending coalesced update, e.g. when the Digital Twin
+    * is no more hosted. The scheduler is not shut down, as it can be shared with other observers.
+    */
+    public synchronized void close() {
+        this.closed = true;
+        this.pendingUpdate = null;
+        this.awaitedSequenceNumber = 0;
+        if (this.scheduledNotification != null) {
+            this.scheduledNotification.cancel(false);
+            this.scheduledNotification = null;
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return this.closed;
+    }
+
+    /*
+     * Notify the pending update with the graph at its sequence number, read from the DTKG Engine.
+     * If the graph read is more recent, the updates up to it have been written but not yet received:
+     * the pending update is notified as soon as they are coalesced with it.
+     */
+    private void notifyPendingUpdate() {
+        synchronized (this) {
+            if (this.pendingUpdate != null && this.pendingUpdate.isEmpty()) {
+                this.pendingUpdate = null;
+            }
+            if (this.pendingUpdate == null) {
+                return;
+            }
+        }
+        final DTKGVersion version;
+        try {
+            version = this.dtkgEngine.getCurrentDTKGVersion();
+        } catch (final RuntimeException e) {
+            LOGGER.error("Error during DTKG update notification", e);
+            return;
+        }
+        final DTKGUpdate update;
+        synchronized (this) {
+            if (this.pendingUpdate == null) {
+                return;
+            }
+            final long sequenceNumber = this.pendingUpdate.getSequenceNumber();
+            if (sequenceNumber < version.getSequenceNumber()) {
+                this.awaitedSequenceNumber = version.getSequenceNumber();
+                return;
+            } else if (sequenceNumber > version.getSequenceNumber()) {
+                this.scheduler.execute(this::notifyPendingUpdate);
+                return;
+            }
+            update = this.pendingUpdate.hasTriples()
+                    ? new DTKGUpdate(
+                            sequenceNumber,
+                            this.pendingUpdate.getAddedTriples(),
+                            this.pendingUpdate.getRemovedTriples(),
+                            version::getDigitalTwinKnowledgeGraph)
+                    : new DTKGUpdate(sequenceNumber, version::getDigitalTwinKnowledgeGraph);
+            this.pendingUpdate = null;
+            this.awaitedSequenceNumber = 0;
+        }
+        if (!update.isEmpty()) {
+            try {
+                this.observer.notifyDTKGUpdate(update);
+            } catch (final RuntimeException e) {
+                LOGGER.error("Error during DTKG update notification", e);
+            }
+        }
+    }
+}
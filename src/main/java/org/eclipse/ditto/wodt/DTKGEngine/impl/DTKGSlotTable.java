@@ -0,0 +1,336 @@
+package org.eclipse.ditto.wodt.DTKGEngine.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+
+/**
+ * Primitive-specialized storage of the scalar properties of the Digital Twin resource.
+* Each slot keeps the value of a predicate whose only object is a numeric or boolean literal as raw bits,
+* so that updates compare and overwrite it in place, without creating Jena nodes, triples or statements.
+* The value is written to the Jena model only when it is materialized, e.g. before serializing the DTKG.
+* While a predicate has a slot, its statements in the model are either the current value or an outdated one.
+* The table must be modified while holding the write lock of the model.
+*/
+final class DTKGSlotTable {
+    private final Resource subject;
+    private final Map<String, Slot> slots;
+    private final Map<String, Slot> createdSlots;
+    private final List<Slot> touchedSlots;
+    private volatile boolean dirty;
+
+    /**
+     * Default constructor.
+    * @param subject the resource whose properties are stored in the table
+    */
+    DTKGSlotTable(final Resource subject) {
+        this.subject = subject;
+        this.slots = new ConcurrentHashMap<>();
+        this.createdSlots = new LinkedHashMap<>();
+        this.touchedSlots = new ArrayList<>();
+        this.dirty = false;
+    }
+
+    /**
+     * Check if a value can be stored in a slot.
+    * @param value the value of the literal
+    * @return true if it is a numeric or boolean primitive value
+    */
+    static boolean isSlotValue(final Object value) {
+        return SlotKind.of(value) != null;
+    }
+
+    /**
+     * Check if the predicate has a slot.
+    * @param predicateUri the uri of the predicate
+    * @return true if its value is stored in the table
+    */
+    boolean contains(final String predicateUri) {
+        return this.slots.containsKey(predicateUri);
+    }
+
+    /**
+     * Check if some slot has a value not yet written to the model.
+    * @return true if the model must be materialized before being read
+    */
+    boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Update the value of the slot of the predicate, if any.
+    * @param predicateUri the uri of the predicate
+    * @param value the new value, that must be a slot value
+    * @return false if the predicate has no slot
+    */
+    boolean update(final String predicateUri, final Object value) {
+        final Slot slot = this.slots.get(predicateUri);
+        if (slot == null) {
+            return false;
+        }
+        final SlotKind kind = SlotKind.of(value);
+        final long bits = kind.toBits(value);
+        if (slot.kind != kind || slot.bits != bits) {
+            this.touch(slot);
+            slot.kind = kind;
+            slot.bits = bits;
+            slot.materialized = false;
+            this.dirty = true;
+        }
+        return true;
+    }
+
+    /**
+     * Create the slot of a predicate once the current write completes. The value must have already been
+    * written to the model as the only object of the predicate.
+    * @param predicate the predicate
+    * @param value the value, that must be a slot value
+    */
+    void createOnCommit(final Property predicate, final Object value) {
+        final SlotKind kind = SlotKind.of(value);
+        this.createdSlots.put(predicate.getURI(), new Slot(predicate, kind, kind.toBits(value)));
+    }
+
+    /**
+     * Forget the slot of a predicate to be created, because its value changed in a way that is not supported.
+    * @param predicateUri the uri of the predicate
+    */
+    void discardOnCommit(final String predicateUri) {
+        this.createdSlots.remove(predicateUri);
+    }
+
+    /**
+     * Remove the slot of the predicate, if any, writing its value to the model so that it can be modified
+    * directly. The changes of the slot during the current write are reported to the recorder.
+    * The model changes due to the materialization of the value must not be recorded.
+    * @param predicateUri the uri of the predicate
+    * @param recorder the recorder of the removed and added statements
+    */
+    void evict(final String predicateUri, final BiConsumer<Statement, Statement> recorder) {
+        this.createdSlots.remove(predicateUri);
+        final Slot slot = this.slots.remove(predicateUri);
+        if (slot != null) {
+            this.touch(slot);
+            slot.evicted = true;
+            this.recordChange(slot, Optional.of(recorder));
+            this.materialize(slot);
+        }
+    }
+
+    /**
+     * Remove all the slots, writing their values to the model.
+    * @param recorder the recorder of the removed and added statements
+    */
+    void evictAll(final BiConsumer<Statement, Statement> recorder) {
+        this.createdSlots.clear();
+        new ArrayList<>(this.slots.keySet()).forEach(predicateUri -> this.evict(predicateUri, recorder));
+    }
+
+    /**
+     * Complete the current write: report the net change of each modified slot and create the new slots.
+    * @param recorder the recorder of the removed and added statements
+    */
+    void commit(final BiConsumer<Statement, Statement> recorder) {
+        this.commit(Optional.of(recorder));
+    }
+
+    /**
+     * Complete the current write without reporting the changes of the slots, so that no statement is created.
+    * @return true if the value of some slot changed
+    */
+    boolean commit() {
+        return this.commit(Optional.empty());
+    }
+
+    private boolean commit(final Optional<BiConsumer<Statement, Statement>> recorder) {
+        boolean changed = false;
+        for (final Slot slot : this.touchedSlots) {
+            if (!slot.evicted) {
+                changed |= this.recordChange(slot, recorder);
+            }
+            slot.touched = false;
+        }
+        this.touchedSlots.clear();
+        this.createdSlots.forEach(this.slots::put);
+        this.createdSlots.clear();
+        return changed;
+    }
+
+    /**
+     * Revert the current write. The reverted slots are materialized again, as the model could contain
+    * the values written during the write.
+    */
+    void rollback() {
+        this.touchedSlots.forEach(slot -> {
+            slot.kind = slot.originalKind;
+            slot.bits = slot.originalBits;
+            slot.materialized = false;
+            slot.touched = false;
+            if (slot.evicted) {
+                slot.evicted = false;
+                this.slots.put(slot.predicate.getURI(), slot);
+            }
+        });
+        if (!this.touchedSlots.isEmpty()) {
+            this.dirty = true;
+        }
+        this.touchedSlots.clear();
+        this.createdSlots.clear();
+    }
+
+    /**
+     * Write the values of the slots to the model. The changes to the model are not changes of the DTKG,
+    * so they must not be recorded.
+    */
+    void materialize() {
+        if (this.dirty) {
+            this.slots.values().forEach(this::materialize);
+            this.dirty = false;
+        }
+    }
+
+    private void materialize(final Slot slot) {
+        if (!slot.materialized) {
+            this.subject.removeAll(slot.predicate);
+            this.subject.addLiteral(slot.predicate, slot.kind.fromBits(slot.bits));
+            slot.materialized = true;
+        }
+    }
+
+    private void touch(final Slot slot) {
+        if (!slot.touched) {
+            slot.touched = true;
+            slot.originalKind = slot.kind;
+            slot.originalBits = slot.bits;
+            slot.reportedKind = slot.kind;
+            slot.reportedBits = slot.bits;
+            this.touchedSlots.add(slot);
+        }
+    }
+
+    private boolean recordChange(final Slot slot, final Optional<BiConsumer<Statement, Statement>> recorder) {
+        final boolean changed = slot.kind != slot.reportedKind || slot.bits != slot.reportedBits;
+        if (changed) {
+            recorder.ifPresent(consumer -> consumer.accept(
+                    this.statement(slot.predicate, slot.reportedKind, slot.reportedBits),
+                    this.statement(slot.predicate, slot.kind, slot.bits)
+            ));
+        }
+        // Further changes are relative to the reported value.
+        slot.reportedKind = slot.kind;
+        slot.reportedBits = slot.bits;
+        return changed;
+    }
+
+    private Statement statement(final Property predicate, final SlotKind kind, final long bits) {
+        return ResourceFactory.createStatement(this.subject, predicate,
+                ResourceFactory.createTypedLiteral(kind.fromBits(bits)));
+    }
+
+    /**
+     * Value of a predicate, with the state of the current write.
+    */
+    private static final class Slot {
+        private final Property predicate;
+        private SlotKind kind;
+        private long bits;
+        private boolean materialized;
+        private boolean touched;
+        private boolean evicted;
+        private SlotKind originalKind;
+        private long originalBits;
+        private SlotKind reportedKind;
+        private long reportedBits;
+
+        Slot(final Property predicate, final SlotKind kind, final long bits) {
+            this.predicate = predicate;
+            this.kind = kind;
+            this.bits = bits;
+            this.materialized = true;
+        }
+    }
+
+    /**
+     * Java type of a slot value, that determines the datatype of its literal.
+    */
+    private enum SlotKind {
+        BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE;
+
+        static SlotKind of(final Object value) {
+            if (value instanceof Double) {
+                return DOUBLE;
+            } else if (value instanceof Long) {
+                return LONG;
+            } else if (value instanceof Integer) {
+                return INT;
+            } else if (value instanceof Boolean) {
+                return BOOLEAN;
+            } else if (value instanceof Float) {
+                return FLOAT;
+            } else if (value instanceof Short) {
+                return SHORT;
+            } else if (value instanceof Byte) {
+                return BYTE;
+            } else {
+                return null;
+            }
+        }
+
+        long toBits(final Object value) {
+            switch (this) {
+                case BOOLEAN:
+                    return (Boolean) value ? 1 : 0;
+                case FLOAT:
+                    return Float.floatToIntBits((Float) value);
+                case DOUBLE:
+                    return Double.doubleToLongBits((Double) value);
+                default:
+                    return ((Number) value).longValue();
+            }
+        }
+
+        Object fromBits(final long bits) {
+            switch (this) {
+                case BOOLEAN:
+                    return bits != 0;
+                case BYTE:
+                    return (byte) bits;
+                case SHORT:
+                    return (short) bits;
+                case INT:
+                    return (int) bits;
+                case LONG:
+                    return bits;
+                case FLOAT:
+                    return Float.intBitsToFloat((int) bits);
+                default:
+                    return Double.longBitsToDouble(bits);
+            }
+        }
+    }
+}
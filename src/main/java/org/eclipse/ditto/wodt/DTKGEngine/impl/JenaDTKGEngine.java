@@ -16,20 +16,52 @@ package org.eclipse.ditto.wodt.DTKGEngine.impl;
  * limitations under the License.
  */
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.listeners.StatementListener;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
 import org.apache.jena.riot.RDFWriter;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.apache.jena.shared.Lock;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.graph.GraphReadOnly;
 import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGEngine;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGFormat;
 import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGObserver;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGQueryResult;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGTransaction;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGUpdate;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGVersion;
 import org.eclipse.ditto.wodt.model.ontology.BlankNode;
 import org.eclipse.ditto.wodt.model.ontology.Individual;
 import org.eclipse.ditto.wodt.model.ontology.Literal;
@@ -40,120 +72,369 @@ import org.eclipse.ditto.wodt.model.ontology.WoDTVocabulary;
 /**
  * This class provides an implementation of the {@link io.github.webbasedwodt.application.component.DTKGEngine} using
 * Apache Jena.
+* When the slot storage is enabled, the numeric and boolean properties of the Digital Twin are kept in a
+* {@link DTKGSlotTable} and written to the Jena model only when the DTKG is serialized.
+* When the snapshot reads are enabled, each update publishes an immutable copy of the graph, from which the DTKG
+* is read without taking the lock of the model, so readers and updates never block each other.
 */
 public class JenaDTKGEngine implements DTKGEngine {
     private final Model dtkgModel;
     private final Resource digitalTwinResource;
     private final List<DTKGObserver> observers;
+    private final ChangeRecorder changeRecorder;
+    private final Optional<DTKGSlotTable> slotTable;
+    private final SparqlQueryExecutor queryExecutor;
+    private final boolean snapshotReads;
+    private volatile GraphVersion graphVersion;
+    private volatile long sequenceNumber;
+    private volatile Instant lastModified;
+    private volatile DTKGVersion cachedDTKG;
+    private final LongAdder graphCopies;
+    private UpdateGraph lastUpdateGraph;
 
     /**
-     * Default constructor.
+     * Default constructor, with the slot storage enabled.
     * @param digitalTwinUri the uri of the Digital Twin for which this class creates the DTKG
     */
     public JenaDTKGEngine(final String digitalTwinUri) {
+        this(digitalTwinUri, true);
+    }
+
+    /**
+     * Constructor that allows to choose the storage of the numeric and boolean properties.
+    * @param digitalTwinUri the uri of the Digital Twin for which this class creates the DTKG
+    * @param slotStorage true to update the numeric and boolean properties in place, materializing them
+    *                    in the Jena model only when the DTKG is serialized
+    */
+    public JenaDTKGEngine(final String digitalTwinUri, final boolean slotStorage) {
+        this(digitalTwinUri, slotStorage, false);
+    }
+
+    /**
+     * Constructor that allows to choose the storage of the numeric and boolean properties and how the DTKG is read.
+    * @param digitalTwinUri the uri of the Digital Twin for which this class creates the DTKG
+    * @param slotStorage true to update the numeric and boolean properties in place, materializing them
+    *                    in the Jena model only when the DTKG is serialized
+    * @param snapshotReads true to publish an immutable copy of the graph at each update, so that the DTKG is read
+    *                      without taking the lock of the model
+    */
+    public JenaDTKGEngine(final String digitalTwinUri, final boolean slotStorage, final boolean snapshotReads) {
         this.dtkgModel = ModelFactory.createDefaultModel();
         this.digitalTwinResource = this.dtkgModel.createResource(digitalTwinUri);
-        this.observers = new ArrayList<>();
+        this.slotTable = slotStorage ? Optional.of(new DTKGSlotTable(this.digitalTwinResource)) : Optional.empty();
+        this.observers = new CopyOnWriteArrayList<>();
+        this.changeRecorder = new ChangeRecorder();
+        this.queryExecutor = SparqlQueryExecutor.getDefault();
+        this.graphCopies = new LongAdder();
+        this.dtkgModel.register(this.changeRecorder);
+        this.sequenceNumber = 0;
+        this.lastModified = Instant.now();
+        this.snapshotReads = snapshotReads;
+        if (snapshotReads) {
+            this.graphVersion = new GraphVersion(this.sequenceNumber, this.lastModified,
+                    new GraphReadOnly(GraphFactory.createGraphMem()));
+        }
     }
 
     @Override
     public void removeDigitalTwin() {
-        this.writeModel(Model::removeAll);
-        this.notifyObservers();
+        this.writeModel(model -> {
+            this.slotTable.ifPresent(table -> this.changeRecorder.suspended(() ->
+                    table.evictAll(this.changeRecorder::recordReplacement)));
+            model.remove(model.listStatements().toList());
+        });
     }
 
     @Override
     public void addDigitalTwinPropertyUpdate(final Property property, final Node newValue) {
         if (property.getUri().isPresent()) {
-            this.writeModel(model -> {
-                this.digitalTwinResource.removeAll(model.getProperty(property.getUri().get()));
-                addProperty(this.digitalTwinResource, Pair.of(property, newValue));
-            });
-            this.notifyObservers();
+            this.writeModel(this.propertyUpdate(property, newValue));
         }
     }
 
     @Override
     public boolean removeProperty(final Property property) {
-        if (property.getUri().isPresent()
-                && this.digitalTwinResource.hasProperty(this.dtkgModel.getProperty(property.getUri().get()))) {
-            this.writeModel(model ->
-                this.digitalTwinResource.removeAll(model.getProperty(property.getUri().get()))
-            );
-            this.notifyObservers();
-            return true;
-        } else {
-            return false;
-        }
+        // The property exists if its removal changes the graph, which is checked under the write lock.
+        return property.getUri().isPresent() && this.writeModel(this.propertyRemoval(property));
     }
 
     @Override
     public void addRelationship(final Property relationshipPredicate, final Individual targetIndividual) {
         if (relationshipPredicate.getUri().isPresent()) {
-            this.writeModel(model ->
-                    addProperty(this.digitalTwinResource, Pair.of(relationshipPredicate, targetIndividual))
-            );
-            this.notifyObservers();
+            this.writeModel(this.relationshipAddition(relationshipPredicate, targetIndividual));
         }
     }
 
     @Override
     public boolean removeRelationship(final Property relationshipPredicate, final Individual targetIndividual) {
-        if (relationshipPredicate.getUri().isPresent()
+        return relationshipPredicate.getUri().isPresent()
                 && targetIndividual.getUri().isPresent()
-                && this.digitalTwinResource.hasProperty(this.dtkgModel.getProperty(relationshipPredicate.getUri().get()))) {
-            this.writeModel(model ->
-                    model.remove(
-                            this.digitalTwinResource,
-                            this.dtkgModel.getProperty(relationshipPredicate.getUri().get()),
-                            model.getResource(targetIndividual.getUri().get())
-                    )
-            );
-            this.notifyObservers();
-            return true;
-        } else {
-            return false;
-        }
+                && this.writeModel(this.relationshipRemoval(relationshipPredicate, targetIndividual));
     }
 
     @Override
     public void addActionId(final String actionId) {
-        this.writeModel(model ->
-                this.digitalTwinResource.addLiteral(
-                        this.dtkgModel.createProperty(WoDTVocabulary.AVAILABLE_ACTION_ID.getUri()),
-                        actionId
-                )
-        );
-        this.notifyObservers();
+        this.writeModel(this.actionIdAddition(actionId));
     }
 
     @Override
     public boolean removeActionId(final String actionId) {
-        if (this.dtkgModel.containsLiteral(
+        return this.writeModel(this.actionIdRemoval(actionId));
+    }
+
+    @Override
+    public DTKGTransaction beginTransaction() {
+        return new JenaDTKGTransaction();
+    }
+
+    private Consumer<Model> propertyUpdate(final Property property, final Node newValue) {
+        return model -> property.getUri().ifPresent(propertyUri -> this.updateProperty(model, property, newValue));
+    }
+
+    private void updateProperty(final Model model, final Property property, final Node newValue) {
+        final String propertyUri = property.getUri().get();
+        final Optional<Object> slotValue = this.slotTable.isPresent() && newValue instanceof Literal<?>
+                && DTKGSlotTable.isSlotValue(((Literal<?>) newValue).getValue())
+                ? Optional.of(((Literal<?>) newValue).getValue())
+                : Optional.empty();
+        if (slotValue.isPresent() && this.slotTable.get().update(propertyUri, slotValue.get())) {
+            return;
+        }
+        this.evictSlot(propertyUri);
+        final org.apache.jena.rdf.model.Property predicate = model.getProperty(propertyUri);
+        if (!(newValue instanceof Literal<?>)
+                || !this.hasOnlyValue(predicate, model.createTypedLiteral(((Literal<?>) newValue).getValue()))) {
+            this.digitalTwinResource.removeAll(predicate);
+            addProperty(this.digitalTwinResource, Pair.of(property, newValue));
+        }
+        // From now on the value is updated in its slot.
+        slotValue.ifPresent(value -> this.slotTable.get().createOnCommit(predicate, value));
+    }
+
+    private void evictSlot(final String propertyUri) {
+        this.slotTable.ifPresent(table -> this.changeRecorder.suspended(() ->
+                table.evict(propertyUri, this.changeRecorder::recordReplacement)));
+    }
+
+    private boolean hasOnlyValue(final org.apache.jena.rdf.model.Property predicate, final RDFNode value) {
+        final List<Statement> statements = this.digitalTwinResource.listProperties(predicate).toList();
+        return statements.size() == 1 && statements.get(0).getObject().equals(value);
+    }
+
+    private Consumer<Model> propertyRemoval(final Property property) {
+        return model -> property.getUri().ifPresent(propertyUri -> {
+            this.evictSlot(propertyUri);
+            this.digitalTwinResource.removeAll(model.getProperty(propertyUri));
+        });
+    }
+
+    private Consumer<Model> relationshipAddition(final Property relationshipPredicate, final Individual targetIndividual) {
+        return model -> {
+            if (relationshipPredicate.getUri().isPresent()) {
+                this.evictSlot(relationshipPredicate.getUri().get());
+                addProperty(this.digitalTwinResource, Pair.of(relationshipPredicate, targetIndividual));
+            }
+        };
+    }
+
+    private Consumer<Model> relationshipRemoval(final Property relationshipPredicate, final Individual targetIndividual) {
+        return model -> {
+            if (relationshipPredicate.getUri().isPresent() && targetIndividual.getUri().isPresent()) {
+                this.evictSlot(relationshipPredicate.getUri().get());
+                model.remove(
+                        this.digitalTwinResource,
+                        model.getProperty(relationshipPredicate.getUri().get()),
+                        model.getResource(targetIndividual.getUri().get())
+                );
+            }
+        };
+    }
+
+    private Consumer<Model> actionIdAddition(final String actionId) {
+        return model -> this.digitalTwinResource.addLiteral(
+                model.createProperty(WoDTVocabulary.AVAILABLE_ACTION_ID.getUri()),
+                actionId
+        );
+    }
+
+    private Consumer<Model> actionIdRemoval(final String actionId) {
+        return model -> model.remove(
                 this.digitalTwinResource,
-                this.dtkgModel.getProperty(WoDTVocabulary.AVAILABLE_ACTION_ID.getUri()),
-                actionId)
-        ) {
-            this.writeModel(model ->
-                    model.remove(
-                            this.digitalTwinResource,
-                            model.getProperty(WoDTVocabulary.AVAILABLE_ACTION_ID.getUri()),
-                            ResourceFactory.createStringLiteral(actionId)
-                    )
-            );
+                model.getProperty(WoDTVocabulary.AVAILABLE_ACTION_ID.getUri()),
+                ResourceFactory.createStringLiteral(actionId)
+        );
+    }
+
+    @Override
+    public String getCurrentDigitalTwinKnowledgeGraph() {
+        return this.getCurrentDTKGVersion().getDigitalTwinKnowledgeGraph();
+    }
+
+    @Override
+    public DTKGVersion getCurrentDTKGVersion() {
+        final DTKGVersion cached = this.cachedDTKG;
+        if (cached != null && cached.getSequenceNumber() == this.getCurrentSequenceNumber()) {
+            return cached;
+        }
+        if (this.snapshotReads) {
+            final GraphVersion version = this.graphVersion;
+            return this.serialize(version.sequenceNumber, version.graph);
+        }
+        return this.readModel(model -> this.serialize(this.sequenceNumber, model.getGraph()));
+    }
+
+    @Override
+    public boolean writeCurrentDigitalTwinKnowledgeGraph(
+            final Supplier<OutputStream> output,
+            final DTKGFormat format
+    ) throws IOException {
+        final DTKGVersion cached = this.cachedDTKG;
+        if (format == DTKGFormat.TURTLE && cached != null
+                && cached.getSequenceNumber() == this.getCurrentSequenceNumber()) {
+            if (cached.getDigitalTwinKnowledgeGraph().isBlank()) {
+                return false;
+            }
+            final Writer writer = new OutputStreamWriter(output.get(), StandardCharsets.UTF_8);
+            writer.write(cached.getDigitalTwinKnowledgeGraph());
+            writer.flush();
             return true;
         }
-        return false;
+        // The graph is written from a snapshot, so a slow client never blocks the updates of the graph.
+        if (format == DTKGFormat.TURTLE) {
+            final Graph snapshot = this.snapshot();
+            if (snapshot.isEmpty()) {
+                return false;
+            }
+            final OutputStream outputStream = output.get();
+            RDFWriter.create().lang(Lang.TTL).source(snapshot).output(outputStream);
+            outputStream.flush();
+        } else {
+            final Iterator<Triple> triples = this.snapshotReads
+                    ? this.graphVersion.graph.find()
+                    : this.readModel(model -> model.getGraph().find().toList()).iterator();
+            if (!triples.hasNext()) {
+                return false;
+            }
+            final OutputStream outputStream = output.get();
+            final StreamRDF stream = StreamRDFWriter.getWriterStream(outputStream, streamingFormat(format));
+            stream.start();
+            triples.forEachRemaining(stream::triple);
+            stream.finish();
+            outputStream.flush();
+        }
+        return true;
     }
 
     @Override
-    public String getCurrentDigitalTwinKnowledgeGraph() {
+    public boolean writeDigitalTwinKnowledgeGraph(
+            final DTKGUpdate update,
+            final Supplier<OutputStream> output,
+            final DTKGFormat format
+    ) throws IOException {
+        final String dtkg = update.getDigitalTwinKnowledgeGraph();
+        if (dtkg.isBlank()) {
+            return false;
+        }
+        final OutputStream outputStream = output.get();
+        if (format == DTKGFormat.TURTLE) {
+            final Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            writer.write(dtkg);
+            writer.flush();
+        } else {
+            // The Turtle of the update is streamed into the writer, without building a graph.
+            final StreamRDF stream = StreamRDFWriter.getWriterStream(outputStream, streamingFormat(format));
+            RDFParser.fromString(dtkg).lang(Lang.TTL).parse(stream);
+            outputStream.flush();
+        }
+        return true;
+    }
+
+    @Override
+    public DTKGQueryResult query(final String query) {
+        return this.queryExecutor.prepare(query, this::snapshot);
+    }
+
+    /*
+     * Obtain a graph with the current DTKG that the following updates do not modify: the published version,
+     * or a copy taken under the read lock. The twin graph is small, so copying it lets the readers use it,
+     * e.g. to stream it to a slow client, without holding the lock.
+     */
+    private Graph snapshot() {
+        return this.snapshotReads ? this.graphVersion.graph : this.readModel(model -> this.copy(model.getGraph()));
+    }
+
+    static RDFFormat streamingFormat(final DTKGFormat format) {
+        switch (format) {
+            case RDF_THRIFT:
+                return RDFFormat.RDF_THRIFT;
+            case RDF_PROTOBUF:
+                return RDFFormat.RDF_PROTO;
+            default:
+                return RDFFormat.NTRIPLES;
+        }
+    }
+
+    private Graph copy(final Graph graph) {
+        this.graphCopies.increment();
+        final Graph copy = GraphFactory.createGraphMem();
+        copy.getPrefixMapping().setNsPrefixes(graph.getPrefixMapping());
+        GraphUtil.addInto(copy, graph);
+        return copy;
+    }
+
+    /*
+     * Read the model under the read lock, or under the write lock when the values updated in the slots
+     * must be written to the model first.
+     */
+    private <T> T readModel(final Function<Model, T> reader) {
+        this.dtkgModel.enterCriticalSection(Lock.READ);
         try {
-            this.dtkgModel.enterCriticalSection(Lock.READ);
-            return RDFWriter.create().lang(Lang.TTL).source(this.dtkgModel).asString();
+            if (!this.slotTable.map(DTKGSlotTable::isDirty).orElse(false)) {
+                return reader.apply(this.dtkgModel);
+            }
         } finally {
             this.dtkgModel.leaveCriticalSection();
         }
+        this.dtkgModel.enterCriticalSection(Lock.WRITE);
+        try {
+            this.slotTable.ifPresent(table -> this.changeRecorder.suspended(table::materialize));
+            return reader.apply(this.dtkgModel);
+        } finally {
+            this.dtkgModel.leaveCriticalSection();
+        }
+    }
+
+    /*
+     * Serialize the graph at a given sequence number. The serialization is cached unless a newer one already is.
+     */
+    private DTKGVersion serialize(final long sequenceNumber, final Graph graph) {
+        final DTKGVersion cached = this.cachedDTKG;
+        if (cached != null && cached.getSequenceNumber() == sequenceNumber) {
+            return cached;
+        }
+        final DTKGVersion version = new DTKGVersion(sequenceNumber,
+                RDFWriter.create().lang(Lang.TTL).source(graph).asString());
+        if (cached == null || cached.getSequenceNumber() < sequenceNumber) {
+            this.cachedDTKG = version;
+        }
+        return version;
+    }
+
+    /*
+     * Obtain the number of copies of the graph taken so far, e.g. to check that the updates do not take them.
+     */
+    long getGraphCopyCount() {
+        return this.graphCopies.sum();
+    }
+
+    @Override
+    public long getCurrentSequenceNumber() {
+        return this.snapshotReads ? this.graphVersion.sequenceNumber : this.sequenceNumber;
+    }
+
+    @Override
+    public Instant getLastModified() {
+        return this.snapshotReads ? this.graphVersion.lastModified : this.lastModified;
     }
 
     @Override
@@ -161,9 +442,13 @@ public class JenaDTKGEngine implements DTKGEngine {
         this.observers.add(observer);
     }
 
-    private void notifyObservers() {
-        final String currentDTKG = this.getCurrentDigitalTwinKnowledgeGraph();
-        this.observers.forEach(observer -> observer.notifyNewDTKG(currentDTKG));
+    @Override
+    public void removeDTKGObserver(final DTKGObserver observer) {
+        this.observers.remove(observer);
+    }
+
+    private void notifyObservers(final DTKGUpdate update) {
+        this.observers.forEach(observer -> observer.notifyDTKGUpdate(update));
     }
 
     private void addProperty(final Resource resourceToAdd, final Pair<Property, Node> predicate) {
@@ -194,9 +479,303 @@ public class JenaDTKGEngine implements DTKGEngine {
         return resourceToAdd;
     }
 
-    private void writeModel(final Consumer<Model> modelConsumer) {
+    /*
+     * Apply a write under the write lock and notify the observers of its changes.
+     * Returns true if the write changed the DTKG.
+     */
+    private boolean writeModel(final Consumer<Model> modelConsumer) {
+        final UpdateGraph updateGraph;
+        final DTKGUpdate update;
         this.dtkgModel.enterCriticalSection(Lock.WRITE);
-        modelConsumer.accept(this.dtkgModel);
-        this.dtkgModel.leaveCriticalSection();
+        try {
+            this.freezeLastUpdateGraph();
+            this.changeRecorder.clear();
+            // The triples are formatted only for the observers that follow them, e.g. the delta WebSocket clients.
+            final boolean recordTriples = this.observers.stream().anyMatch(DTKGObserver::requiresTriples);
+            try {
+                modelConsumer.accept(this.dtkgModel);
+            } catch (final RuntimeException e) {
+                this.changeRecorder.rollback(this.dtkgModel);
+                this.slotTable.ifPresent(DTKGSlotTable::rollback);
+                throw e;
+            }
+            this.slotTable.ifPresent(table -> {
+                if (recordTriples) {
+                    table.commit(this.changeRecorder::recordReplacement);
+                } else if (table.commit()) {
+                    this.changeRecorder.recordUnformattedChange();
+                }
+            });
+            if (this.changeRecorder.isEmpty()) {
+                return false;
+            }
+            this.sequenceNumber++;
+            this.lastModified = Instant.now();
+            this.cachedDTKG = null;
+            updateGraph = this.updateGraph();
+            update = recordTriples
+                    ? new DTKGUpdate(
+                            this.sequenceNumber,
+                            this.changeRecorder.getAddedTriples(),
+                            this.changeRecorder.getRemovedTriples(),
+                            updateGraph)
+                    : new DTKGUpdate(this.sequenceNumber, updateGraph);
+        } finally {
+            this.dtkgModel.leaveCriticalSection();
+        }
+        try {
+            this.notifyObservers(update);
+        } finally {
+            updateGraph.notifying = false;
+        }
+        return true;
+    }
+
+    /*
+     * Obtain the DTKG at the sequence number of the update being written: the published version,
+     * or the model while no following update changes it.
+     */
+    private UpdateGraph updateGraph() {
+        if (this.snapshotReads) {
+            this.publishGraphVersion();
+            return new UpdateGraph(this.sequenceNumber, this.graphVersion.graph);
+        }
+        this.lastUpdateGraph = new UpdateGraph(this.sequenceNumber, null);
+        return this.lastUpdateGraph;
+    }
+
+    /*
+     * Copy the model for the last update if its observers are still being notified and have not read its graph,
+     * before a following update changes it. Observers that keep an update, e.g. to coalesce it with the following
+     * ones, read the current version when they need it, so the updates are never copied while the writes go on.
+     */
+    private void freezeLastUpdateGraph() {
+        final UpdateGraph updateGraph = this.lastUpdateGraph;
+        if (updateGraph != null && updateGraph.notifying && !updateGraph.read && updateGraph.frozenGraph == null) {
+            this.slotTable.ifPresent(table -> this.changeRecorder.suspended(table::materialize));
+            updateGraph.frozenGraph = this.copy(this.dtkgModel.getGraph());
+        }
+        this.lastUpdateGraph = null;
+    }
+
+    /*
+     * Publish a copy of the model as the current version, to be read without the lock. The slots are materialized
+     * at each update, as readers cannot write them to the model.
+     */
+    private void publishGraphVersion() {
+        this.slotTable.ifPresent(table -> this.changeRecorder.suspended(table::materialize));
+        this.graphVersion = new GraphVersion(this.sequenceNumber, this.lastModified,
+                new GraphReadOnly(this.copy(this.dtkgModel.getGraph())));
+    }
+
+    /**
+     * Immutable version of the DTKG, published at each update when the snapshot reads are enabled.
+    */
+    private static final class GraphVersion {
+        private final long sequenceNumber;
+        private final Instant lastModified;
+        private final Graph graph;
+
+        GraphVersion(final long sequenceNumber, final Instant lastModified, final Graph graph) {
+            this.sequenceNumber = sequenceNumber;
+            this.lastModified = lastModified;
+            this.graph = graph;
+        }
+    }
+
+    /**
+     * DTKG at the sequence number of an update, read from the model under its lock. If a following update
+    * is written while the observers of this one are being notified, the model is copied for it first.
+    * Once superseded, the graph of an update that has not been read is no more available.
+    */
+    private final class UpdateGraph implements Supplier<String> {
+        private final long sequenceNumber;
+        private volatile Graph frozenGraph;
+        private volatile boolean read;
+        private volatile boolean notifying;
+
+        UpdateGraph(final long sequenceNumber, final Graph frozenGraph) {
+            this.sequenceNumber = sequenceNumber;
+            this.frozenGraph = frozenGraph;
+            this.notifying = true;
+        }
+
+        @Override
+        public String get() {
+            final Graph frozen = this.frozenGraph;
+            if (frozen != null) {
+                return serialize(this.sequenceNumber, frozen).getDigitalTwinKnowledgeGraph();
+            }
+            return readModel(model -> {
+                // Under the lock no following update can start, so the model is either at this sequence number
+                // or already superseded.
+                final Graph graph = this.frozenGraph != null ? this.frozenGraph
+                        : JenaDTKGEngine.this.sequenceNumber == this.sequenceNumber ? model.getGraph() : null;
+                if (graph == null) {
+                    throw new IllegalStateException("The DTKG at sequence number " + this.sequenceNumber
+                            + " has been superseded before being read");
+                }
+                this.read = true;
+                return serialize(this.sequenceNumber, graph).getDigitalTwinKnowledgeGraph();
+            });
+        }
+    }
+
+    /**
+     * {@link DTKGTransaction} that stages the mutations and applies them under a single write lock acquisition.
+    */
+    private final class JenaDTKGTransaction implements DTKGTransaction {
+        private final List<Consumer<Model>> mutations = new ArrayList<>();
+        private boolean committed;
+
+        @Override
+        public void addDigitalTwinPropertyUpdate(final Property property, final Node newValue) {
+            this.stage(propertyUpdate(property, newValue));
+        }
+
+        @Override
+        public void removeProperty(final Property property) {
+            this.stage(propertyRemoval(property));
+        }
+
+        @Override
+        public void addRelationship(final Property relationshipPredicate, final Individual targetIndividual) {
+            this.stage(relationshipAddition(relationshipPredicate, targetIndividual));
+        }
+
+        @Override
+        public void removeRelationship(final Property relationshipPredicate, final Individual targetIndividual) {
+            this.stage(relationshipRemoval(relationshipPredicate, targetIndividual));
+        }
+
+        @Override
+        public void addActionId(final String actionId) {
+            this.stage(actionIdAddition(actionId));
+        }
+
+        @Override
+        public void removeActionId(final String actionId) {
+            this.stage(actionIdRemoval(actionId));
+        }
+
+        @Override
+        public void commit() {
+            this.checkNotCommitted();
+            this.committed = true;
+            if (!this.mutations.isEmpty()) {
+                writeModel(model -> this.mutations.forEach(mutation -> mutation.accept(model)));
+            }
+        }
+
+        private void stage(final Consumer<Model> mutation) {
+            this.checkNotCommitted();
+            this.mutations.add(mutation);
+        }
+
+        private void checkNotCommitted() {
+            if (this.committed) {
+                throw new IllegalStateException("The DTKG transaction has already been committed");
+            }
+        }
+    }
+
+    /**
+     * Listener that records the net statements added and removed from the model during a write.
+    * A statement removed and then added again, or vice versa, is not recorded at all.
+    */
+    private static final class ChangeRecorder extends StatementListener {
+        private final Set<Statement> addedStatements = new LinkedHashSet<>();
+        private final Set<Statement> removedStatements = new LinkedHashSet<>();
+        private boolean unformattedChange;
+        private boolean suspended;
+
+        @Override
+        public void addedStatement(final Statement statement) {
+            if (!this.suspended && !this.removedStatements.remove(statement)) {
+                this.addedStatements.add(statement);
+            }
+        }
+
+        @Override
+        public void removedStatement(final Statement statement) {
+            if (!this.suspended && !this.addedStatements.remove(statement)) {
+                this.removedStatements.add(statement);
+            }
+        }
+
+        /**
+         * Record the replacement of a statement that is not written to the model, e.g. a slot value.
+        * @param removed the removed statement
+        * @param added the added statement
+        */
+        void recordReplacement(final Statement removed, final Statement added) {
+            if (!this.addedStatements.remove(removed)) {
+                this.removedStatements.add(removed);
+            }
+            if (!this.removedStatements.remove(added)) {
+                this.addedStatements.add(added);
+            }
+        }
+
+        /**
+         * Record that the DTKG changed without recording the changed statements, e.g. the values of the slots
+        * when no observer requires the triples.
+        */
+        void recordUnformattedChange() {
+            this.unformattedChange = true;
+        }
+
+        /**
+         * Apply changes to the model that are not changes of the DTKG, without recording them.
+        * @param changes the changes to apply
+        */
+        void suspended(final Runnable changes) {
+            this.suspended = true;
+            try {
+                changes.run();
+            } finally {
+                this.suspended = false;
+            }
+        }
+
+        void clear() {
+            this.addedStatements.clear();
+            this.removedStatements.clear();
+            this.unformattedChange = false;
+        }
+
+        boolean isEmpty() {
+            return !this.unformattedChange && this.addedStatements.isEmpty() && this.removedStatements.isEmpty();
+        }
+
+        /**
+         * Revert the recorded changes on the model.
+        * @param model the model where the changes have been recorded
+        */
+        void rollback(final Model model) {
+            final List<Statement> added = new ArrayList<>(this.addedStatements);
+            final List<Statement> removed = new ArrayList<>(this.removedStatements);
+            model.remove(added);
+            model.add(removed);
+            this.clear();
+        }
+
+        Set<String> getAddedTriples() {
+            return toNTriples(this.addedStatements);
+        }
+
+        Set<String> getRemovedTriples() {
+            return toNTriples(this.removedStatements);
+        }
+
+        private static Set<String> toNTriples(final Set<Statement> statements) {
+            final Set<String> triples = new LinkedHashSet<>();
+            statements.forEach(statement -> triples.add(NodeFmtLib.strNodesNT(
+                    statement.getSubject().asNode(),
+                    statement.getPredicate().asNode(),
+                    statement.getObject().asNode()
+            ) + " ."));
+            return triples;
+        }
     }
-}
\ No newline at end of file
+}
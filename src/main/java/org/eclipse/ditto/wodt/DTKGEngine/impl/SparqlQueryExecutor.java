@@ -0,0 +1,236 @@
+package org.eclipse.ditto.wodt.DTKGEngine.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryException;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.syntax.ElementService;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.ElementWalker;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGFormat;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGQueryResult;
+
+/**
+ * Executor of the SPARQL queries over the Digital Twin Knowledge Graphs, shared by all the Digital Twins
+* of the process. The parsed queries are cached by their text, so the queries that platforms repeat are not parsed
+* again, and each query is executed with a timeout on a snapshot of the graph, without remote SERVICE calls.
+* The default executor is configured by the SPARQL_QUERY_TIMEOUT_MS and SPARQL_QUERY_CACHE_SIZE
+* environment variables.
+*/
+final class SparqlQueryExecutor {
+    private static final long DEFAULT_QUERY_TIMEOUT_MS = 5_000;
+    private static final long DEFAULT_QUERY_CACHE_SIZE = 256;
+    private static final Map<String, Lang> RESULT_SET_LANGS = resultSetLangs(
+            ResultSetLang.RS_JSON, ResultSetLang.RS_XML, ResultSetLang.RS_CSV, ResultSetLang.RS_TSV);
+    private static final List<String> GRAPH_MEDIA_TYPES = Arrays.stream(DTKGFormat.values())
+            .map(DTKGFormat::getMediaType)
+            .collect(Collectors.toUnmodifiableList());
+    private static SparqlQueryExecutor defaultInstance;
+
+    private final long queryTimeoutMillis;
+    private final Map<String, Query> queryCache;
+
+    /**
+     * Default constructor.
+    * @param queryTimeoutMillis the maximum duration of a query, including the writing of its result
+    * @param queryCacheSize the maximum number of parsed queries kept in the cache
+    */
+    SparqlQueryExecutor(final long queryTimeoutMillis, final long queryCacheSize) {
+        this.queryTimeoutMillis = queryTimeoutMillis;
+        this.queryCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Query> eldest) {
+                return this.size() > queryCacheSize;
+            }
+        });
+    }
+
+    /**
+     * Obtain the executor shared by the process, configured from the environment.
+    * @return the default executor
+    */
+    static synchronized SparqlQueryExecutor getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new SparqlQueryExecutor(
+                    readLongEnv("SPARQL_QUERY_TIMEOUT_MS", DEFAULT_QUERY_TIMEOUT_MS),
+                    readLongEnv("SPARQL_QUERY_CACHE_SIZE", DEFAULT_QUERY_CACHE_SIZE)
+            );
+        }
+        return defaultInstance;
+    }
+
+    private static long readLongEnv(final String name, final long defaultValue) {
+        return Optional.ofNullable(System.getenv(name))
+                .filter(value -> !value.isBlank())
+                .map(value -> Long.parseLong(value.trim()))
+                .orElse(defaultValue);
+    }
+
+    private static Map<String, Lang> resultSetLangs(final Lang... langs) {
+        final Map<String, Lang> resultSetLangs = new LinkedHashMap<>();
+        Arrays.stream(langs).forEach(lang -> resultSetLangs.put(lang.getContentType().getContentTypeStr(), lang));
+        return Collections.unmodifiableMap(resultSetLangs);
+    }
+
+    /**
+     * Prepare a query, that is executed on a snapshot of the graph when its result is written.
+    * @param queryText the text of the query
+    * @param snapshot the supplier of the snapshot of the graph, that must not be modified afterwards
+    * @return the result of the query
+    * @throws IllegalArgumentException if the query is not a valid SELECT, ASK, CONSTRUCT or DESCRIBE query
+    */
+    DTKGQueryResult prepare(final String queryText, final Supplier<Graph> snapshot) {
+        return new SparqlQueryResult(this.compile(queryText), snapshot);
+    }
+
+    private Query compile(final String queryText) {
+        final Query cached = this.queryCache.get(queryText);
+        if (cached != null) {
+            return cached;
+        }
+        final Query query;
+        try {
+            query = QueryFactory.create(queryText);
+        } catch (final QueryException e) {
+            throw new IllegalArgumentException("Invalid SPARQL query: " + e.getMessage(), e);
+        }
+        if (!query.isSelectType() && !query.isAskType() && !query.isConstructType() && !query.isDescribeType()) {
+            throw new IllegalArgumentException("Only SELECT, ASK, CONSTRUCT and DESCRIBE queries are supported");
+        }
+        if (query.getQueryPattern() != null && hasServiceClause(query)) {
+            throw new IllegalArgumentException("SERVICE clauses are not supported");
+        }
+        // The result variables are computed once, so that the cached query is only read by the executions.
+        query.setResultVars();
+        this.queryCache.put(queryText, query);
+        return query;
+    }
+
+    private static boolean hasServiceClause(final Query query) {
+        final boolean[] found = {false};
+        ElementWalker.walk(query.getQueryPattern(), new ElementVisitorBase() {
+            @Override
+            public void visit(final ElementService element) {
+                found[0] = true;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * Result of a parsed query, executed when it is written.
+    */
+    private final class SparqlQueryResult implements DTKGQueryResult {
+        private final Query query;
+        private final Supplier<Graph> snapshot;
+
+        SparqlQueryResult(final Query query, final Supplier<Graph> snapshot) {
+            this.query = query;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean isGraph() {
+            return this.query.isConstructType() || this.query.isDescribeType();
+        }
+
+        @Override
+        public List<String> getMediaTypes() {
+            return this.isGraph() ? GRAPH_MEDIA_TYPES : new ArrayList<>(RESULT_SET_LANGS.keySet());
+        }
+
+        @Override
+        public void write(final Supplier<OutputStream> output, final String mediaType)
+                throws IOException, TimeoutException {
+            try (QueryExecution execution = QueryExecution.create()
+                    .query(this.query)
+                    .model(ModelFactory.createModelForGraph(this.snapshot.get()))
+                    .set(ARQ.httpServiceAllowed, false)
+                    .timeout(queryTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .build()) {
+                if (this.query.isSelectType()) {
+                    final ResultSet results = execution.execSelect();
+                    results.hasNext();
+                    final OutputStream outputStream = output.get();
+                    ResultSetMgr.write(outputStream, results, RESULT_SET_LANGS.get(mediaType));
+                    outputStream.flush();
+                } else if (this.query.isAskType()) {
+                    final boolean result = execution.execAsk();
+                    final OutputStream outputStream = output.get();
+                    ResultSetMgr.write(outputStream, result, RESULT_SET_LANGS.get(mediaType));
+                    outputStream.flush();
+                } else {
+                    this.writeTriples(
+                            this.query.isConstructType()
+                                    ? execution.execConstructTriples()
+                                    : execution.execDescribeTriples(),
+                            output,
+                            DTKGFormat.fromMediaType(mediaType).orElse(DTKGFormat.TURTLE)
+                    );
+                }
+            } catch (final QueryCancelledException e) {
+                throw new TimeoutException("The SPARQL query did not complete within " + queryTimeoutMillis + " ms");
+            }
+        }
+
+        private void writeTriples(
+                final Iterator<Triple> triples,
+                final Supplier<OutputStream> output,
+                final DTKGFormat format
+        ) throws IOException {
+            // Waiting for the first triple lets the query fail before anything is written.
+            triples.hasNext();
+            final OutputStream outputStream = output.get();
+            final StreamRDF stream = StreamRDFWriter.getWriterStream(outputStream,
+                    format == DTKGFormat.TURTLE ? RDFFormat.TURTLE_BLOCKS : JenaDTKGEngine.streamingFormat(format));
+            stream.start();
+            this.query.getPrefixMapping().getNsPrefixMap().forEach(stream::prefix);
+            triples.forEachRemaining(stream::triple);
+            stream.finish();
+            outputStream.flush();
+        }
+    }
+}
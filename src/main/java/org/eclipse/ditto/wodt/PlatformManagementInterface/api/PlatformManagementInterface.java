@@ -17,6 +17,8 @@ package org.eclipse.ditto.wodt.PlatformManagementInterface.api;
  */
 
 import java.net.URI;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * This interface represent the PlatformManagementInterface component in the Abstract Architecture.
@@ -31,10 +33,27 @@ public interface PlatformManagementInterface extends
     */
     boolean registerToPlatform(URI platformUrl, String currentDtd);
 
+    /**
+     * This method allows the component to register to the passed WoDT Digital Twins Platforms in background,
+    * concurrently, without waiting for their answers. Failed registrations are retried with an exponential
+    * backoff until they succeed or the Digital Twin deletion is signaled.
+    * @param platformUrls the platformUrls to which register
+    * @param currentDtd the supplier of the current Digital Twin Descriptor, obtained at each attempt
+    */
+    void registerToPlatforms(Set<URI> platformUrls, Supplier<String> currentDtd);
+
     /**
      * Signal to the Platform Management Interface the deletion of the managed Digital Twin.
     * This will result in the deletion notification to be sent to all the WoDT Digital Twins Platform to
     * which it is registered.
     */
     void signalDigitalTwinDeletion();
+
+    /**
+     * Signal to the Platform Management Interface the update of the Digital Twin Descriptor.
+    * Updates signaled within a short window are debounced into a single one, then the current DTD is sent to all
+    * the WoDT Digital Twins Platforms to which the DT is registered that did not receive it yet.
+    * @param currentDtd the supplier of the current Digital Twin Descriptor
+    */
+    void signalDigitalTwinDescriptorUpdate(Supplier<String> currentDtd);
 }
\ No newline at end of file
@@ -29,4 +29,10 @@ public interface PlatformManagementInterfaceAPIController extends WebServerContr
     * @param context the javalin context
     */
     void routeNewRegistration(Context context);
+
+    /**
+     * Obtain the state of the registrations to the Platforms.
+    * @param context the javalin context
+    */
+    void routeGetRegistrations(Context context);
 }
\ No newline at end of file
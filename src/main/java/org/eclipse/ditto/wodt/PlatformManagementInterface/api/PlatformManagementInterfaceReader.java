@@ -17,6 +17,7 @@ package org.eclipse.ditto.wodt.PlatformManagementInterface.api;
  */
 
 import java.net.URI;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -28,4 +29,23 @@ public interface PlatformManagementInterfaceReader {
     * @return the set of urls.
     */
     Set<URI> getRegisteredPlatformUrls();
+
+    /**
+     * This method allows to obtain the state of the registrations to the Platforms, e.g. to monitor them.
+    * @return the list of the registration states, sorted by Platform url.
+    */
+    List<PlatformRegistrationState> getPlatformRegistrationStates();
+
+    /**
+     * Add a listener notified each time the set of the Platforms to which the DT is registered changes.
+    * The listener is called synchronously and must not block.
+    * @param listener the listener to notify
+    */
+    void addPlatformsChangeListener(Runnable listener);
+
+    /**
+     * Remove a listener of the changes of the registered Platforms, that will no more be notified.
+    * @param listener the listener to remove
+    */
+    void removePlatformsChangeListener(Runnable listener);
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package org.eclipse.ditto.wodt.PlatformManagementInterface.api;
+
+/*
+ * Copyright (c) 2024. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Optional;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Presenter class that describes the state of the registration of the DT to a WoDT Digital Twins Platform,
+* to be able to monitor it from the API.
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class PlatformRegistrationState {
+    private final URI platformUrl;
+    private final Status status;
+    private final int failedAttempts;
+    private final Optional<String> lastError;
+    private final Optional<Instant> lastAttempt;
+    private final Optional<Instant> nextAttempt;
+
+    /**
+     * Default constructor.
+    * @param platformUrl the url of the Platform
+    * @param status the status of the registration
+    * @param failedAttempts the number of consecutive failed registration attempts
+    * @param lastError the error of the last failed attempt, if any
+    * @param lastAttempt the time of the last attempt, if any
+    * @param nextAttempt the time of the next scheduled attempt, if any
+    */
+    public PlatformRegistrationState(
+            final URI platformUrl,
+            final Status status,
+            final int failedAttempts,
+            final Optional<String> lastError,
+            final Optional<Instant> lastAttempt,
+            final Optional<Instant> nextAttempt
+    ) {
+        this.platformUrl = platformUrl;
+        this.status = status;
+        this.failedAttempts = failedAttempts;
+        this.lastError = lastError;
+        this.lastAttempt = lastAttempt;
+        this.nextAttempt = nextAttempt;
+    }
+
+    /**
+     * Obtain the url of the Platform.
+    * @return the Platform url
+    */
+    public String getPlatform() {
+        return this.platformUrl.toString();
+    }
+
+    /**
+     * Obtain the url of the Platform.
+    * @return the Platform url
+    */
+    @JsonIgnore
+    public URI getPlatformUrl() {
+        return this.platformUrl;
+    }
+
+    /**
+     * Obtain the status of the registration.
+    * @return the status
+    */
+    public Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Obtain the number of consecutive failed registration attempts.
+    * @return the number of failed attempts, 0 when registered
+    */
+    public int getFailedAttempts() {
+        return this.failedAttempts;
+    }
+
+    /**
+     * Obtain the error of the last failed attempt.
+    * @return the error, null if the last attempt did not fail
+    */
+    public String getLastError() {
+        return this.lastError.orElse(null);
+    }
+
+    /**
+     * Obtain the time of the last attempt, in ISO-8601 format.
+    * @return the time, null if no attempt was made
+    */
+    public String getLastAttempt() {
+        return this.lastAttempt.map(Instant::toString).orElse(null);
+    }
+
+    /**
+     * Obtain the time of the next scheduled attempt, in ISO-8601 format.
+    * @return the time, null if no attempt is scheduled
+    */
+    public String getNextAttempt() {
+        return this.nextAttempt.map(Instant::toString).orElse(null);
+    }
+
+    /**
+     * The status of the registration to a Platform.
+    */
+    public enum Status {
+        /** The first registration attempt is in progress. */
+        PENDING,
+        /** The Platform accepted the registration. */
+        REGISTERED,
+        /** The last attempt failed and another one is scheduled. */
+        RETRYING
+    }
+}
@@ -17,69 +17,173 @@ package org.eclipse.ditto.wodt.PlatformManagementInterface.impl;
  */
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterface;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformRegistrationState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Base implementation of the {@link PlatformManagementInterface}.
 */
 public class BasePlatformManagementInterface implements PlatformManagementInterface {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BasePlatformManagementInterface.class);
     private static final String PATH_TO_PLATFORM_WODT = "/wodt";
     private static final int ACCEPTED_REQUEST_STATUS_CODE = 202;
     private final String digitalTwinUri;
+    private final PlatformRegistrationClient client;
     private final Set<URI> platforms;
+    private final Map<URI, Registration> registrations;
+    private final Map<URI, String> sentDtdHashes;
+    private final AtomicBoolean dtdUpdatePending;
+    private final List<Runnable> platformsChangeListeners;
+    private volatile Optional<ScheduledFuture<?>> scheduledDTDUpdate;
+    private volatile boolean deleted;
 
     /**
      * Default constructor.
     * @param digitalTwinUri the uri of the WoDT Digital Twin
     */
     public BasePlatformManagementInterface(final String digitalTwinUri) {
+        this(digitalTwinUri, PlatformRegistrationClient.getDefault());
+    }
+
+    /**
+     * Constructor that communicates with the Platforms through the given client.
+    * @param digitalTwinUri the uri of the WoDT Digital Twin
+    * @param client the client used to communicate with the Platforms
+    */
+    public BasePlatformManagementInterface(final String digitalTwinUri, final PlatformRegistrationClient client) {
         this.digitalTwinUri = digitalTwinUri;
+        this.client = client;
         this.platforms = Collections.synchronizedSet(new HashSet<>());
+        this.registrations = new ConcurrentHashMap<>();
+        this.sentDtdHashes = new ConcurrentHashMap<>();
+        this.dtdUpdatePending = new AtomicBoolean(false);
+        this.platformsChangeListeners = new CopyOnWriteArrayList<>();
+        this.scheduledDTDUpdate = Optional.empty();
+        this.deleted = false;
     }
 
     @Override
     public boolean registerToPlatform(final URI platformUrl, final String currentDtd) {
         if (!this.platforms.contains(platformUrl)) {
-            final HttpClient httpClient = HttpClient.newHttpClient();
-            final HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(getPlatformWoDT(platformUrl))
-                    .header("Content-type", "application/td+json")
-                    .POST(HttpRequest.BodyPublishers.ofString(currentDtd))
-                    .build();
-            final boolean status = httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
-                    .join()
-                    .statusCode() == ACCEPTED_REQUEST_STATUS_CODE;
-            if (status) {
-                notifyNewRegistration(platformUrl);
+            try {
+                final boolean status = this.sendRegistration(platformUrl, currentDtd).join()
+                        == ACCEPTED_REQUEST_STATUS_CODE;
+                if (status) {
+                    this.sentDtdHashes.put(platformUrl, hash(currentDtd));
+                    notifyNewRegistration(platformUrl);
+                }
+                return status;
+            } catch (final CompletionException exception) {
+                LOGGER.warn("Registration to platform {} failed: {}", platformUrl, describe(exception));
+                return false;
             }
-            return status;
         } else {
             return false;
         }
     }
 
     @Override
-    public void signalDigitalTwinDeletion() {
-        final HttpClient httpClient = HttpClient.newHttpClient();
-        this.platforms.forEach(platformUrl -> {
-            final HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(getPlatformWoDT(platformUrl, this.digitalTwinUri))
-                    .DELETE()
-                    .build();
-            httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString());
+    public void registerToPlatforms(final Set<URI> platformUrls, final Supplier<String> currentDtd) {
+        if (this.deleted) {
+            return;
+        }
+        platformUrls.forEach(platformUrl -> {
+            final Registration registration = new Registration(platformUrl, currentDtd);
+            if (this.registrations.putIfAbsent(platformUrl, registration) == null) {
+                registration.attempt();
+            }
         });
+    }
+
+    @Override
+    public void signalDigitalTwinDeletion() {
+        // Neither registrations nor DTD updates are sent from now on, including the retried and debounced ones.
+        this.deleted = true;
+        this.scheduledDTDUpdate.ifPresent(update -> update.cancel(false));
+        this.registrations.values().forEach(Registration::cancel);
+        this.registrations.clear();
+        this.sentDtdHashes.clear();
+        this.platforms.forEach(platformUrl -> this.client.send(HttpRequest.newBuilder()
+                .uri(getPlatformWoDT(platformUrl, this.digitalTwinUri))
+                .DELETE()));
         this.platforms.clear();
     }
 
+    @Override
+    public void signalDigitalTwinDescriptorUpdate(final Supplier<String> currentDtd) {
+        if (!this.deleted && this.dtdUpdatePending.compareAndSet(false, true)) {
+            this.scheduledDTDUpdate = Optional.of(this.client.schedule(
+                    () -> this.sendDigitalTwinDescriptorUpdate(currentDtd), this.client.getDTDUpdateDebounce()));
+        }
+    }
+
+    private void sendDigitalTwinDescriptorUpdate(final Supplier<String> currentDtd) {
+        // Updates signaled from now on are sent with a following request.
+        this.dtdUpdatePending.set(false);
+        if (this.deleted) {
+            return;
+        }
+        final String dtd;
+        try {
+            dtd = currentDtd.get();
+        } catch (final RuntimeException exception) {
+            LOGGER.warn("Unable to obtain the updated DTD: {}", describe(exception));
+            return;
+        }
+        final String dtdHash = hash(dtd);
+        this.getRegisteredPlatformUrls().stream()
+                .filter(platformUrl -> !dtdHash.equals(this.sentDtdHashes.get(platformUrl)))
+                .forEach(platformUrl -> this.client.send(HttpRequest.newBuilder()
+                                .uri(getPlatformWoDT(platformUrl, this.digitalTwinUri))
+                                .header("Content-type", "application/td+json")
+                                .PUT(HttpRequest.BodyPublishers.ofString(dtd)))
+                        .whenComplete((statusCode, error) -> {
+                            if (error == null && statusCode / 100 == 2) {
+                                this.sentDtdHashes.put(platformUrl, dtdHash);
+                            } else {
+                                // It will be sent again with the next update.
+                                LOGGER.warn("DTD update to platform {} failed: {}", platformUrl,
+                                        error == null ? "Unexpected status code " + statusCode : describe(error));
+                            }
+                        }));
+    }
+
+    private CompletableFuture<Integer> sendRegistration(
+            final URI platformUrl,
+            final String currentDtd
+    ) {
+        return this.client.send(HttpRequest.newBuilder()
+                .uri(getPlatformWoDT(platformUrl))
+                .header("Content-type", "application/td+json")
+                .POST(HttpRequest.BodyPublishers.ofString(currentDtd)));
+    }
+
     private URI getPlatformWoDT(final URI platformUrl, final String... path) {
         final String platformUrlString = platformUrl.toString();
         String platformWoDT = platformUrlString.concat(PATH_TO_PLATFORM_WODT);
@@ -89,13 +193,161 @@ public class BasePlatformManagementInterface implements PlatformManagementInterf
         return URI.create(platformWoDT);
     }
 
+    private static String describe(final Throwable error) {
+        final Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        return Optional.ofNullable(cause.getMessage()).orElse(cause.getClass().getSimpleName());
+    }
+
+    private static String hash(final String dtd) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(dtd.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hash = new StringBuilder(digest.length * 2);
+            for (final byte digestByte : digest) {
+                hash.append(String.format("%02x", digestByte));
+            }
+            return hash.toString();
+        } catch (final NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 not available", exception);
+        }
+    }
+
     @Override
     public Set<URI> getRegisteredPlatformUrls() {
         return new HashSet<>(this.platforms);
     }
 
+    @Override
+    public List<PlatformRegistrationState> getPlatformRegistrationStates() {
+        // Platforms that added the DT on their own initiative have no registration attempt.
+        final Stream<PlatformRegistrationState> notifiedRegistrations = this.getRegisteredPlatformUrls().stream()
+                .filter(platformUrl -> !this.registrations.containsKey(platformUrl))
+                .map(platformUrl -> new PlatformRegistrationState(platformUrl,
+                        PlatformRegistrationState.Status.REGISTERED, 0,
+                        Optional.empty(), Optional.empty(), Optional.empty()));
+        return Stream.concat(this.registrations.values().stream().map(Registration::state), notifiedRegistrations)
+                .sorted(Comparator.comparing(PlatformRegistrationState::getPlatform))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void addPlatformsChangeListener(final Runnable listener) {
+        this.platformsChangeListeners.add(listener);
+    }
+
+    @Override
+    public void removePlatformsChangeListener(final Runnable listener) {
+        this.platformsChangeListeners.remove(listener);
+    }
+
     @Override
     public boolean notifyNewRegistration(final URI platformUrl) {
-        return this.platforms.add(platformUrl);
+        final Registration registration = this.registrations.get(platformUrl);
+        if (registration != null) {
+            registration.completed();
+        }
+        final boolean added = this.platforms.add(platformUrl);
+        if (added) {
+            this.platformsChangeListeners.forEach(Runnable::run);
+        }
+        return added;
+    }
+
+    /*
+     * Registration to a Platform, attempted until it is accepted or cancelled.
+     * Each attempt sends the current DTD; after a failure the next attempt is scheduled with a backoff.
+     */
+    private final class Registration {
+        private final URI platformUrl;
+        private final Supplier<String> currentDtd;
+        private PlatformRegistrationState.Status status;
+        private int failedAttempts;
+        private Optional<String> lastError;
+        private Optional<Instant> lastAttempt;
+        private Optional<Instant> nextAttempt;
+        private Optional<ScheduledFuture<?>> scheduledAttempt;
+        private boolean cancelled;
+
+        Registration(final URI platformUrl, final Supplier<String> currentDtd) {
+            this.platformUrl = platformUrl;
+            this.currentDtd = currentDtd;
+            this.status = PlatformRegistrationState.Status.PENDING;
+            this.failedAttempts = 0;
+            this.lastError = Optional.empty();
+            this.lastAttempt = Optional.empty();
+            this.nextAttempt = Optional.empty();
+            this.scheduledAttempt = Optional.empty();
+            this.cancelled = false;
+        }
+
+        synchronized void attempt() {
+            if (this.cancelled || this.status == PlatformRegistrationState.Status.REGISTERED) {
+                return;
+            }
+            this.lastAttempt = Optional.of(Instant.now());
+            this.nextAttempt = Optional.empty();
+            this.scheduledAttempt = Optional.empty();
+            final String dtd;
+            final CompletableFuture<Integer> registration;
+            try {
+                dtd = this.currentDtd.get();
+                registration = sendRegistration(this.platformUrl, dtd);
+            } catch (final RuntimeException exception) {
+                this.failed(describe(exception));
+                return;
+            }
+            registration.whenComplete((statusCode, error) -> this.attemptCompleted(dtd, statusCode, error));
+        }
+
+        private synchronized void attemptCompleted(final String dtd, final Integer statusCode, final Throwable error) {
+            if (this.cancelled) {
+                return;
+            }
+            if (error == null && statusCode == ACCEPTED_REQUEST_STATUS_CODE) {
+                sentDtdHashes.put(this.platformUrl, hash(dtd));
+                notifyNewRegistration(this.platformUrl);
+                // The DTD could have changed while the registration was in progress.
+                signalDigitalTwinDescriptorUpdate(this.currentDtd);
+            } else {
+                this.failed(error == null ? "Unexpected status code " + statusCode : describe(error));
+            }
+        }
+
+        synchronized void completed() {
+            if (this.status != PlatformRegistrationState.Status.REGISTERED) {
+                LOGGER.info("Registered to platform {}", this.platformUrl);
+            }
+            this.status = PlatformRegistrationState.Status.REGISTERED;
+            this.failedAttempts = 0;
+            this.lastError = Optional.empty();
+            this.nextAttempt = Optional.empty();
+            this.scheduledAttempt.ifPresent(attempt -> attempt.cancel(false));
+            this.scheduledAttempt = Optional.empty();
+        }
+
+        synchronized void cancel() {
+            this.cancelled = true;
+            this.scheduledAttempt.ifPresent(attempt -> attempt.cancel(false));
+        }
+
+        private synchronized void failed(final String error) {
+            if (this.cancelled || this.status == PlatformRegistrationState.Status.REGISTERED) {
+                return;
+            }
+            this.failedAttempts++;
+            final Duration delay = client.backoff(this.failedAttempts);
+            this.status = PlatformRegistrationState.Status.RETRYING;
+            this.lastError = Optional.of(error);
+            this.nextAttempt = Optional.of(Instant.now().plus(delay));
+            this.scheduledAttempt = Optional.of(client.schedule(this::attempt, delay));
+            LOGGER.warn("Registration to platform {} failed ({} attempts): {}, retrying in {} ms",
+                    this.platformUrl, this.failedAttempts, error, delay.toMillis());
+        }
+
+        synchronized PlatformRegistrationState state() {
+            return new PlatformRegistrationState(this.platformUrl, this.status, this.failedAttempts,
+                    this.lastError, this.lastAttempt, this.nextAttempt);
+        }
     }
-}
\ No newline at end of file
+}
@@ -20,7 +20,9 @@ import java.net.URI;
 
 import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterfaceAPIController;
 import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterfaceNotifier;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterfaceReader;
 import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformRegistration;
+import org.eclipse.ditto.wodt.common.ControllerLookup;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -31,15 +33,20 @@ import io.javalin.http.HttpStatus;
 */
 final public class PlatformManagementInterfaceAPIControllerImpl implements PlatformManagementInterfaceAPIController {
     private final PlatformManagementInterfaceNotifier platformManagementInterfaceNotifier;
+    private final PlatformManagementInterfaceReader platformManagementInterfaceReader;
 
     /**
      * Default constructor.
     * @param platformManagementInterfaceNotifier the platform management interface notifier that handle registrations
+    * @param platformManagementInterfaceReader the platform management interface reader that provides
+    *                                          the state of the registrations
     */
     public PlatformManagementInterfaceAPIControllerImpl(
-            final PlatformManagementInterfaceNotifier platformManagementInterfaceNotifier
+            final PlatformManagementInterfaceNotifier platformManagementInterfaceNotifier,
+            final PlatformManagementInterfaceReader platformManagementInterfaceReader
     ) {
         this.platformManagementInterfaceNotifier = platformManagementInterfaceNotifier;
+        this.platformManagementInterfaceReader = platformManagementInterfaceReader;
     }
 
 
@@ -60,8 +67,31 @@ final public class PlatformManagementInterfaceAPIControllerImpl implements Platf
         }
     }
 
+    @Override
+    public void routeGetRegistrations(final Context context) {
+        context.json(this.platformManagementInterfaceReader.getPlatformRegistrationStates());
+    }
+
     @Override
     public void registerRoutes(final Javalin app) {
-        app.post("/platform", this::routeNewRegistration);
+        registerRoutes(app, "", ControllerLookup.of(this));
+    }
+
+    /**
+     * Register the routes of the Platform Management Interface API, handled by the controller obtained
+    * for each request.
+    * @param app the Javalin app where to register routes
+    * @param pathPrefix the prefix of the paths of the routes, e.g. the id of the Digital Twin as path parameter
+    * @param controllers the lookup of the controller of each request
+    */
+    public static void registerRoutes(
+            final Javalin app,
+            final String pathPrefix,
+            final ControllerLookup<PlatformManagementInterfaceAPIControllerImpl> controllers
+    ) {
+        app.post(pathPrefix + "/platform", context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeNewRegistration(context)));
+        app.get(pathPrefix + "/platform", context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeGetRegistrations(context)));
     }
 }
\ No newline at end of file
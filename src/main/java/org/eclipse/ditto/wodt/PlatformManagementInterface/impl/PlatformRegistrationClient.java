@@ -0,0 +1,146 @@
+package org.eclipse.ditto.wodt.PlatformManagementInterface.impl;
+
+/*
+ * Copyright (c) 2024. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client used to communicate with the WoDT Digital Twins Platforms, shared by all the Digital Twins
+* of the process. Requests are sent asynchronously and time out, so a slow or unreachable Platform never blocks
+* the caller; failed registrations are retried on a shared scheduler with an exponential backoff with jitter,
+* where the DTD updates are also debounced before being pushed.
+* The default client is configured by the PLATFORM_REQUEST_TIMEOUT_MS, PLATFORM_RETRY_INITIAL_BACKOFF_MS,
+* PLATFORM_RETRY_MAX_BACKOFF_MS and PLATFORM_DTD_UPDATE_DEBOUNCE_MS environment variables.
+*/
+public final class PlatformRegistrationClient {
+    private static final long DEFAULT_REQUEST_TIMEOUT_MS = 10_000;
+    private static final long DEFAULT_INITIAL_BACKOFF_MS = 1_000;
+    private static final long DEFAULT_MAX_BACKOFF_MS = 300_000;
+    private static final long DEFAULT_DTD_UPDATE_DEBOUNCE_MS = 1_000;
+    private static final int MAX_BACKOFF_EXPONENT = 30;
+    private static PlatformRegistrationClient defaultInstance;
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration dtdUpdateDebounce;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Default constructor.
+    * @param requestTimeout the connection and request timeout
+    * @param initialBackoff the delay before retrying a failed registration the first time, doubled at each failure
+    * @param maxBackoff the maximum delay between two attempts
+    * @param dtdUpdateDebounce the delay within which the DTD changes are pushed to the Platforms as a single update
+    */
+    public PlatformRegistrationClient(
+            final Duration requestTimeout,
+            final Duration initialBackoff,
+            final Duration maxBackoff,
+            final Duration dtdUpdateDebounce
+    ) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(requestTimeout)
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.dtdUpdateDebounce = dtdUpdateDebounce;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "platform-registration");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Obtain the client shared by the process, configured from the environment.
+    * @return the default client
+    */
+    public static synchronized PlatformRegistrationClient getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new PlatformRegistrationClient(
+                    Duration.ofMillis(readLongEnv("PLATFORM_REQUEST_TIMEOUT_MS", DEFAULT_REQUEST_TIMEOUT_MS)),
+                    Duration.ofMillis(readLongEnv("PLATFORM_RETRY_INITIAL_BACKOFF_MS", DEFAULT_INITIAL_BACKOFF_MS)),
+                    Duration.ofMillis(readLongEnv("PLATFORM_RETRY_MAX_BACKOFF_MS", DEFAULT_MAX_BACKOFF_MS)),
+                    Duration.ofMillis(readLongEnv("PLATFORM_DTD_UPDATE_DEBOUNCE_MS", DEFAULT_DTD_UPDATE_DEBOUNCE_MS))
+            );
+        }
+        return defaultInstance;
+    }
+
+    private static long readLongEnv(final String name, final long defaultValue) {
+        return Optional.ofNullable(System.getenv(name))
+                .filter(value -> !value.isBlank())
+                .map(value -> Long.parseLong(value.trim()))
+                .orElse(defaultValue);
+    }
+
+    /**
+     * Send a request to a Platform.
+    * @param request the request to send, whose timeout is set by the client
+    * @return the future status code of the response
+    */
+    CompletableFuture<Integer> send(final HttpRequest.Builder request) {
+        return this.httpClient.sendAsync(request.timeout(this.requestTimeout).build(),
+                        HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+
+    /**
+     * Schedule an attempt, or a debounced DTD update, after the given delay.
+    * @param attempt the attempt to execute
+    * @param delay the delay
+    * @return the scheduled attempt, that can be cancelled
+    */
+    ScheduledFuture<?> schedule(final Runnable attempt, final Duration delay) {
+        return this.scheduler.schedule(attempt, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtain the delay within which the DTD changes are pushed to the Platforms as a single update.
+    * @return the debounce delay
+    */
+    Duration getDTDUpdateDebounce() {
+        return this.dtdUpdateDebounce;
+    }
+
+    /**
+     * Obtain the delay before the next attempt: the initial backoff doubled at each consecutive failure,
+    * up to the maximum backoff, of which a random half is used so that retries to the same Platform
+    * are spread over time.
+    * @param failedAttempts the number of consecutive failed attempts, at least 1
+    * @return the delay
+    */
+    Duration backoff(final int failedAttempts) {
+        final int exponent = Math.min(Math.max(failedAttempts - 1, 0), MAX_BACKOFF_EXPONENT);
+        final long backoffMillis = Math.min(this.maxBackoff.toMillis(), this.initialBackoff.toMillis() << exponent);
+        final long halfBackoffMillis = Math.max(backoffMillis / 2, 1);
+        return Duration.ofMillis(halfBackoffMillis + ThreadLocalRandom.current().nextLong(halfBackoffMillis + 1));
+    }
+}
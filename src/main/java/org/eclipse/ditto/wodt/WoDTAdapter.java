@@ -1,10 +1,14 @@
 package org.eclipse.ditto.wodt;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
-import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTMultiTwinAdapterConfiguration;
 import org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl.WoDTDigitalAdapter;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl.WoDTMultiTwinAdapter;
 
 /*
  * Application entry point.
@@ -16,14 +20,13 @@ public class WoDTAdapter {
             throw new IllegalArgumentException("Ontology, Thing ID, physicalAssetId and Platform URL cannot be null");
         }
 
-        new WoDTDigitalAdapter(
-            new WoDTDigitalAdapterConfiguration(
-                thingId,
-                yamlOntologyPath,         
-                physicalAssetId,
-                Set.of(URI.create(platformUrl))
-            )
-        );
+        // The web server is reachable during the startup, reporting its readiness on /ready.
+        WoDTDigitalAdapter.startAsync(
+            thingId,
+            yamlOntologyPath,
+            physicalAssetId,
+            Set.of(URI.create(platformUrl))
+        ).join();
     }
 
     /**
@@ -43,7 +46,43 @@ public class WoDTAdapter {
         return new WoDTAdapter(thingId, yamlOntologyPath, platformUrl, physicalAssetId);
     }
 
+    /*
+     * Start a single process hosting the Digital Twins of many Ditto Things. The Things listed in THING_IDS
+     * (comma separated) are hosted at startup, the others can be added through the management API.
+     */
+    private static void startMultiTwinAdapter() {
+        String moduleUri = System.getenv("MODULE_URI");
+        String modulePort = System.getenv("MODULE_PORT");
+        if (moduleUri == null || modulePort == null) {
+            System.err.println("Error: Missing required environment variables.");
+            System.exit(1);
+        }
+
+        WoDTMultiTwinAdapter adapter = new WoDTMultiTwinAdapter(
+            new WoDTMultiTwinAdapterConfiguration(moduleUri, Integer.parseInt(modulePort))
+        );
+        String thingIds = System.getenv("THING_IDS");
+        String yamlOntologyPath = System.getenv("YAML_ONTOLOGY_PATH");
+        String platformUrl = System.getenv("PLATFORM_URL");
+        if (thingIds != null && yamlOntologyPath != null) {
+            Set<URI> platforms = platformUrl == null ? Set.of() : Set.of(URI.create(platformUrl));
+            adapter.addDigitalTwins(
+                Arrays.stream(thingIds.split(","))
+                    .map(String::trim)
+                    .filter(thingId -> !thingId.isEmpty())
+                    .collect(Collectors.toList()),
+                yamlOntologyPath,
+                platforms
+            );
+        }
+    }
+
     public static void main(String[] args) {
+        if ("multi".equalsIgnoreCase(System.getenv("ADAPTER_MODE"))) {
+            startMultiTwinAdapter();
+            return;
+        }
+
         String thingId = System.getenv("THING_ID");
         String yamlOntologyPath = System.getenv("YAML_ONTOLOGY_PATH");
         String platformUrl = System.getenv("PLATFORM_URL");
@@ -54,11 +93,17 @@ public class WoDTAdapter {
             System.exit(1);
         }
         
-        WoDTAdapter adapter = WoDTAdapter.create(
-            thingId,
-            yamlOntologyPath,
-            platformUrl,
-            physicalAssetId
-        );
-    }    
+        try {
+            WoDTAdapter adapter = WoDTAdapter.create(
+                thingId,
+                yamlOntologyPath,
+                platformUrl,
+                physicalAssetId
+            );
+        } catch (CompletionException e) {
+            // The web server started during the startup would keep the process alive.
+            System.err.println("Error: Startup failed: " + e.getCause());
+            System.exit(1);
+        }
+    }
 }
\ No newline at end of file
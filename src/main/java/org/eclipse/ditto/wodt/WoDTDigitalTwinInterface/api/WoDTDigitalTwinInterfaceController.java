@@ -16,6 +16,7 @@ package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.api;
  * limitations under the License.
  */
 
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGObserver;
 import org.eclipse.ditto.wodt.common.WebServerController;
 
 import io.javalin.http.Context;
@@ -24,7 +25,7 @@ import io.javalin.websocket.WsConfig;
 /**
  * This interface represent the WoDT Digital Twins Interface controller.
 */
-public interface WoDTDigitalTwinInterfaceController extends WebServerController {
+public interface WoDTDigitalTwinInterfaceController extends WebServerController, DTKGObserver {
     /**
      * Get Digital Twin controller.
     * @param context the javalin context
@@ -33,25 +34,51 @@ public interface WoDTDigitalTwinInterfaceController extends WebServerController
 
     /**
      * Get Digital Twin Knowledge Graph controller.
+    * The format is negotiated with the Accept header: Turtle by default, or N-Triples.
     * @param context the javalin context
     */
     void routeGetDigitalTwinKnowledgeGraph(Context context);
 
     /**
-     * Get Digital Twin Knowledge Graph controller.
+     * Get Digital Twin Knowledge Graph query controller.
+    * It executes a SPARQL SELECT, ASK, CONSTRUCT or DESCRIBE query, sent as the "query" parameter of a GET
+    * or in the body of a POST, over the current DTKG, negotiating the format of the result with the Accept header.
+    * @param context the javalin context
+    */
+    void routeGetDigitalTwinKnowledgeGraphQuery(Context context);
+
+    /**
+     * Get Digital Twin Knowledge Graph events controller.
+    * By default it sends the full DTKG at each update. Clients that connect with the "mode=delta" query parameter
+    * receive a snapshot envelope followed by delta envelopes with the added and removed triples,
+    * and can send a "resync" message to obtain a new snapshot.
     * @param wsContext the javalin context
     */
     void routeGetDigitalTwinKnowledgeGraphEvents(WsConfig wsContext);
 
+    /**
+     * Get Digital Twin Knowledge Graph events clients controller.
+    * It returns, for each client of the DTKG WebSocket, how much it lags behind the broadcast updates.
+    * @param context the javalin context
+    */
+    void routeGetDigitalTwinKnowledgeGraphClients(Context context);
+
     /**
      * Get Digital Twin Descriptor controller.
     * @param context the javalin context
     */
     void routeGetDigitalTwinDescriptor(Context context);
 
+    /**
+     * Get adapter metrics controller.
+    * @param context the javalin context
+    */
+    void routeGetMetrics(Context context);
+
     /**
      * Notify the presence of a new Digital Twin Knowledge Graph.
     * @param newDtkg the new DTKG.
     */
+    @Override
     void notifyNewDTKG(String newDtkg);
 }
\ No newline at end of file
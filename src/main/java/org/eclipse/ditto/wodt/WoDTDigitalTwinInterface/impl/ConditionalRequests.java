@@ -0,0 +1,109 @@
+package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+
+/**
+ * Utility class to handle HTTP validators and conditional GET requests.
+ * Entity tags are built from a version and a prefix chosen at startup, so that they
+ * are never reused across restarts of the adapter.
+*/
+final class ConditionalRequests {
+    private static final String ETAG_PREFIX = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY_ETAG = "*";
+    private static final String GZIP_SUFFIX = "-gzip";
+
+    private ConditionalRequests() { }
+
+    /**
+     * Build the entity tag of a representation.
+    * @param resource the name of the resource
+    * @param version the version of the representation
+    * @return the quoted entity tag
+    */
+    static String entityTag(final String resource, final long version) {
+        return entityTag(resource, version, false);
+    }
+
+    /**
+     * Build the entity tag of a representation that may be sent gzip-encoded. The gzip-encoded variant is
+    * a different representation, so its strong entity tag differs from the one of the identity variant.
+    * @param resource the name of the resource
+    * @param version the version of the representation
+    * @param gzip true if the representation may be sent gzip-encoded
+    * @return the quoted entity tag
+    */
+    static String entityTag(final String resource, final long version, final boolean gzip) {
+        return "\"" + resource + "-" + ETAG_PREFIX + "-" + version + (gzip ? GZIP_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * Set the validators of the representation on the response.
+    * @param context the request context
+    * @param entityTag the entity tag of the representation
+    * @param lastModified the instant of the last modification of the representation
+    */
+    static void setValidators(final Context context, final String entityTag, final Instant lastModified) {
+        context.header(Header.ETAG, entityTag);
+        context.header(Header.LAST_MODIFIED, formatHttpDate(lastModified));
+    }
+
+    /**
+     * Check if the client already has the current representation.
+    * If-None-Match takes precedence over If-Modified-Since, as required by RFC 9110.
+    * @param context the request context
+    * @param entityTag the entity tag of the current representation
+    * @param lastModified the instant of the last modification of the current representation
+    * @return true if the request can be answered with 304 Not Modified
+    */
+    static boolean isNotModified(final Context context, final String entityTag, final Instant lastModified) {
+        final String ifNoneMatch = context.header(Header.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .map(tag -> tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag)
+                    .anyMatch(tag -> ANY_ETAG.equals(tag) || entityTag.equals(tag));
+        }
+        final String ifModifiedSince = context.header(Header.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            try {
+                final Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant();
+                return !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String formatHttpDate(final Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,147 @@
+package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGFormat;
+
+/**
+ * Utility class to choose the format of the Digital Twin Knowledge Graph, or of the result of a query,
+* from the Accept header of a request, or from the subprotocols offered by a WebSocket client.
+*/
+final class ContentNegotiation {
+    private static final String ANY_TYPE = "*/*";
+    private static final String ANY_SUBTYPE = "/*";
+    private static final String QUALITY_PARAMETER = "q=";
+    private static final Map<String, DTKGFormat> WEB_SOCKET_SUBPROTOCOLS = Map.of(
+            "rdf-thrift", DTKGFormat.RDF_THRIFT,
+            "rdf-protobuf", DTKGFormat.RDF_PROTOBUF
+    );
+    private static final List<String> DTKG_MEDIA_TYPES = Arrays.stream(DTKGFormat.values())
+            .map(DTKGFormat::getMediaType)
+            .collect(Collectors.toUnmodifiableList());
+
+    private ContentNegotiation() { }
+
+    /**
+     * Choose the format of the DTKG that the client prefers.
+    * Media ranges are considered in order of quality. Turtle is chosen when there is no Accept header
+    * or none of its media ranges is supported, so that clients that do not negotiate keep working.
+    * @param accept the value of the Accept header, if any
+    * @return the chosen format
+    */
+    static DTKGFormat dtkgFormat(final String accept) {
+        return DTKGFormat.fromMediaType(mediaType(accept, DTKG_MEDIA_TYPES)).orElse(DTKGFormat.TURTLE);
+    }
+
+    /**
+     * Choose, among the supported media types, the one that the client prefers.
+    * Media ranges are considered in order of quality: a range with a wildcard subtype matches the first
+    * supported media type of its type. The default media type is chosen when there is no Accept header
+    * or none of its media ranges is supported.
+    * @param accept the value of the Accept header, if any
+    * @param supportedMediaTypes the supported media types, the default one first
+    * @return the chosen media type
+    */
+    static String mediaType(final String accept, final List<String> supportedMediaTypes) {
+        if (accept == null || accept.isBlank()) {
+            return supportedMediaTypes.get(0);
+        }
+        return Arrays.stream(accept.split(","))
+                .map(MediaRange::parse)
+                .filter(range -> range.quality > 0)
+                .sorted(Comparator.comparingDouble((MediaRange range) -> range.quality).reversed())
+                .map(range -> range.match(supportedMediaTypes))
+                .flatMap(Optional::stream)
+                .findFirst()
+                .orElse(supportedMediaTypes.get(0));
+    }
+
+    /**
+     * Choose the WebSocket subprotocol, i.e. the DTKG format, among the ones offered by the client.
+    * Without a supported subprotocol the client receives Turtle text messages.
+    * @param offered the value of the Sec-WebSocket-Protocol header, if any
+    * @return the first supported subprotocol, if any
+    */
+    static Optional<String> webSocketSubprotocol(final String offered) {
+        if (offered == null) {
+            return Optional.empty();
+        }
+        return Arrays.stream(offered.split(","))
+                .map(String::trim)
+                .filter(WEB_SOCKET_SUBPROTOCOLS::containsKey)
+                .findFirst();
+    }
+
+    /**
+     * Obtain the DTKG format of the WebSocket subprotocol accepted for a client.
+    * @param subprotocol the accepted subprotocol, if any
+    * @return the format of the messages to send to the client
+    */
+    static DTKGFormat webSocketFormat(final String subprotocol) {
+        return WEB_SOCKET_SUBPROTOCOLS.getOrDefault(subprotocol == null ? "" : subprotocol, DTKGFormat.TURTLE);
+    }
+
+    /**
+     * Media range of an Accept header, with its quality.
+    */
+    private static final class MediaRange {
+        private final String mediaType;
+        private final double quality;
+
+        private MediaRange(final String mediaType, final double quality) {
+            this.mediaType = mediaType;
+            this.quality = quality;
+        }
+
+        static MediaRange parse(final String mediaRange) {
+            final String[] parts = mediaRange.split(";");
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                final String parameter = parts[i].trim();
+                if (parameter.startsWith(QUALITY_PARAMETER)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(QUALITY_PARAMETER.length()));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            return new MediaRange(parts[0].trim(), quality);
+        }
+
+        Optional<String> match(final List<String> supportedMediaTypes) {
+            if (ANY_TYPE.equals(this.mediaType)) {
+                return Optional.of(supportedMediaTypes.get(0));
+            } else if (this.mediaType.endsWith(ANY_SUBTYPE)) {
+                final String typePrefix = this.mediaType.substring(0, this.mediaType.length() - 1);
+                return supportedMediaTypes.stream()
+                        .filter(supported -> supported.regionMatches(true, 0, typePrefix, 0, typePrefix.length()))
+                        .findFirst();
+            }
+            return supportedMediaTypes.stream()
+                    .filter(supported -> supported.equalsIgnoreCase(this.mediaType))
+                    .findFirst();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.javalin.compression.Brotli;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
+import io.javalin.config.JavalinConfig;
+
+/**
+ * Compression settings of the WoDT web servers, configured by the HTTP_COMPRESSION, HTTP_COMPRESSION_MIN_SIZE
+* and WS_PERMESSAGE_DEFLATE environment variables.
+* HTTP responses at least as large as the minimum size are compressed with gzip, or with brotli when the client
+* accepts it and brotli4j is available. The current DTD and Turtle DTKG are also kept gzip-compressed,
+* so they are compressed once per version instead of once per client.
+* WebSocket messages are compressed by the permessage-deflate extension, when the client offers it.
+*/
+final class HttpCompression {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpCompression.class);
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    private static final String BROTLI4J_CLASS = "com.aayushatharva.brotli4j.Brotli4jLoader";
+    private static final int DEFAULT_MIN_SIZE = 1500;
+
+    private final Algorithm algorithm;
+    private final int minSize;
+    private final boolean perMessageDeflate;
+
+    /**
+     * Default constructor.
+    * @param algorithm the compression of the HTTP responses
+    * @param minSize the minimum size in bytes of the compressed HTTP responses
+    * @param perMessageDeflate true to accept the permessage-deflate extension on the WebSockets
+    */
+    HttpCompression(final Algorithm algorithm, final int minSize, final boolean perMessageDeflate) {
+        this.algorithm = algorithm;
+        this.minSize = minSize;
+        this.perMessageDeflate = perMessageDeflate;
+    }
+
+    /**
+     * Obtain the compression settings configured in the environment.
+    * @return the settings
+    */
+    static HttpCompression fromEnvironment() {
+        return new HttpCompression(
+                readEnv("HTTP_COMPRESSION")
+                        .map(value -> Algorithm.valueOf(value.toUpperCase(Locale.ROOT)))
+                        .orElse(Algorithm.GZIP),
+                readEnv("HTTP_COMPRESSION_MIN_SIZE").map(Integer::parseInt).orElse(DEFAULT_MIN_SIZE),
+                readEnv("WS_PERMESSAGE_DEFLATE").map(Boolean::parseBoolean).orElse(true)
+        );
+    }
+
+    private static Optional<String> readEnv(final String name) {
+        return Optional.ofNullable(System.getenv(name))
+                .filter(value -> !value.isBlank())
+                .map(String::trim);
+    }
+
+    /**
+     * Apply the settings to the configuration of a Javalin server.
+    * @param config the configuration of the server
+    */
+    void configure(final JavalinConfig config) {
+        if (this.isHttpCompressionEnabled()) {
+            final CompressionStrategy strategy = new CompressionStrategy(
+                    this.algorithm == Algorithm.BROTLI && isBrotliAvailable() ? new Brotli() : null,
+                    new Gzip()
+            );
+            strategy.setDefaultMinSizeForCompression(this.minSize);
+            config.http.customCompression(strategy);
+        } else {
+            config.http.disableCompression();
+        }
+        if (!this.perMessageDeflate) {
+            config.jetty.modifyWebSocketServletFactory(factory ->
+                    factory.getAvailableExtensionNames().remove(PERMESSAGE_DEFLATE));
+        }
+    }
+
+    private static boolean isBrotliAvailable() {
+        try {
+            Class.forName(BROTLI4J_CLASS);
+            return true;
+        } catch (ClassNotFoundException e) {
+            LOGGER.warn("brotli4j is not available, HTTP responses are compressed with gzip only");
+            return false;
+        }
+    }
+
+    /**
+     * Check if the HTTP responses are compressed.
+    * @return false if the compression is disabled
+    */
+    boolean isHttpCompressionEnabled() {
+        return this.algorithm != Algorithm.NONE;
+    }
+
+    /**
+     * Obtain the minimum size of the compressed HTTP responses.
+    * @return the size in bytes
+    */
+    int getMinSize() {
+        return this.minSize;
+    }
+
+    /**
+     * Compression of the HTTP responses.
+    */
+    enum Algorithm {
+        /** Responses are not compressed. */
+        NONE,
+        /** Responses are compressed with gzip. */
+        GZIP,
+        /** Responses are compressed with brotli, or with gzip for the clients that do not accept brotli. */
+        BROTLI
+    }
+}
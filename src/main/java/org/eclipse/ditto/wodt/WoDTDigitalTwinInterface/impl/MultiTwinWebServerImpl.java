@@ -0,0 +1,175 @@
+package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import org.eclipse.ditto.wodt.DTDManager.api.DTDManagerReader;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGEngine;
+import org.eclipse.ditto.wodt.DTKGEngine.impl.CoalescingDTKGObserver;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterface;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.impl.PlatformManagementInterfaceAPIControllerImpl;
+import org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.api.WoDTWebServer;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.ditto.wodt.common.ControllerLookup;
+import org.eclipse.ditto.wodt.common.WebServerController;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.google.gson.JsonParseException;
+
+import io.javalin.Javalin;
+import io.javalin.http.HttpStatus;
+
+/**
+ * WoDT Web server that hosts the WoDT Digital Twin Interface of many Digital Twins on a single port.
+* The resources of each Digital Twin are exposed under its id, e.g. {@code /{twinId}/dtkg} and {@code /{twinId}/dtd}.
+* Routes are registered once with the Digital Twin id as path parameter, so Digital Twins can be added and removed
+* while the server is running.
+*/
+public class MultiTwinWebServerImpl implements WoDTWebServer {
+    private static final String TWIN_ID_PARAM = "twinId";
+    private static final int POLICY_VIOLATION_CLOSE_CODE = 1008;
+    private final int portNumber;
+    private final Duration dtkgNotificationWindow;
+    private final AdapterMetrics metrics;
+    private final HttpCompression compression;
+    private final List<WebServerController> controllers;
+    private final ScheduledExecutorService notifierScheduler;
+    private final Map<String, HostedTwin> hostedTwins;
+
+    /**
+     * Default constructor.
+    * @param portNumber the port number where to expose the API
+    * @param dtkgNotificationWindow the window within which DTKG updates are coalesced before being sent to clients
+    * @param metrics the metrics of the adapter to expose
+    * @param controllers additional controllers whose routes are registered before the Digital Twins ones
+    */
+    public MultiTwinWebServerImpl(
+            final int portNumber,
+            final Duration dtkgNotificationWindow,
+            final AdapterMetrics metrics,
+            final List<WebServerController> controllers
+    ) {
+        this.portNumber = portNumber;
+        this.dtkgNotificationWindow = dtkgNotificationWindow;
+        this.metrics = metrics;
+        this.compression = HttpCompression.fromEnvironment();
+        this.controllers = List.copyOf(controllers);
+        this.notifierScheduler = CoalescingDTKGObserver.newNotifierScheduler();
+        this.hostedTwins = new ConcurrentHashMap<>();
+        this.metrics.gauge("twins.hosted", this.hostedTwins::size);
+    }
+
+    /**
+     * Expose the WoDT Digital Twin Interface of a Digital Twin.
+    * @param twinId the id of the Digital Twin, used as the first segment of its resources path
+    * @param dtkgEngine the DTKGEngine of the Digital Twin
+    * @param dtdManager the DTDManager of the Digital Twin
+    * @param platformManagementInterface the Platform Management Interface of the Digital Twin
+    */
+    public void addDigitalTwin(
+            final String twinId,
+            final DTKGEngine dtkgEngine,
+            final DTDManagerReader dtdManager,
+            final PlatformManagementInterface platformManagementInterface
+    ) {
+        final WoDTDigitalTwinInterfaceControllerImpl controller = new WoDTDigitalTwinInterfaceControllerImpl(
+                "/" + twinId, dtkgEngine, dtdManager, this.metrics, this.compression);
+        final CoalescingDTKGObserver observer = new CoalescingDTKGObserver(
+                controller, dtkgEngine, this.dtkgNotificationWindow, this.notifierScheduler);
+        dtkgEngine.addDTKGObserver(observer);
+        final HostedTwin previous = this.hostedTwins.put(twinId, new HostedTwin(
+                controller, new PlatformManagementInterfaceAPIControllerImpl(
+                        platformManagementInterface, platformManagementInterface), dtkgEngine, observer));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Stop exposing the WoDT Digital Twin Interface of a Digital Twin, closing its WebSockets.
+    * @param twinId the id of the Digital Twin
+    * @return true if the Digital Twin was hosted
+    */
+    public boolean removeDigitalTwin(final String twinId) {
+        final HostedTwin removed = this.hostedTwins.remove(twinId);
+        if (removed != null) {
+            removed.close();
+        }
+        return removed != null;
+    }
+
+    @Override
+    public void start() {
+        final Javalin app = Javalin.create(this.compression::configure).start(this.portNumber);
+        app.exception(JsonMappingException.class, (e, context) -> context.status(HttpStatus.BAD_REQUEST));
+        app.exception(JsonParseException.class, (e, context) -> context.status(HttpStatus.BAD_REQUEST));
+        // Static routes first, so they are not matched as Digital Twin ids.
+        app.get("/metrics", context -> context.json(this.metrics.snapshot()));
+        this.controllers.forEach(controller -> controller.registerRoutes(app));
+        final String twinPath = "/{" + TWIN_ID_PARAM + "}";
+        WoDTDigitalTwinInterfaceControllerImpl.registerRoutes(app, twinPath, this.byTwinId(twin -> twin.controller));
+        PlatformManagementInterfaceAPIControllerImpl.registerRoutes(app, twinPath,
+                this.byTwinId(twin -> twin.platformController));
+    }
+
+    private <C> ControllerLookup<C> byTwinId(final Function<HostedTwin, C> twinController) {
+        return new ControllerLookup<>(
+                pathParams -> Optional.ofNullable(this.hostedTwins.get(pathParams.apply(TWIN_ID_PARAM)))
+                        .map(twinController)
+                        .orElse(null),
+                HttpStatus.NOT_FOUND,
+                POLICY_VIOLATION_CLOSE_CODE,
+                "Unknown Digital Twin"
+        );
+    }
+
+    private static final class HostedTwin {
+        private final WoDTDigitalTwinInterfaceControllerImpl controller;
+        private final PlatformManagementInterfaceAPIControllerImpl platformController;
+        private final DTKGEngine dtkgEngine;
+        private final CoalescingDTKGObserver observer;
+
+        HostedTwin(
+                final WoDTDigitalTwinInterfaceControllerImpl controller,
+                final PlatformManagementInterfaceAPIControllerImpl platformController,
+                final DTKGEngine dtkgEngine,
+                final CoalescingDTKGObserver observer
+        ) {
+            this.controller = controller;
+            this.platformController = platformController;
+            this.dtkgEngine = dtkgEngine;
+            this.observer = observer;
+        }
+
+        /*
+         * Stop notifying the DTKG updates of the Digital Twin, including the pending coalesced one,
+         * and close its WebSockets.
+         */
+        void close() {
+            this.dtkgEngine.removeDTKGObserver(this.observer);
+            this.observer.close();
+            this.controller.closeWebSockets();
+        }
+    }
+}
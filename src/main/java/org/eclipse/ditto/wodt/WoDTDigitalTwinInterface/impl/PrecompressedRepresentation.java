@@ -0,0 +1,110 @@
+package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+
+/**
+ * Gzip-compressed copy of the current version of a representation, e.g. the DTD or the Turtle DTKG,
+* so that it is compressed once per version instead of once per client.
+*/
+final class PrecompressedRepresentation {
+    private static final String GZIP = "gzip";
+    private static final String ANY_ENCODING = "*";
+    private volatile Compressed compressed;
+
+    /**
+     * Send the representation as the result of a request, gzip-compressed when the client accepts it
+    * and the representation is large enough.
+    * @param context the request context
+    * @param compression the compression settings
+    * @param version the version of the representation
+    * @param representation the representation
+    */
+    void result(
+            final Context context,
+            final HttpCompression compression,
+            final long version,
+            final String representation
+    ) {
+        if (compression.isHttpCompressionEnabled()
+                && representation.length() >= compression.getMinSize()
+                && acceptsGzip(context)) {
+            // The Content-Encoding header prevents Javalin from compressing the result again.
+            context.header(Header.CONTENT_ENCODING, GZIP);
+            context.result(this.get(version, representation));
+        } else {
+            context.result(representation);
+        }
+    }
+
+    private byte[] get(final long version, final String representation) {
+        final Compressed current = this.compressed;
+        if (current != null && current.version == version) {
+            return current.bytes;
+        }
+        final Compressed updated = new Compressed(version, gzip(representation));
+        this.compressed = updated;
+        return updated.bytes;
+    }
+
+    private static byte[] gzip(final String representation) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(representation.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Check if the client accepts gzip-compressed responses.
+    * @param context the request context
+    * @return true if the Accept-Encoding header includes gzip, or any coding, without a zero quality
+    */
+    static boolean acceptsGzip(final Context context) {
+        final String acceptEncoding = context.header(Header.ACCEPT_ENCODING);
+        return acceptEncoding != null && Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.split(";"))
+                .filter(coding -> GZIP.equalsIgnoreCase(coding[0].trim()) || ANY_ENCODING.equals(coding[0].trim()))
+                .anyMatch(coding -> Arrays.stream(coding).skip(1)
+                        .map(String::trim)
+                        .noneMatch(parameter -> parameter.matches("q=0(\\.0*)?")));
+    }
+
+    /**
+     * Compressed representation of a given version.
+    */
+    private static final class Compressed {
+        private final long version;
+        private final byte[] bytes;
+
+        Compressed(final long version, final byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.javalin.websocket.WsContext;
+
+/**
+ * Broadcaster of the messages of the DTKG WebSocket to a group of clients.
+* A broadcast message is appended once to a log shared by all the clients, so broadcasting costs the same
+* whatever the number of clients, and binary messages are sent from the same buffer to every client. Each client sends the messages of the log from its own position,
+* asynchronously and one at a time, so a slow client never delays the others or the caller.
+* A client that lags behind more than the queue capacity is a slow consumer: according to the overflow policy,
+* the messages it did not send yet are dropped except the latest one, or it is disconnected.
+* The default queue capacity is configured by the WS_CLIENT_QUEUE_CAPACITY environment variable.
+*/
+final class WebSocketBroadcaster {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketBroadcaster.class);
+    private static final int SLOW_CONSUMER_CLOSE_CODE = 1013;
+    private static final long DEFAULT_QUEUE_CAPACITY = 64;
+    private static Executor sharedExecutor;
+
+    private final OverflowPolicy overflowPolicy;
+    private final long queueCapacity;
+    private final Executor executor;
+    private final Map<String, Client> clients;
+    private final LongAdder sentMessages;
+    private final LongAdder droppedMessages;
+    private final LongAdder evictedClients;
+    private final AdapterMetrics.Timer sendLatency;
+    private volatile Message tail;
+
+    /**
+     * Default constructor, with the default queue capacity and the executor shared by the process.
+    * @param overflowPolicy what to do with a client that lags behind more than the queue capacity
+    * @param metrics the metrics of the adapter
+    */
+    WebSocketBroadcaster(final OverflowPolicy overflowPolicy, final AdapterMetrics metrics) {
+        this(overflowPolicy, defaultQueueCapacity(), getSharedExecutor(), metrics);
+    }
+
+    /**
+     * Constructor that allows to choose the queue capacity and the executor.
+    * @param overflowPolicy what to do with a client that lags behind more than the queue capacity
+    * @param queueCapacity the maximum number of messages that a client can lag behind
+    * @param executor the executor where the clients send their messages
+    * @param metrics the metrics of the adapter
+    */
+    WebSocketBroadcaster(
+            final OverflowPolicy overflowPolicy,
+            final long queueCapacity,
+            final Executor executor,
+            final AdapterMetrics metrics
+    ) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The WebSocket client queue capacity must be positive");
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.queueCapacity = queueCapacity;
+        this.executor = executor;
+        this.clients = new ConcurrentHashMap<>();
+        this.sentMessages = metrics.counter("websocket.sent");
+        this.droppedMessages = metrics.counter("websocket.dropped");
+        this.evictedClients = metrics.counter("websocket.evicted");
+        this.sendLatency = metrics.timer("websocket.send.latency");
+        this.tail = new Message(0, null, null, null);
+    }
+
+    private static long defaultQueueCapacity() {
+        return Optional.ofNullable(System.getenv("WS_CLIENT_QUEUE_CAPACITY"))
+                .filter(value -> !value.isBlank())
+                .map(value -> Long.parseLong(value.trim()))
+                .orElse(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    private static synchronized Executor getSharedExecutor() {
+        if (sharedExecutor == null) {
+            // Sends are asynchronous, so the threads only hand the messages to the WebSockets.
+            sharedExecutor = Executors.newFixedThreadPool(
+                    Math.max(2, Runtime.getRuntime().availableProcessors()),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "dtkg-websocket");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * Add a client, that will receive the messages broadcast from now on.
+    * @param context the WebSocket of the client
+    */
+    void addClient(final WsContext context) {
+        final Message position;
+        synchronized (this) {
+            position = this.tail;
+        }
+        this.clients.put(context.sessionId(), new Client(context, position));
+    }
+
+    /**
+     * Remove a client, e.g. when its WebSocket is closed.
+    * @param context the WebSocket of the client
+    */
+    void removeClient(final WsContext context) {
+        final Client client = this.clients.remove(context.sessionId());
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * Check if a client belongs to this broadcaster.
+    * @param context the WebSocket of the client
+    * @return true if the client has been added
+    */
+    boolean contains(final WsContext context) {
+        return this.clients.containsKey(context.sessionId());
+    }
+
+    /**
+     * Check if there are clients to which the messages are broadcast.
+    * @return true if there is no client
+    */
+    boolean isEmpty() {
+        return this.clients.isEmpty();
+    }
+
+    /**
+     * Send a message to a single client, e.g. a snapshot, before the broadcast messages it has not sent yet.
+    * A message not yet sent is replaced, as it is superseded by the new one.
+    * @param context the WebSocket of the client
+    * @param message the message
+    */
+    void send(final WsContext context, final String message) {
+        this.send(context, new Message(0, message, null, null));
+    }
+
+    /**
+     * Send a binary message to a single client, e.g. a snapshot, before the broadcast messages it has not sent yet.
+    * A message not yet sent is replaced, as it is superseded by the new one.
+    * @param context the WebSocket of the client
+    * @param message the binary message, that must not be modified afterwards
+    */
+    void send(final WsContext context, final ByteBuffer message) {
+        this.send(context, new Message(0, null, message, null));
+    }
+
+    private void send(final WsContext context, final Message message) {
+        final Client client = this.clients.get(context.sessionId());
+        if (client != null) {
+            client.enqueueDirect(message);
+            client.drain();
+        }
+    }
+
+    /**
+     * Broadcast a message to all the clients. The message is appended to the shared log and the clients
+    * send it asynchronously, so the caller never waits for the WebSockets.
+    * @param message the message
+    */
+    void broadcast(final String message) {
+        this.broadcast(message, null);
+    }
+
+    /**
+     * Broadcast a binary message to all the clients, that send it from the same buffer.
+    * @param message the binary message, that must not be modified afterwards
+    */
+    void broadcast(final ByteBuffer message) {
+        this.broadcast(null, message);
+    }
+
+    private void broadcast(final String text, final ByteBuffer binary) {
+        synchronized (this) {
+            final Message previous = this.tail;
+            final Message appended = new Message(previous.index + 1, text, binary, null);
+            previous.next = appended;
+            this.tail = appended;
+        }
+        if (!this.clients.isEmpty()) {
+            this.executor.execute(this::drainClients);
+        }
+    }
+
+    /**
+     * Close the WebSockets of all the clients.
+    */
+    void closeAll() {
+        new ArrayList<>(this.clients.values()).forEach(client -> {
+            this.clients.remove(client.context.sessionId());
+            client.close();
+            if (client.context.session.isOpen()) {
+                client.context.closeSession();
+            }
+        });
+    }
+
+    /**
+     * Obtain the state of the clients, to monitor how much each of them lags behind.
+    * @return for each client, its session id, the number of messages it has not sent yet, the age of the oldest
+    *     of them, the number of sent and dropped messages and the time of the last sent message
+    */
+    List<Map<String, Object>> getClientStates() {
+        final List<Map<String, Object>> states = new ArrayList<>();
+        this.clients.values().forEach(client -> states.add(client.state()));
+        return states;
+    }
+
+    private void drainClients() {
+        this.clients.values().forEach(Client::drain);
+    }
+
+    private void evict(final Client client) {
+        if (this.clients.remove(client.context.sessionId(), client)) {
+            this.evictedClients.increment();
+            LOGGER.warn("Disconnecting slow WebSocket client {}", client.context.sessionId());
+            if (client.context.session.isOpen()) {
+                client.context.closeSession(SLOW_CONSUMER_CLOSE_CODE, "Slow consumer");
+            }
+        }
+    }
+
+    /**
+     * What to do with a client that lags behind more than the queue capacity.
+    */
+    enum OverflowPolicy {
+        /** Drop the messages not yet sent except the latest one, e.g. when each message supersedes the previous. */
+        DROP_OLDEST,
+        /** Disconnect the client, e.g. when each message depends on the previous ones. */
+        DISCONNECT
+    }
+
+    /**
+     * Text or binary message, that is also a node of the log of the broadcast messages.
+    * The nodes already sent by every client are garbage collected.
+    */
+    private static final class Message {
+        private final long index;
+        private final String text;
+        private final ByteBuffer binary;
+        private final long enqueuedNanos;
+        private volatile Message next;
+
+        Message(final long index, final String text, final ByteBuffer binary, final Message next) {
+            this(index, text, binary, System.nanoTime(), next);
+        }
+
+        Message(final long index, final String text, final ByteBuffer binary, final long enqueuedNanos,
+                final Message next) {
+            this.index = index;
+            this.text = text;
+            this.binary = binary;
+            this.enqueuedNanos = enqueuedNanos;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Client of the broadcaster, with its position in the log and its direct messages.
+    * At most one message is being sent at a time.
+    */
+    private final class Client implements WriteCallback {
+        private final WsContext context;
+        private final Deque<Message> directMessages;
+        private Message position;
+        private Message sending;
+        private boolean closed;
+        private long sent;
+        private long dropped;
+        private Instant lastSent;
+
+        Client(final WsContext context, final Message position) {
+            this.context = context;
+            this.directMessages = new ArrayDeque<>();
+            this.position = position;
+        }
+
+        synchronized void enqueueDirect(final Message message) {
+            this.dropped += this.directMessages.size();
+            droppedMessages.add(this.directMessages.size());
+            this.directMessages.clear();
+            this.directMessages.add(message);
+        }
+
+        void drain() {
+            final Message message;
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                final long lag = tail.index - this.position.index;
+                if (lag > queueCapacity) {
+                    if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                        this.closed = true;
+                        message = null;
+                    } else {
+                        // Only the latest message is kept, positioning the client just before it.
+                        final Message latest = tail;
+                        this.dropped += lag - 1;
+                        droppedMessages.add(lag - 1);
+                        this.position = new Message(latest.index - 1, null, null, latest.enqueuedNanos, latest);
+                        message = this.next();
+                    }
+                } else {
+                    message = this.next();
+                }
+                if (message != null) {
+                    this.sending = message;
+                }
+            }
+            if (this.isClosed()) {
+                evict(this);
+            } else if (message != null) {
+                try {
+                    if (message.binary != null) {
+                        // Each client reads the shared buffer through its own position.
+                        this.context.session.getRemote().sendBytes(message.binary.duplicate(), this);
+                    } else {
+                        this.context.session.getRemote().sendString(message.text, this);
+                    }
+                } catch (final RuntimeException e) {
+                    this.writeFailed(e);
+                }
+            }
+        }
+
+        private Message next() {
+            if (this.sending != null) {
+                return null;
+            }
+            if (!this.directMessages.isEmpty()) {
+                return this.directMessages.poll();
+            }
+            final Message next = this.position.next;
+            if (next != null) {
+                this.position = next;
+            }
+            return next;
+        }
+
+        @Override
+        public void writeSuccess() {
+            final long enqueuedNanos;
+            final boolean pending;
+            synchronized (this) {
+                enqueuedNanos = this.sending.enqueuedNanos;
+                this.sending = null;
+                this.sent++;
+                this.lastSent = Instant.now();
+                pending = !this.directMessages.isEmpty() || this.position.next != null;
+            }
+            sentMessages.increment();
+            sendLatency.recordSince(enqueuedNanos);
+            if (pending) {
+                executor.execute(this::drain);
+            }
+        }
+
+        @Override
+        public void writeFailed(final Throwable error) {
+            LOGGER.debug("Failed to send a message to WebSocket client {}", this.context.sessionId(), error);
+            synchronized (this) {
+                this.sending = null;
+            }
+            removeClient(this.context);
+        }
+
+        synchronized void close() {
+            this.closed = true;
+            this.directMessages.clear();
+        }
+
+        synchronized boolean isClosed() {
+            return this.closed;
+        }
+
+        synchronized Map<String, Object> state() {
+            final Message oldest = !this.directMessages.isEmpty() ? this.directMessages.peek() : this.position.next;
+            final Map<String, Object> state = new LinkedHashMap<>();
+            state.put("id", this.context.sessionId());
+            state.put("pending", this.directMessages.size() + tail.index - this.position.index);
+            state.put("lagMs", oldest == null
+                    ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedNanos));
+            state.put("sent", this.sent);
+            state.put("dropped", this.dropped);
+            state.put("lastSent", this.lastSent == null ? null : this.lastSent.toString());
+            return state;
+        }
+    }
+}
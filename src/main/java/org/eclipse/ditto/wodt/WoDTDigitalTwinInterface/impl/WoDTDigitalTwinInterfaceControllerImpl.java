@@ -16,98 +16,477 @@ package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
  * limitations under the License.
  */
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.ditto.wodt.DTDManager.api.DTDManagerReader;
 import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGEngineReader;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGFormat;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGQueryResult;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGUpdate;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGVersion;
 import org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.api.WoDTDigitalTwinInterfaceController;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.ditto.wodt.common.ControllerLookup;
 import org.eclipse.ditto.wodt.model.ontology.WoDTVocabulary;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
 import io.javalin.http.Header;
 import io.javalin.http.HttpStatus;
+import io.javalin.websocket.WsCloseContext;
 import io.javalin.websocket.WsConfig;
+import io.javalin.websocket.WsConnectContext;
 import io.javalin.websocket.WsContext;
+import io.javalin.websocket.WsMessageContext;
 
 /**
  * Implementation of the controller for the WoDT Digital Twins Interface component of the Abstract Architecture.
 */
 final class WoDTDigitalTwinInterfaceControllerImpl implements WoDTDigitalTwinInterfaceController {
+    private static final String MODE_QUERY_PARAM = "mode";
+    private static final String DELTA_MODE = "delta";
+    private static final String RESYNC_MESSAGE = "resync";
+    private static final String SEC_WEBSOCKET_PROTOCOL = "Sec-WebSocket-Protocol";
+    private static final String QUERY_PARAM = "query";
+    private static final String SPARQL_QUERY_CONTENT_TYPE = "application/sparql-query";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private final String basePath;
     private final DTKGEngineReader dtkgEngine;
     private final DTDManagerReader dtdManager;
-    private final Set<WsContext> webSockets;
+    private final AdapterMetrics metrics;
+    private final HttpCompression compression;
+    private final PrecompressedRepresentation precompressedDTKG;
+    private final PrecompressedRepresentation precompressedDTD;
+    private final WebSocketBroadcaster webSockets;
+    private final WebSocketBroadcaster deltaWebSockets;
+    private final Map<DTKGFormat, WebSocketBroadcaster> binaryWebSockets;
 
     /**
     * Default constructor.
     * @param dtkgEngine the DTKG Engine
     * @param dtdManager the DTD Manager
+    * @param metrics the metrics of the adapter
+    * @param compression the compression settings of the server
+    */
+    WoDTDigitalTwinInterfaceControllerImpl(
+            final DTKGEngineReader dtkgEngine,
+            final DTDManagerReader dtdManager,
+            final AdapterMetrics metrics,
+            final HttpCompression compression
+    ) {
+        this("", dtkgEngine, dtdManager, metrics, compression);
+    }
+
+    /**
+     * Constructor for a Digital Twin whose resources are exposed under a base path,
+    * e.g. when a process hosts many Digital Twins.
+    * @param basePath the path prefix of the Digital Twin resources, without the trailing slash
+    * @param dtkgEngine the DTKG Engine
+    * @param dtdManager the DTD Manager
+    * @param metrics the metrics of the adapter
+    * @param compression the compression settings of the server
     */
     WoDTDigitalTwinInterfaceControllerImpl(
+            final String basePath,
             final DTKGEngineReader dtkgEngine,
-            final DTDManagerReader dtdManager
+            final DTDManagerReader dtdManager,
+            final AdapterMetrics metrics,
+            final HttpCompression compression
     ) {
+        this.basePath = basePath;
         this.dtkgEngine = dtkgEngine;
         this.dtdManager = dtdManager;
-        this.webSockets = Collections.synchronizedSet(new HashSet<>());
+        this.metrics = metrics;
+        this.compression = compression;
+        this.precompressedDTKG = new PrecompressedRepresentation();
+        this.precompressedDTD = new PrecompressedRepresentation();
+        // Each full DTKG supersedes the previous ones, while a delta client that misses a delta must resync.
+        this.webSockets = new WebSocketBroadcaster(WebSocketBroadcaster.OverflowPolicy.DROP_OLDEST, metrics);
+        this.deltaWebSockets = new WebSocketBroadcaster(WebSocketBroadcaster.OverflowPolicy.DISCONNECT, metrics);
+        this.binaryWebSockets = new EnumMap<>(DTKGFormat.class);
+        this.binaryWebSockets.put(DTKGFormat.RDF_THRIFT,
+                new WebSocketBroadcaster(WebSocketBroadcaster.OverflowPolicy.DROP_OLDEST, metrics));
+        this.binaryWebSockets.put(DTKGFormat.RDF_PROTOBUF,
+                new WebSocketBroadcaster(WebSocketBroadcaster.OverflowPolicy.DROP_OLDEST, metrics));
     }
 
     @Override
     public void routeGetDigitalTwin(final Context context) {
-        context.header(Header.LOCATION, "/dtkg");
+        context.header(Header.LOCATION, this.basePath + "/dtkg");
         context.status(HttpStatus.SEE_OTHER);
     }
 
     @Override
     public void routeGetDigitalTwinKnowledgeGraph(final Context context) {
-        final String dtkg = this.dtkgEngine.getCurrentDigitalTwinKnowledgeGraph();
-        if (dtkg.isBlank()) {
-            context.status(HttpStatus.NO_CONTENT);
-        } else {
-            context.status(HttpStatus.OK);
-            context.header(Header.CONTENT_TYPE, "text/turtle");
-            context.result(dtkg);
+        context.header(Header.LINK, "<" + this.basePath + "/dtd>; rel=\"" + WoDTVocabulary.HAS_DESCRIPTOR + "\"");
+        context.header(Header.VARY, Header.ACCEPT + ", " + Header.ACCEPT_ENCODING);
+        final DTKGFormat format = ContentNegotiation.dtkgFormat(context.header(Header.ACCEPT));
+        // The gzip-encoded variant, precompressed or compressed by Javalin, has its own entity tag.
+        final boolean gzip = this.isGzipEncoded(context);
+        // The precompressed Turtle is read together with its sequence number, so the entity tag matches the body.
+        // Otherwise the sequence number is read before the graph, so the entity tag is never more recent than it.
+        final Optional<DTKGVersion> version = format == DTKGFormat.TURTLE && gzip
+                ? Optional.of(this.dtkgEngine.getCurrentDTKGVersion())
+                : Optional.empty();
+        final long sequenceNumber = version.map(DTKGVersion::getSequenceNumber)
+                .orElseGet(this.dtkgEngine::getCurrentSequenceNumber);
+        final String entityTag = ConditionalRequests.entityTag(
+                "dtkg-" + format.name().toLowerCase(Locale.ROOT),
+                sequenceNumber,
+                gzip
+        );
+        final Instant lastModified = this.dtkgEngine.getLastModified();
+        ConditionalRequests.setValidators(context, entityTag, lastModified);
+        if (ConditionalRequests.isNotModified(context, entityTag, lastModified)) {
+            context.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+        if (version.isPresent()) {
+            // The Turtle serialization is cached for each version, so it is also compressed once per version.
+            final String dtkg = version.get().getDigitalTwinKnowledgeGraph();
+            if (dtkg.isBlank()) {
+                context.status(HttpStatus.NO_CONTENT);
+            } else {
+                context.status(HttpStatus.OK);
+                context.header(Header.CONTENT_TYPE, format.getMediaType());
+                this.precompressedDTKG.result(context, this.compression, sequenceNumber, dtkg);
+            }
+            return;
+        }
+        try {
+            // The graph is serialized straight into the response, that Javalin compresses when the client accepts it.
+            final boolean written = this.dtkgEngine.writeCurrentDigitalTwinKnowledgeGraph(() -> {
+                context.status(HttpStatus.OK);
+                context.header(Header.CONTENT_TYPE, format.getMediaType());
+                return context.outputStream();
+            }, format);
+            if (!written) {
+                context.status(HttpStatus.NO_CONTENT);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void routeGetDigitalTwinKnowledgeGraphQuery(final Context context) {
+        final long startNanos = System.nanoTime();
+        try {
+            final String query = sparqlQuery(context);
+            if (query == null || query.isBlank()) {
+                context.status(HttpStatus.BAD_REQUEST).result("Missing SPARQL query");
+                return;
+            }
+            final DTKGQueryResult result;
+            try {
+                result = this.dtkgEngine.query(query);
+            } catch (IllegalArgumentException e) {
+                context.status(HttpStatus.BAD_REQUEST).result(e.getMessage());
+                return;
+            }
+            context.header(Header.VARY, Header.ACCEPT + ", " + Header.ACCEPT_ENCODING);
+            final String mediaType = ContentNegotiation.mediaType(context.header(Header.ACCEPT), result.getMediaTypes());
+            this.writeQueryResult(context, result, mediaType);
+        } finally {
+            this.metrics.timer("sparql.query").recordSince(startNanos);
+        }
+    }
+
+    /*
+     * Obtain the query of a SPARQL protocol request: the query parameter of a GET, or the body of a POST,
+     * sent directly or URL-encoded.
+     */
+    private static String sparqlQuery(final Context context) {
+        if (context.method() == HandlerType.POST) {
+            final String contentType = context.contentType();
+            return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(SPARQL_QUERY_CONTENT_TYPE)
+                    ? context.body()
+                    : context.formParam(QUERY_PARAM);
+        }
+        return context.queryParam(QUERY_PARAM);
+    }
+
+    private void writeQueryResult(final Context context, final DTKGQueryResult result, final String mediaType) {
+        final boolean[] started = {false};
+        try {
+            // The result is streamed into the response while the query is executed.
+            result.write(() -> {
+                started[0] = true;
+                context.status(HttpStatus.OK);
+                context.header(Header.CONTENT_TYPE, mediaType);
+                return context.outputStream();
+            }, mediaType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (TimeoutException e) {
+            this.metrics.counter("sparql.timeouts").increment();
+            if (started[0]) {
+                // Part of the result has already been sent, so the response can only be aborted.
+                throw new UncheckedIOException(new InterruptedIOException(e.getMessage()));
+            }
+            context.status(HttpStatus.SERVICE_UNAVAILABLE).result(e.getMessage());
         }
-        context.header(Header.LINK, "</dtd>; rel=\"" + WoDTVocabulary.HAS_DESCRIPTOR + "\"");
     }
 
     @Override
     public void routeGetDigitalTwinKnowledgeGraphEvents(final WsConfig wsContext) {
-        wsContext.onConnect(context -> {
-            context.enableAutomaticPings();
-            this.webSockets.add(context);
-            if (context.session.isOpen()) {
-                context.send(this.dtkgEngine.getCurrentDigitalTwinKnowledgeGraph());
+        wsContext.onConnect(this::onWebSocketConnect);
+        wsContext.onMessage(this::onWebSocketMessage);
+        wsContext.onClose(this::onWebSocketClose);
+    }
+
+    /*
+     * Accept, before the upgrade of a DTKG WebSocket, the subprotocol of a binary format offered by the client.
+     * Delta clients receive JSON envelopes, so no subprotocol is accepted for them.
+     */
+    static void routeBeforeWebSocketUpgrade(final Context context) {
+        if (!DELTA_MODE.equals(context.queryParam(MODE_QUERY_PARAM))) {
+            ContentNegotiation.webSocketSubprotocol(context.header(SEC_WEBSOCKET_PROTOCOL))
+                    .ifPresent(subprotocol -> context.header(SEC_WEBSOCKET_PROTOCOL, subprotocol));
+        }
+    }
+
+    void onWebSocketConnect(final WsConnectContext context) {
+        context.enableAutomaticPings();
+        if (DELTA_MODE.equals(context.queryParam(MODE_QUERY_PARAM))) {
+            this.deltaWebSockets.addClient(context);
+        } else {
+            this.fullWebSockets(webSocketFormat(context)).addClient(context);
+        }
+        this.sendSnapshot(context);
+    }
+
+    void onWebSocketMessage(final WsMessageContext context) {
+        if (RESYNC_MESSAGE.equals(context.message().trim())) {
+            this.sendSnapshot(context);
+        }
+    }
+
+    void onWebSocketClose(final WsCloseContext context) {
+        this.webSockets.removeClient(context);
+        this.deltaWebSockets.removeClient(context);
+        this.binaryWebSockets.values().forEach(broadcaster -> broadcaster.removeClient(context));
+    }
+
+    /*
+     * Close the WebSockets of the clients, e.g. when the Digital Twin is no more hosted.
+     */
+    void closeWebSockets() {
+        this.webSockets.closeAll();
+        this.deltaWebSockets.closeAll();
+        this.binaryWebSockets.values().forEach(WebSocketBroadcaster::closeAll);
+    }
+
+    private static DTKGFormat webSocketFormat(final WsContext context) {
+        return ContentNegotiation.webSocketFormat(context.session.getUpgradeResponse().getAcceptedSubProtocol());
+    }
+
+    private WebSocketBroadcaster fullWebSockets(final DTKGFormat format) {
+        return this.binaryWebSockets.getOrDefault(format, this.webSockets);
+    }
+
+    /*
+     * Encode the current DTKG in a binary format, once for all the clients to which it is sent.
+     */
+    private ByteBuffer encode(final DTKGFormat format) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            this.dtkgEngine.writeCurrentDigitalTwinKnowledgeGraph(() -> output, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(output.toByteArray()).asReadOnlyBuffer();
+    }
+
+    /*
+     * Encode the DTKG of an update in a binary format, so that it is the graph at the sequence number of the update
+     * even if following updates have already been written.
+     */
+    private ByteBuffer encode(final DTKGUpdate update, final DTKGFormat format) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            this.dtkgEngine.writeDigitalTwinKnowledgeGraph(update, () -> output, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(output.toByteArray()).asReadOnlyBuffer();
+    }
+
+    private void sendSnapshot(final WsContext context) {
+        if (context.session.isOpen()) {
+            if (this.deltaWebSockets.contains(context)) {
+                // The graph is read together with its sequence number, to which the following deltas are aligned.
+                final DTKGVersion version = this.dtkgEngine.getCurrentDTKGVersion();
+                this.deltaWebSockets.send(context,
+                        snapshotMessage(version.getSequenceNumber(), version.getDigitalTwinKnowledgeGraph()));
+            } else {
+                final DTKGFormat format = webSocketFormat(context);
+                if (format == DTKGFormat.TURTLE) {
+                    this.webSockets.send(context, this.dtkgEngine.getCurrentDigitalTwinKnowledgeGraph());
+                } else {
+                    this.fullWebSockets(format).send(context, this.encode(format));
+                }
             }
-        });
-        wsContext.onClose(webSockets::remove);
+        }
+    }
+
+    private static String snapshotMessage(final long sequenceNumber, final String dtkg) {
+        return OBJECT_MAPPER.createObjectNode()
+                .put("type", "snapshot")
+                .put("sequence", sequenceNumber)
+                .put("dtkg", dtkg)
+                .toString();
     }
 
     @Override
     public void routeGetDigitalTwinDescriptor(final Context context) {
-        final String dtd = this.dtdManager.getDTD().toJson();
+        context.header(Header.LINK, "<" + this.basePath + "/dtkg>; rel=\"" + WoDTVocabulary.CURRENT_STATUS + "\"");
+        context.header(Header.VARY, Header.ACCEPT_ENCODING);
+        final long dtdVersion = this.dtdManager.getDTDVersion();
+        final String entityTag = ConditionalRequests.entityTag("dtd", dtdVersion, this.isGzipEncoded(context));
+        final Instant lastModified = this.dtdManager.getDTDLastModified();
+        ConditionalRequests.setValidators(context, entityTag, lastModified);
+        if (ConditionalRequests.isNotModified(context, entityTag, lastModified)) {
+            context.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+        final String dtd = this.dtdManager.getDTDJson();
         if (dtd.isBlank()) {
             context.status(HttpStatus.NO_CONTENT);
         } else {
             context.status(HttpStatus.OK);
             context.header(Header.CONTENT_TYPE, "application/td+json");
-            context.result(dtd);
+            this.precompressedDTD.result(context, this.compression, dtdVersion, dtd);
+        }
+    }
+
+    /*
+     * Check if the response to a request may be gzip-encoded, so that it is a different representation.
+     */
+    private boolean isGzipEncoded(final Context context) {
+        return this.compression.isHttpCompressionEnabled() && PrecompressedRepresentation.acceptsGzip(context);
+    }
+
+    @Override
+    public void routeGetDigitalTwinKnowledgeGraphClients(final Context context) {
+        final List<Map<String, Object>> clients = new ArrayList<>();
+        this.webSockets.getClientStates().forEach(state -> clients.add(withMode(state, "full", DTKGFormat.TURTLE)));
+        this.binaryWebSockets.forEach((format, broadcaster) -> broadcaster.getClientStates()
+                .forEach(state -> clients.add(withMode(state, "full", format))));
+        this.deltaWebSockets.getClientStates().forEach(state -> clients.add(withMode(state, DELTA_MODE, null)));
+        context.json(clients);
+    }
+
+    private static Map<String, Object> withMode(
+            final Map<String, Object> clientState,
+            final String mode,
+            final DTKGFormat format
+    ) {
+        final Map<String, Object> state = new LinkedHashMap<>(clientState);
+        state.put(MODE_QUERY_PARAM, mode);
+        if (format != null) {
+            state.put("format", format.getMediaType());
         }
-        context.header(Header.LINK, "</dtkg>; rel=\"" + WoDTVocabulary.CURRENT_STATUS + "\"");
+        return state;
+    }
+
+    @Override
+    public void routeGetMetrics(final Context context) {
+        context.json(this.metrics.snapshot());
     }
 
     @Override
     public void notifyNewDTKG(final String newDtkg) {
-        this.webSockets.stream().filter(ctx -> ctx.session.isOpen()).forEach(session -> session.send(newDtkg));
+        this.webSockets.broadcast(newDtkg);
+    }
+
+    @Override
+    public boolean requiresTriples() {
+        return !this.deltaWebSockets.isEmpty();
+    }
+
+    @Override
+    public void notifyDTKGUpdate(final DTKGUpdate update) {
+        if (!this.deltaWebSockets.isEmpty() && !update.hasTriples()) {
+            // The update has been written before the first delta client connected, so it is sent as a snapshot.
+            this.deltaWebSockets.broadcast(
+                    snapshotMessage(update.getSequenceNumber(), update.getDigitalTwinKnowledgeGraph()));
+        } else if (!this.deltaWebSockets.isEmpty()) {
+            final ObjectNode delta = OBJECT_MAPPER.createObjectNode()
+                    .put("type", "delta")
+                    .put("sequence", update.getSequenceNumber());
+            final ArrayNode addedTriples = delta.putArray("added");
+            final ArrayNode removedTriples = delta.putArray("removed");
+            update.getAddedTriples().forEach(addedTriples::add);
+            update.getRemovedTriples().forEach(removedTriples::add);
+            this.deltaWebSockets.broadcast(delta.toString());
+        }
+        if (!this.webSockets.isEmpty()) {
+            this.notifyNewDTKG(update.getDigitalTwinKnowledgeGraph());
+        }
+        this.binaryWebSockets.forEach((format, broadcaster) -> {
+            if (!broadcaster.isEmpty()) {
+                broadcaster.broadcast(this.encode(update, format));
+            }
+        });
     }
 
     @Override
     public void registerRoutes(final Javalin app) {
-        app.get("/", this::routeGetDigitalTwin);
-        app.get("/dtkg", this::routeGetDigitalTwinKnowledgeGraph);
-        app.get("/dtd", this::routeGetDigitalTwinDescriptor);
-        app.ws("/dtkg", this::routeGetDigitalTwinKnowledgeGraphEvents);
+        app.get("/metrics", this::routeGetMetrics);
+        registerRoutes(app, "", ControllerLookup.of(this));
+    }
+
+    /**
+     * Register the routes of the WoDT Digital Twin Interface, handled by the controller obtained for each request.
+    * The adapter metrics are not part of the interface of a Digital Twin, so they are registered by the server.
+    * @param app the Javalin app where to register routes
+    * @param pathPrefix the prefix of the paths of the routes, e.g. the id of the Digital Twin as path parameter
+    * @param controllers the lookup of the controller of each request
+    */
+    static void registerRoutes(
+            final Javalin app,
+            final String pathPrefix,
+            final ControllerLookup<WoDTDigitalTwinInterfaceControllerImpl> controllers
+    ) {
+        app.get(pathPrefix.isEmpty() ? "/" : pathPrefix, context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeGetDigitalTwin(context)));
+        app.get(pathPrefix + "/dtkg", context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeGetDigitalTwinKnowledgeGraph(context)));
+        app.get(pathPrefix + "/dtkg/clients", context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeGetDigitalTwinKnowledgeGraphClients(context)));
+        app.get(pathPrefix + "/dtkg/sparql", context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeGetDigitalTwinKnowledgeGraphQuery(context)));
+        app.post(pathPrefix + "/dtkg/sparql", context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeGetDigitalTwinKnowledgeGraphQuery(context)));
+        app.get(pathPrefix + "/dtd", context -> controllers.find(context)
+                .ifPresent(controller -> controller.routeGetDigitalTwinDescriptor(context)));
+        app.wsBeforeUpgrade(pathPrefix + "/dtkg", WoDTDigitalTwinInterfaceControllerImpl::routeBeforeWebSocketUpgrade);
+        app.ws(pathPrefix + "/dtkg", wsConfig -> {
+            wsConfig.onConnect(context -> controllers.find(context)
+                    .ifPresent(controller -> controller.onWebSocketConnect(context)));
+            wsConfig.onMessage(context -> controllers.find(context)
+                    .ifPresent(controller -> controller.onWebSocketMessage(context)));
+            wsConfig.onClose(context -> controllers.find(context)
+                    .ifPresent(controller -> controller.onWebSocketClose(context)));
+        });
     }
 }
\ No newline at end of file
@@ -16,55 +16,133 @@ package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
  * limitations under the License.
  */
 
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
 import org.eclipse.ditto.wodt.DTDManager.api.DTDManagerReader;
 import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGEngine;
-import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterfaceNotifier;
+import org.eclipse.ditto.wodt.DTKGEngine.impl.CoalescingDTKGObserver;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterface;
 import org.eclipse.ditto.wodt.PlatformManagementInterface.impl.PlatformManagementInterfaceAPIControllerImpl;
 import org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.api.WoDTWebServer;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.ditto.wodt.common.ControllerLookup;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.google.gson.JsonParseException;
 
 import io.javalin.Javalin;
+import io.javalin.http.Context;
 import io.javalin.http.HttpStatus;
 
 /**
  * This class implement the WoDT Web server that host the WoDT Digital Twin Interface component
 * of the Abstract Architecture.
+* The server can be started before the Digital Twin is ready, so that it reports its readiness:
+* until the Digital Twin is bound, its resources answer 503 Service Unavailable.
 */
 public class WoDTWebServerImpl implements WoDTWebServer {
+    private static final int TRY_AGAIN_LATER_CLOSE_CODE = 1013;
     private final int portNumber;
-    private final WoDTDigitalTwinInterfaceControllerImpl wodtDigitalTwinInterfaceController;
-    private final PlatformManagementInterfaceAPIControllerImpl platformManagementInterfaceAPIController;
+    private final AdapterMetrics metrics;
+    private final HttpCompression compression;
+    private volatile ReadinessState readinessState;
+    private volatile WoDTDigitalTwinInterfaceControllerImpl wodtDigitalTwinInterfaceController;
+    private volatile PlatformManagementInterfaceAPIControllerImpl platformManagementInterfaceAPIController;
 
     /**
      * Default constructor.
     * @param portNumber the port number where to expose the API
     * @param dtkgEngine the DTKGEngine
     * @param dtdManager the DTDManager
-    * @param platformManagementInterfaceNotifier the Platform Management Interface Notifier component
+    * @param platformManagementInterface the Platform Management Interface component
+    * @param dtkgNotificationWindow the window within which DTKG updates are coalesced before being sent to clients
+    * @param metrics the metrics of the adapter to expose
     */
     public WoDTWebServerImpl(
             final int portNumber,
             final DTKGEngine dtkgEngine,
             final DTDManagerReader dtdManager,
-            final PlatformManagementInterfaceNotifier platformManagementInterfaceNotifier
+            final PlatformManagementInterface platformManagementInterface,
+            final Duration dtkgNotificationWindow,
+            final AdapterMetrics metrics
             ) {
+        this(portNumber, metrics);
+        this.bindDigitalTwin(dtkgEngine, dtdManager, platformManagementInterface, dtkgNotificationWindow);
+    }
+
+    /**
+     * Constructor for a server started before the Digital Twin is ready, that must be bound later
+    * with {@link #bindDigitalTwin}.
+    * @param portNumber the port number where to expose the API
+    * @param metrics the metrics of the adapter to expose
+    */
+    public WoDTWebServerImpl(final int portNumber, final AdapterMetrics metrics) {
         this.portNumber = portNumber;
-        this.wodtDigitalTwinInterfaceController = new WoDTDigitalTwinInterfaceControllerImpl(
-                dtkgEngine, dtdManager);
-        dtkgEngine.addDTKGObserver(this.wodtDigitalTwinInterfaceController::notifyNewDTKG);
+        this.metrics = metrics;
+        this.compression = HttpCompression.fromEnvironment();
+        this.readinessState = ReadinessState.STARTING;
+    }
+
+    /**
+     * Bind the Digital Twin whose WoDT Digital Twin Interface is exposed, making the server ready.
+    * @param dtkgEngine the DTKGEngine
+    * @param dtdManager the DTDManager
+    * @param platformManagementInterface the Platform Management Interface component
+    * @param dtkgNotificationWindow the window within which DTKG updates are coalesced before being sent to clients
+    */
+    public void bindDigitalTwin(
+            final DTKGEngine dtkgEngine,
+            final DTDManagerReader dtdManager,
+            final PlatformManagementInterface platformManagementInterface,
+            final Duration dtkgNotificationWindow
+    ) {
+        final WoDTDigitalTwinInterfaceControllerImpl controller = new WoDTDigitalTwinInterfaceControllerImpl(
+                dtkgEngine, dtdManager, this.metrics, this.compression);
+        dtkgEngine.addDTKGObserver(new CoalescingDTKGObserver(controller, dtkgEngine, dtkgNotificationWindow));
         this.platformManagementInterfaceAPIController = new PlatformManagementInterfaceAPIControllerImpl(
-                platformManagementInterfaceNotifier
+                platformManagementInterface,
+                platformManagementInterface
         );
+        this.wodtDigitalTwinInterfaceController = controller;
+        this.readinessState = ReadinessState.READY;
+    }
+
+    /**
+     * Signal that the Digital Twin could not be started, so the server will never become ready.
+    */
+    public void signalStartupFailure() {
+        this.readinessState = ReadinessState.FAILED;
     }
 
     @Override
     public void start() {
-        final Javalin app = Javalin.create().start(this.portNumber);
+        final Javalin app = Javalin.create(this.compression::configure).start(this.portNumber);
         app.exception(JsonMappingException.class, (e, context) -> context.status(HttpStatus.BAD_REQUEST));
         app.exception(JsonParseException.class, (e, context) -> context.status(HttpStatus.BAD_REQUEST));
-        this.wodtDigitalTwinInterfaceController.registerRoutes(app);
-        this.platformManagementInterfaceAPIController.registerRoutes(app);
+        // Routes are registered once and delegate to the controllers bound when the Digital Twin is ready.
+        app.get("/ready", this::routeGetReadiness);
+        app.get("/metrics", context -> context.json(this.metrics.snapshot()));
+        WoDTDigitalTwinInterfaceControllerImpl.registerRoutes(app, "",
+                whenReady(pathParams -> this.wodtDigitalTwinInterfaceController));
+        PlatformManagementInterfaceAPIControllerImpl.registerRoutes(app, "",
+                whenReady(pathParams -> this.platformManagementInterfaceAPIController));
+    }
+
+    private static <C> ControllerLookup<C> whenReady(final Function<Function<String, String>, C> boundController) {
+        return new ControllerLookup<>(boundController, HttpStatus.SERVICE_UNAVAILABLE,
+                TRY_AGAIN_LATER_CLOSE_CODE, "Digital Twin not ready");
+    }
+
+    private void routeGetReadiness(final Context context) {
+        final ReadinessState state = this.readinessState;
+        context.status(state == ReadinessState.READY ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+        context.json(Map.of("status", state.name().toLowerCase(Locale.ROOT)));
+    }
+
+    private enum ReadinessState {
+        STARTING, READY, FAILED
     }
-}
\ No newline at end of file
+}
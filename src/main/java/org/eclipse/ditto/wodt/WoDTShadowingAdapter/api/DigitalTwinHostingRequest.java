@@ -0,0 +1,72 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Presenter class to be able to deserialize the request to host a Digital Twin from the management API.
+*/
+public final class DigitalTwinHostingRequest {
+    private final String yamlOntologyPath;
+    private final String physicalAssetId;
+    private final List<String> platforms;
+
+    /**
+     * Default constructor.
+    * @param yamlOntologyPath the path of the YAML ontology mapping
+    * @param physicalAssetId the id of the associated physical asset
+    * @param platforms the urls of the platforms to which register
+    */
+    @JsonCreator
+    public DigitalTwinHostingRequest(
+            @JsonProperty("yamlOntologyPath") final String yamlOntologyPath,
+            @JsonProperty("physicalAssetId") final String physicalAssetId,
+            @JsonProperty("platforms") final List<String> platforms
+    ) {
+        this.yamlOntologyPath = yamlOntologyPath;
+        this.physicalAssetId = physicalAssetId;
+        this.platforms = platforms == null ? List.of() : List.copyOf(platforms);
+    }
+
+    /**
+     * Obtain the path of the YAML ontology mapping.
+    * @return the path
+    */
+    public String getYamlOntologyPath() {
+        return this.yamlOntologyPath;
+    }
+
+    /**
+     * Obtain the id of the associated physical asset.
+    * @return the physical asset id
+    */
+    public String getPhysicalAssetId() {
+        return this.physicalAssetId;
+    }
+
+    /**
+     * Obtain the urls of the platforms to which register.
+    * @return the platforms urls
+    */
+    public List<String> getPlatforms() {
+        return this.platforms;
+    }
+}
@@ -0,0 +1,36 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Policy applied by the ingestion queue of the Ditto Thing changes when the adapter falls behind.
+*/
+public enum IngestionOverflowPolicy {
+    /**
+     * Block the Ditto client thread until there is space in the queue.
+    */
+    BLOCK,
+    /**
+     * Drop the oldest pending change to make space for the new one.
+    */
+    DROP_OLDEST,
+    /**
+     * Replace the pending update of the same attribute or feature property with the new one, so that only
+    * the latest value of each path is applied. If the queue is still full the oldest pending change is dropped.
+    */
+    COALESCE
+}
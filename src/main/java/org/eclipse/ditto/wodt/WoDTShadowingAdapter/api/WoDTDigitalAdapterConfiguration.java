@@ -17,7 +17,10 @@ package org.eclipse.ditto.wodt.WoDTShadowingAdapter.api;
  */
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Set;
 
 import org.eclipse.ditto.things.model.Thing;
@@ -30,12 +33,21 @@ import org.eclipse.ditto.wodt.common.DittoBase;
  * Configuration for the {@link WoDTDigitalAdapter}.
 */
 public final class WoDTDigitalAdapterConfiguration {
+    static final long DEFAULT_DTKG_NOTIFICATION_WINDOW_MS = 50;
+    static final long DEFAULT_INGESTION_QUEUE_CAPACITY = 1024;
     private final String digitalTwinUri;
     private final int portNumber;
     private final String physicalAssetId;
     private final Set<URI> platformToRegister;
     private final OntologyManagerImpl ontologyManager;
     private final Thing thing;
+    private final Duration dtkgNotificationWindow;
+    private final int ingestionQueueCapacity;
+    private final IngestionOverflowPolicy ingestionOverflowPolicy;
+    private final boolean ingestionCoalescing;
+    private final boolean incrementalApply;
+    private final boolean dtkgSlotStorage;
+    private final boolean dtkgSnapshotReads;
 
     /**
      * Default constructor.
@@ -51,16 +63,103 @@ public final class WoDTDigitalAdapterConfiguration {
         final String physicalAssetId,
         final Set<URI> platformToRegister
     ) {
-        this.thing = this.obtainDittoThing(thingId);
-        this.ontologyManager = new OntologyManagerImpl(this.thing, yamlOntologyPath);
-        this.digitalTwinUri = "http://" + System.getenv("MODULE_URI") + ":" + System.getenv("MODULE_PORT") + "/";
-        this.portNumber = Integer.parseInt(System.getenv("MODULE_PORT"));
+        this(retrieveDittoThing(thingId), yamlOntologyPath, physicalAssetId, platformToRegister);
+    }
+
+    private WoDTDigitalAdapterConfiguration(
+        final Thing thing,
+        final String yamlOntologyPath,
+        final String physicalAssetId,
+        final Set<URI> platformToRegister
+    ) {
+        this(
+            thing,
+            new OntologyManagerImpl(thing, yamlOntologyPath),
+            digitalTwinUriFromEnvironment(),
+            portNumberFromEnvironment(),
+            physicalAssetId,
+            platformToRegister
+        );
+    }
+
+    /**
+     * Constructor for an already retrieved Ditto Thing and ontology, that does not contact Ditto.
+    * @param thing the Ditto Thing associated with the Digital Twin
+    * @param ontologyManager the ontology to use for the semantics
+    * @param digitalTwinUri the uri of the WoDT Digital Twin
+    * @param portNumber the port number where to expose services
+    * @param physicalAssetId the id of the associated physical asset
+    * @param platformToRegister the platforms to which register
+    */
+    public WoDTDigitalAdapterConfiguration(
+        final Thing thing,
+        final OntologyManagerImpl ontologyManager,
+        final String digitalTwinUri,
+        final int portNumber,
+        final String physicalAssetId,
+        final Set<URI> platformToRegister
+    ) {
+        this.thing = thing;
+        this.ontologyManager = ontologyManager;
+        this.digitalTwinUri = digitalTwinUri;
+        this.portNumber = portNumber;
         this.physicalAssetId = physicalAssetId;
         this.platformToRegister = new HashSet<>(platformToRegister);
+        this.dtkgNotificationWindow = Duration.ofMillis(
+            readLongEnv("DTKG_NOTIFICATION_WINDOW_MS", DEFAULT_DTKG_NOTIFICATION_WINDOW_MS));
+        this.ingestionQueueCapacity = Math.toIntExact(
+            readLongEnv("INGESTION_QUEUE_CAPACITY", DEFAULT_INGESTION_QUEUE_CAPACITY));
+        this.ingestionOverflowPolicy = readIngestionOverflowPolicyEnv();
+        this.ingestionCoalescing = readBooleanEnv("INGESTION_COALESCE_UPDATES", false);
+        this.incrementalApply = readBooleanEnv("INCREMENTAL_APPLY", true);
+        this.dtkgSlotStorage = readBooleanEnv("DTKG_SLOT_STORAGE", true);
+        this.dtkgSnapshotReads = readBooleanEnv("DTKG_SNAPSHOT_READS", false);
+    }
+
+    static IngestionOverflowPolicy readIngestionOverflowPolicyEnv() {
+        return Optional.ofNullable(System.getenv("INGESTION_OVERFLOW_POLICY"))
+            .filter(value -> !value.isBlank())
+            .map(value -> IngestionOverflowPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT)))
+            .orElse(IngestionOverflowPolicy.BLOCK);
+    }
+
+    static boolean readBooleanEnv(String name, boolean defaultValue) {
+        return Optional.ofNullable(System.getenv(name))
+            .filter(value -> !value.isBlank())
+            .map(value -> Boolean.parseBoolean(value.trim()))
+            .orElse(defaultValue);
+    }
+
+    static long readLongEnv(String name, long defaultValue) {
+        return Optional.ofNullable(System.getenv(name))
+            .filter(value -> !value.isBlank())
+            .map(value -> Long.parseLong(value.trim()))
+            .orElse(defaultValue);
     }
 
-    private Thing obtainDittoThing(String dittoThingId) {
-        return new DittoBase().getClient().twin()
+    /**
+     * Obtain the uri of the WoDT Digital Twin from the MODULE_URI and MODULE_PORT environment variables.
+    * @return the uri
+    */
+    public static String digitalTwinUriFromEnvironment() {
+        return "http://" + System.getenv("MODULE_URI") + ":" + System.getenv("MODULE_PORT") + "/";
+    }
+
+    /**
+     * Obtain the port number where to expose services from the MODULE_PORT environment variable.
+    * @return the port number
+    */
+    public static int portNumberFromEnvironment() {
+        return Integer.parseInt(System.getenv("MODULE_PORT"));
+    }
+
+    /**
+     * Retrieve a Ditto Thing with the shared Ditto connection.
+    * @param dittoThingId the id of the Ditto Thing
+    * @return the Thing
+    */
+    public static Thing retrieveDittoThing(String dittoThingId) {
+        return DittoBase.getShared().getClient().twin()
             .forId(ThingId.of(dittoThingId))
             .retrieve()
             .toCompletableFuture()
@@ -113,4 +212,65 @@ public final class WoDTDigitalAdapterConfiguration {
     public Set<URI> getPlatformToRegister() {
         return new HashSet<>(this.platformToRegister);
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtain the window within which DTKG updates are coalesced before notifying observers.
+    * A zero window disables coalescing.
+    * @return the notification window
+    */
+    public Duration getDTKGNotificationWindow() {
+        return this.dtkgNotificationWindow;
+    }
+
+    /**
+     * Obtain the maximum number of Ditto Thing changes waiting to be applied.
+    * @return the capacity of the ingestion queue
+    */
+    public int getIngestionQueueCapacity() {
+        return this.ingestionQueueCapacity;
+    }
+
+    /**
+     * Obtain the policy applied when the ingestion queue is full.
+    * @return the overflow policy
+    */
+    public IngestionOverflowPolicy getIngestionOverflowPolicy() {
+        return this.ingestionOverflowPolicy;
+    }
+
+    /**
+     * Check if pending updates of the same attribute or feature property are coalesced,
+    * applying only the latest value. It is always enabled with the {@link IngestionOverflowPolicy#COALESCE} policy.
+    * @return true if coalescing is enabled
+    */
+    public boolean isIngestionCoalescingEnabled() {
+        return this.ingestionCoalescing || this.ingestionOverflowPolicy == IngestionOverflowPolicy.COALESCE;
+    }
+
+    /**
+     * Check if the changes of a single attribute or feature property are applied alone,
+    * instead of applying again the whole changed Thing.
+    * @return true if the incremental apply is enabled
+    */
+    public boolean isIncrementalApplyEnabled() {
+        return this.incrementalApply;
+    }
+
+    /**
+     * Check if the numeric and boolean properties of the DTKG are updated in place in a slot table,
+    * and written to the RDF model only when the DTKG is serialized.
+    * @return true if the slot storage is enabled
+    */
+    public boolean isDTKGSlotStorageEnabled() {
+        return this.dtkgSlotStorage;
+    }
+
+    /**
+     * Check if each DTKG update publishes an immutable copy of the graph, that readers use without taking
+    * the lock of the RDF model.
+    * @return true if the snapshot reads are enabled
+    */
+    public boolean isDTKGSnapshotReadsEnabled() {
+        return this.dtkgSnapshotReads;
+    }
+}
@@ -0,0 +1,158 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.api;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.ditto.things.model.Thing;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyManagerImpl;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl.WoDTMultiTwinAdapter;
+
+/**
+ * Configuration for the {@link WoDTMultiTwinAdapter}, that hosts many Digital Twins in a single process.
+* The ingestion and notification settings are read from the same environment variables
+* of the {@link WoDTDigitalAdapterConfiguration} and are shared by all the hosted Digital Twins.
+*/
+public final class WoDTMultiTwinAdapterConfiguration {
+    private final String moduleUri;
+    private final int portNumber;
+    private final Duration dtkgNotificationWindow;
+    private final int ingestionQueueCapacity;
+    private final IngestionOverflowPolicy ingestionOverflowPolicy;
+    private final boolean ingestionCoalescing;
+    private final Optional<Path> ontologyDirectory;
+
+    /**
+     * Default constructor.
+    * @param moduleUri the host name where the adapter is reachable
+    * @param portNumber the port number where to expose services
+    */
+    public WoDTMultiTwinAdapterConfiguration(final String moduleUri, final int portNumber) {
+        this.moduleUri = moduleUri;
+        this.portNumber = portNumber;
+        this.dtkgNotificationWindow = Duration.ofMillis(WoDTDigitalAdapterConfiguration.readLongEnv(
+            "DTKG_NOTIFICATION_WINDOW_MS", WoDTDigitalAdapterConfiguration.DEFAULT_DTKG_NOTIFICATION_WINDOW_MS));
+        this.ingestionQueueCapacity = Math.toIntExact(WoDTDigitalAdapterConfiguration.readLongEnv(
+            "INGESTION_QUEUE_CAPACITY", WoDTDigitalAdapterConfiguration.DEFAULT_INGESTION_QUEUE_CAPACITY));
+        this.ingestionOverflowPolicy = WoDTDigitalAdapterConfiguration.readIngestionOverflowPolicyEnv();
+        this.ingestionCoalescing = WoDTDigitalAdapterConfiguration.readBooleanEnv("INGESTION_COALESCE_UPDATES", false);
+        this.ontologyDirectory = readPathEnv("YAML_ONTOLOGY_DIR")
+            .or(() -> readPathEnv("YAML_ONTOLOGY_PATH").map(path -> path.toAbsolutePath().getParent()));
+    }
+
+    private static Optional<Path> readPathEnv(final String name) {
+        return Optional.ofNullable(System.getenv(name))
+            .filter(value -> !value.isBlank())
+            .map(value -> Paths.get(value.trim()));
+    }
+
+    /**
+     * Create the configuration of a hosted Digital Twin, whose resources are exposed under its id.
+    * @param twinId the id of the Digital Twin
+    * @param thing the Ditto Thing associated with the Digital Twin
+    * @param ontologyManager the ontology to use for the semantics
+    * @param physicalAssetId the id of the associated physical asset
+    * @param platformToRegister the platforms to which register
+    * @return the configuration of the Digital Twin
+    */
+    public WoDTDigitalAdapterConfiguration createDigitalTwinConfiguration(
+        final String twinId,
+        final Thing thing,
+        final OntologyManagerImpl ontologyManager,
+        final String physicalAssetId,
+        final Set<URI> platformToRegister
+    ) {
+        return new WoDTDigitalAdapterConfiguration(
+            thing,
+            ontologyManager,
+            "http://" + this.moduleUri + ":" + this.portNumber + "/" + twinId + "/",
+            this.portNumber,
+            physicalAssetId,
+            platformToRegister
+        );
+    }
+
+    /**
+     * Resolve the path of a YAML ontology mapping requested while the adapter is running, e.g. through
+    * the management API. Only the files inside the ontology directory, YAML_ONTOLOGY_DIR or else the directory
+    * of YAML_ONTOLOGY_PATH, are accepted, so that a request cannot read any other file of the host.
+    * @param yamlOntologyPath the requested path, relative to the ontology directory
+    * @return the path of the mapping, or empty if it is not a file inside the ontology directory
+    */
+    public Optional<String> resolveYamlOntologyPath(final String yamlOntologyPath) {
+        return this.ontologyDirectory.flatMap(directory -> {
+            try {
+                // Real paths, so that neither ".." segments nor symbolic links lead outside the directory.
+                final Path realDirectory = directory.toRealPath();
+                final Path file = realDirectory.resolve(yamlOntologyPath).toRealPath();
+                return file.startsWith(realDirectory) && Files.isRegularFile(file)
+                    ? Optional.of(file.toString())
+                    : Optional.empty();
+            } catch (IOException | InvalidPathException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Obtain the port number where to expose services.
+    * @return the port number
+    */
+    public int getPortNumber() {
+        return this.portNumber;
+    }
+
+    /**
+     * Obtain the window within which DTKG updates are coalesced before notifying observers.
+    * @return the notification window
+    */
+    public Duration getDTKGNotificationWindow() {
+        return this.dtkgNotificationWindow;
+    }
+
+    /**
+     * Obtain the maximum number of Ditto Thing changes, of all the Digital Twins, waiting to be applied.
+    * @return the capacity of the ingestion queue
+    */
+    public int getIngestionQueueCapacity() {
+        return this.ingestionQueueCapacity;
+    }
+
+    /**
+     * Obtain the policy applied when the ingestion queue is full.
+    * @return the overflow policy
+    */
+    public IngestionOverflowPolicy getIngestionOverflowPolicy() {
+        return this.ingestionOverflowPolicy;
+    }
+
+    /**
+     * Check if pending updates of the same attribute or feature property are coalesced.
+    * @return true if coalescing is enabled
+    */
+    public boolean isIngestionCoalescingEnabled() {
+        return this.ingestionCoalescing || this.ingestionOverflowPolicy == IngestionOverflowPolicy.COALESCE;
+    }
+}
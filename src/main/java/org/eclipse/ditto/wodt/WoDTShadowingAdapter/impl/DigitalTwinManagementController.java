@@ -0,0 +1,84 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.DigitalTwinHostingRequest;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTMultiTwinAdapterConfiguration;
+import org.eclipse.ditto.wodt.common.WebServerController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+/*
+ * Controller of the management API of the Digital Twins hosted by a WoDTMultiTwinAdapter.
+ */
+final class DigitalTwinManagementController implements WebServerController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DigitalTwinManagementController.class);
+    private static final String TWIN_ID_PARAM = "twinId";
+
+    private final WoDTMultiTwinAdapter adapter;
+    private final WoDTMultiTwinAdapterConfiguration configuration;
+
+    DigitalTwinManagementController(
+        final WoDTMultiTwinAdapter adapter,
+        final WoDTMultiTwinAdapterConfiguration configuration
+    ) {
+        this.adapter = adapter;
+        this.configuration = configuration;
+    }
+
+    private void routeGetDigitalTwins(final Context context) {
+        context.json(this.adapter.getDigitalTwinIds());
+    }
+
+    private void routeAddDigitalTwin(final Context context) {
+        final String twinId = context.pathParam(TWIN_ID_PARAM);
+        final DigitalTwinHostingRequest request = context.bodyAsClass(DigitalTwinHostingRequest.class);
+        // The mapping is read from the ontology directory only, as the API does not authenticate its clients.
+        final Optional<String> yamlOntologyPath = Optional.ofNullable(request.getYamlOntologyPath())
+            .flatMap(this.configuration::resolveYamlOntologyPath);
+        if (yamlOntologyPath.isEmpty()) {
+            context.status(HttpStatus.BAD_REQUEST);
+            return;
+        }
+        try {
+            final Set<URI> platforms = request.getPlatforms().stream().map(URI::create).collect(Collectors.toSet());
+            final String physicalAssetId = request.getPhysicalAssetId() != null
+                ? request.getPhysicalAssetId()
+                : twinId;
+            if (this.adapter.addDigitalTwin(twinId, yamlOntologyPath.get(), physicalAssetId, platforms)) {
+                context.status(HttpStatus.CREATED);
+            } else {
+                context.status(HttpStatus.CONFLICT);
+            }
+        } catch (final IllegalArgumentException e) {
+            context.status(HttpStatus.BAD_REQUEST);
+        } catch (final CompletionException e) {
+            LOGGER.warn("Unable to retrieve Thing {}", twinId, e);
+            context.status(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private void routeRemoveDigitalTwin(final Context context) {
+        if (this.adapter.removeDigitalTwin(context.pathParam(TWIN_ID_PARAM))) {
+            context.status(HttpStatus.NO_CONTENT);
+        } else {
+            context.status(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Override
+    public void registerRoutes(final Javalin app) {
+        app.get("/twins", this::routeGetDigitalTwins);
+        app.put("/twins/{twinId}", this::routeAddDigitalTwin);
+        app.delete("/twins/{twinId}", this::routeRemoveDigitalTwin);
+    }
+}
@@ -1,49 +1,164 @@
 package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 
+import org.eclipse.ditto.client.options.Option;
+import org.eclipse.ditto.client.options.Options;
 import org.eclipse.ditto.wodt.common.DittoBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /*
  * This class hanlde a Ditto Client that listen to Thing changes and messages.
+ * Only the changes of the shadowed Things are requested to Ditto, filtering them by namespace and,
+ * when they are not too many, by Thing id.
  */
 public class DittoThingListener extends Thread {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DittoThingListener.class);
-    
+    private static final String REGISTRATION_ID = "wodt-thing-changes";
+    // Above this number of Things the RQL filter would make the subscription request too long,
+    // so only the namespaces are filtered by Ditto and the Thing ids are filtered by the listener.
+    private static final int MAX_FILTERED_THING_IDS = 100;
+
     private final CountDownLatch latch = new CountDownLatch(1);
     private final DittoBase client;
-    private final WoDTDigitalAdapter woDTDigitalAdapter;
+    private final Set<String> shadowedThingIds;
+    private final ThingChangeIngestionQueue ingestionQueue;
+    private final Runnable onStop;
+    private CompletableFuture<Void> lastRefresh = CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> queuedRefresh;
+
+    public DittoThingListener(
+        WoDTDigitalAdapter woDTDigitalAdapter,
+        String thingId,
+        ThingChangeIngestionQueue ingestionQueue
+    ) {
+        this(DittoBase.getShared(), Set.of(thingId), ingestionQueue, woDTDigitalAdapter::stopAdapter);
+    }
 
-    public DittoThingListener(WoDTDigitalAdapter woDTDigitalAdapter) {
+    /*
+     * Listen with an existing Ditto client, e.g. shared by many Digital Twins, to the changes of the shadowed Things.
+     * The set of shadowed Things can change over time: call refreshSubscription to update the Ditto subscription.
+     * The onStop action is executed when the listener is stopped.
+     */
+    public DittoThingListener(
+        DittoBase client,
+        Set<String> shadowedThingIds,
+        ThingChangeIngestionQueue ingestionQueue,
+        Runnable onStop
+    ) {
         super();
-        this.woDTDigitalAdapter = woDTDigitalAdapter;
-        this.client = new DittoBase();
+        this.client = client;
+        this.shadowedThingIds = shadowedThingIds;
+        this.ingestionQueue = ingestionQueue;
+        this.onStop = onStop;
     }
 
     @Override
     public void run() {
         try {
-            client.getClient().twin().startConsumption().thenAccept(v -> {
-                LOGGER.info("Subscribed for Ditto Thing changes");
-                client.getClient().twin().registerForThingChanges("my-changes", change -> {
-                    LOGGER.info("Received Thing element " + change.getAction() + " change");
-                    this.woDTDigitalAdapter.onThingChange(change);
-                });
+            this.ingestionQueue.start();
+            client.getClient().twin().registerForThingChanges(REGISTRATION_ID, change -> {
+                LOGGER.debug("Received Thing element {} change", change.getAction());
+                if (this.shadowedThingIds.contains(change.getEntityId().toString())) {
+                    this.ingestionQueue.offer(change);
+                }
             });
-            
+            this.refreshSubscription();
+
             latch.await();
         } catch (InterruptedException e) {
             LOGGER.error("Error in DittoThingListener", e);
         } finally {
-            client.getClient().destroy();
-            woDTDigitalAdapter.stopAdapter();
+            // The Ditto client may be shared, so only the registration of the listener is released.
+            client.getClient().twin().deregister(REGISTRATION_ID);
+            this.ingestionQueue.close();
+            this.onStop.run();
+        }
+    }
+
+    /*
+     * Request to Ditto the changes of the currently shadowed Things. Starting again the consumption
+     * replaces the filters of the current subscription. Refreshes requested while another one is in progress
+     * are coalesced into a single following refresh, that includes all the Things shadowed when it starts.
+     */
+    public synchronized CompletionStage<Void> refreshSubscription() {
+        if (this.queuedRefresh != null) {
+            return this.queuedRefresh;
+        }
+        final CompletableFuture<Void> refresh = new CompletableFuture<>();
+        final CompletableFuture<Void> previousRefresh = this.lastRefresh;
+        this.queuedRefresh = refresh;
+        this.lastRefresh = refresh;
+        previousRefresh
+            .handle((result, error) -> (Void) null)
+            .thenCompose(previous -> {
+                synchronized (this) {
+                    this.queuedRefresh = null;
+                }
+                return this.startConsumption();
+            })
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    refresh.completeExceptionally(error);
+                } else {
+                    refresh.complete(null);
+                }
+            });
+        return refresh;
+    }
+
+    private CompletableFuture<Void> startConsumption() {
+        final Set<String> thingIds = new TreeSet<>(this.shadowedThingIds);
+        if (thingIds.isEmpty()) {
+            LOGGER.info("No Ditto Thing to shadow, subscription not updated");
+            return CompletableFuture.completedFuture(null);
+        }
+        return client.getClient().twin().startConsumption(consumptionOptions(thingIds))
+            .toCompletableFuture()
+            .thenRun(() -> LOGGER.info("Subscribed for changes of {} Ditto Things", thingIds.size()));
+    }
+
+    static Option<?>[] consumptionOptions(Set<String> thingIds) {
+        final List<Option<?>> options = new ArrayList<>();
+        options.add(Options.Consumption.namespaces(thingIds.stream()
+            .filter(thingId -> thingId.contains(":"))
+            .map(thingId -> thingId.substring(0, thingId.indexOf(':')))
+            .collect(Collectors.toCollection(TreeSet::new))));
+        if (thingIds.size() <= MAX_FILTERED_THING_IDS) {
+            options.add(Options.Consumption.filter(thingIdFilter(thingIds)));
         }
+        return options.toArray(new Option<?>[0]);
     }
-    
+
+    private static String thingIdFilter(Set<String> thingIds) {
+        final String quotedThingIds = thingIds.stream()
+            .map(thingId -> "\"" + thingId.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+            .collect(Collectors.joining(","));
+        return thingIds.size() == 1
+            ? "eq(thingId," + quotedThingIds + ")"
+            : "in(thingId," + quotedThingIds + ")";
+    }
+
+    /*
+     * Stop the listener and wait until it releases its registration, unless called by the listener itself.
+     */
     public void stopThread() {
         latch.countDown();
+        if (Thread.currentThread() != this) {
+            try {
+                this.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
@@ -0,0 +1,49 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * This class times the phases of the startup of a Digital Adapter, logging their duration
+ * and recording it in the "startup.<phase>" timers of the metrics.
+ */
+final class StartupPhases {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupPhases.class);
+
+    private final AdapterMetrics metrics;
+    private final long startNanos;
+
+    StartupPhases(final AdapterMetrics metrics) {
+        this.metrics = metrics;
+        this.startNanos = System.nanoTime();
+    }
+
+    AdapterMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    <T> T run(final String phase, final Supplier<T> step) {
+        final long phaseStartNanos = System.nanoTime();
+        final T result = step.get();
+        final long elapsedNanos = System.nanoTime() - phaseStartNanos;
+        this.metrics.timer("startup." + phase).record(elapsedNanos);
+        LOGGER.info("Startup phase {} completed in {} ms", phase, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return result;
+    }
+
+    <T> CompletableFuture<T> runAsync(final String phase, final Supplier<T> step) {
+        return CompletableFuture.supplyAsync(() -> this.run(phase, step));
+    }
+
+    void completed() {
+        final long elapsedNanos = System.nanoTime() - this.startNanos;
+        this.metrics.timer("startup.total").record(elapsedNanos);
+        LOGGER.info("Startup completed in {} ms", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+}
@@ -0,0 +1,298 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.ditto.client.changes.ChangeAction;
+import org.eclipse.ditto.client.changes.ThingChange;
+import org.eclipse.ditto.json.JsonValue;
+import org.eclipse.ditto.things.model.Attributes;
+import org.eclipse.ditto.things.model.Feature;
+import org.eclipse.ditto.things.model.Thing;
+import org.eclipse.ditto.wodt.DTDManager.api.DTDManager;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyIndex;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGEngine;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGTransaction;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.eclipse.ditto.wodt.common.ThingModelUtils.convertJsonValueToType;
+import static org.eclipse.ditto.wodt.common.ThingModelUtils.convertSubProperties;
+import static org.eclipse.ditto.wodt.common.ThingModelUtils.convertSubPropertyValue;
+
+/*
+ * This class applies the state and the changes of a Ditto Thing to the DTKG and to the DTD,
+ * using the ontology of the configuration. It does not depend on a Ditto connection,
+ * so changes can also be replayed offline.
+ */
+final class ThingChangeApplier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThingChangeApplier.class);
+    private static final String DEFINITION = "definition";
+    private static final String ATTRIBUTES = "attributes";
+    private static final String FEATURES = "features";
+    private static final String PROPERTIES = "properties";
+
+    private final WoDTDigitalAdapterConfiguration configuration;
+    private final DTKGEngine dtkgEngine;
+    private final DTDManager dtdManager;
+    // The last synced Thing, of which only the Thing Model definitions are kept up to date by the changes.
+    private Thing definitionsThing;
+
+    ThingChangeApplier(
+        final WoDTDigitalAdapterConfiguration configuration,
+        final DTKGEngine dtkgEngine,
+        final DTDManager dtdManager
+    ) {
+        this.configuration = configuration;
+        this.dtkgEngine = dtkgEngine;
+        this.dtdManager = dtdManager;
+    }
+
+    private void handleRelationship(DTKGTransaction transaction, String key, String value, boolean isDeletion) {
+        configuration.getOntology().obtainPropertyValueType(key).ifPresent(
+            relType -> {
+                configuration.getOntology().convertRelationship(key, value).ifPresent(triple -> {
+                    if (isDeletion) {
+                        transaction.removeRelationship(triple.getLeft(), triple.getRight());
+                        this.dtdManager.removeRelationship(key);
+                    } else {
+                        transaction.addRelationship(triple.getLeft(), triple.getRight());
+                        this.dtdManager.addRelationship(key);
+                    }
+                });
+            }
+        );
+    }
+    
+    private void handleProperty(DTKGTransaction transaction, String key, Object value, boolean isFeatureProperty, boolean isDeletion, String featureId) {
+        String fullPropertyName = (isFeatureProperty ? featureId + "_" : "") + key;
+        configuration.getOntology().convertPropertyValue(fullPropertyName, value).ifPresent(triple -> {
+            if (isDeletion) {
+                transaction.removeProperty(triple.getLeft());
+                this.dtdManager.removeProperty(fullPropertyName);
+            } else {
+                transaction.addDigitalTwinPropertyUpdate(triple.getLeft(), triple.getRight());
+                this.dtdManager.addProperty(fullPropertyName);
+            }
+        });
+    }
+    
+    private void handleAction(DTKGTransaction transaction, String actionId, boolean isDeletion, String featureId) {
+        String fullActionName = (featureId != null ? featureId + "_" : "") + actionId;
+        if (isDeletion) {
+            this.dtdManager.removeAction(fullActionName);
+            transaction.removeActionId(fullActionName);
+        } else {
+            this.dtdManager.addAction(fullActionName);
+            transaction.addActionId(fullActionName);
+        }
+    }
+    
+    private void handleEvent(String eventId, boolean isDeletion, String featureId) {
+        String fullEventName = (featureId != null ? featureId + "_" : "") + eventId;
+        if (isDeletion) {
+            this.dtdManager.removeEvent(fullEventName);
+        } else {
+            this.dtdManager.addEvent(fullEventName);
+        }
+    }
+
+    /*
+     * Apply the whole state of the Ditto Thing.
+     */
+    void syncWithDittoThing(final Thing thing) {
+        this.definitionsThing = thing;
+        final DTKGTransaction transaction = this.dtkgEngine.beginTransaction();
+        // Thing Attributes (Relationships and Properties)
+        thing.getAttributes().ifPresent(attributes -> applyAttributes(transaction, attributes));
+
+        // Thing Features (Properties, Actions, Events)
+        thing.getFeatures().ifPresent(features -> features.forEach(feature -> applyFeature(transaction, feature)));
+
+        // Thing Actions and Events
+        final OntologyIndex ontologyIndex = this.configuration.getOntology().getOntologyIndex();
+        ontologyIndex.findActionsByFeature(Optional.empty())
+                .forEach(action -> handleAction(transaction, action.getField(), false, null));
+        ontologyIndex.findEventsByFeature(Optional.empty())
+                .forEach(event -> handleEvent(event.getField(), false, null));
+
+        transaction.commit();
+    }
+
+    private void applyAttributes(DTKGTransaction transaction, Attributes attributes) {
+        attributes.forEach(attribute -> applyAttribute(transaction, attribute.getKey().toString(), attribute.getValue()));
+    }
+
+    private void applyAttribute(DTKGTransaction transaction, String key, JsonValue value) {
+        if (key.contains("rel-")) {
+            handleRelationship(transaction, key, value.asString(), false);
+        } else {
+            handleProperty(transaction, key, convertJsonValueToType(value), false, false, null);
+        }
+    }
+
+    private void applyFeature(DTKGTransaction transaction, Feature feature) {
+        feature.getProperties().ifPresent(properties -> properties.forEach(property ->
+                applyFeatureProperty(transaction, feature.getId(), property.getKey().toString(), property.getValue())));
+
+        final OntologyIndex ontologyIndex = this.configuration.getOntology().getOntologyIndex();
+        ontologyIndex.findActionsByFeature(Optional.of(feature.getId()))
+                .forEach(action -> handleAction(transaction, action.getField(), false, feature.getId()));
+        ontologyIndex.findEventsByFeature(Optional.of(feature.getId()))
+                .forEach(event -> handleEvent(event.getField(), false, feature.getId()));
+    }
+
+    private void applyFeatureProperty(DTKGTransaction transaction, String featureId, String key, JsonValue value) {
+        Map<String, Object> subProperties = convertSubProperties(value);
+        if (!subProperties.isEmpty()) {
+            subProperties.forEach((subProperty, subPropertyValue) ->
+                handleProperty(transaction, key + "_" + subProperty, subPropertyValue, true, false, featureId));
+        } else {
+            handleProperty(transaction, key, convertJsonValueToType(value), true, false, featureId);
+        }
+    }
+
+    /*
+     * Apply only the attribute or feature property identified by the path of the change.
+     * Return false if the change does not target a single attribute or feature property,
+     * so that the whole changed Thing has to be applied.
+     * The value of a Thing change is the changed Thing itself, so the value at the path is read from it.
+     */
+    private boolean applyChangedPath(DTKGTransaction transaction, ThingChange change) {
+        final Optional<JsonValue> changedValue = change.getThing()
+                .flatMap(thing -> thing.toJson().getValue(change.getPath()));
+        if (changedValue.isEmpty()) {
+            return false;
+        }
+        final JsonValue value = changedValue.get();
+        final String path = change.getPath().toString();
+        final String[] segments = (path.startsWith("/") ? path.substring(1) : path).split("/");
+        if (segments.length == 2 && ATTRIBUTES.equals(segments[0])) {
+            applyAttribute(transaction, segments[1], value);
+            return true;
+        }
+        final boolean isFeaturePropertyPath = segments.length >= 4
+                && FEATURES.equals(segments[0])
+                && PROPERTIES.equals(segments[2]);
+        if (isFeaturePropertyPath && segments.length == 4) {
+            applyFeatureProperty(transaction, segments[1], segments[3], value);
+            return true;
+        }
+        if (isFeaturePropertyPath && segments.length == 5 && !value.isObject() && !value.isArray()) {
+            handleProperty(transaction, segments[3] + "_" + segments[4],
+                    convertSubPropertyValue(value), true, false, segments[1]);
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Compile again the ontology when the change modifies the Thing Model definition of the Thing
+     * or of one of its features, so that this and the following changes are mapped with the new Thing Model.
+     */
+    private void refreshOntologyOnDefinitionChange(ThingChange change) {
+        if (this.definitionsThing == null) {
+            return;
+        }
+        final Map<String, String> previousDefinitions = definitionsOf(this.definitionsThing);
+        this.definitionsThing = withChangedDefinitions(this.definitionsThing, change);
+        if (!definitionsOf(this.definitionsThing).equals(previousDefinitions)) {
+            if (this.definitionsThing.getDefinition().isEmpty()) {
+                LOGGER.warn("Thing definition removed, the current ontology is kept");
+                return;
+            }
+            try {
+                this.configuration.getOntology().refresh(this.definitionsThing);
+                LOGGER.info("Thing Model definitions changed, ontology compiled again");
+            } catch (RuntimeException e) {
+                LOGGER.error("Cannot compile the ontology of the changed Thing Model, the current one is kept", e);
+            }
+        }
+    }
+
+    private static Thing withChangedDefinitions(Thing thing, ThingChange change) {
+        final String path = change.getPath().toString();
+        final String[] segments = (path.startsWith("/") ? path.substring(1) : path).split("/");
+        final boolean isDeletion = change.getAction() == ChangeAction.DELETED;
+        final Optional<Thing> changedThing = change.getThing();
+        if (segments.length == 1 && segments[0].isEmpty()) {
+            return isDeletion ? thing : changedThing.orElse(thing);
+        } else if (segments.length == 1 && DEFINITION.equals(segments[0])) {
+            return isDeletion
+                    ? thing.removeDefinition()
+                    : changedThing.flatMap(Thing::getDefinition).map(thing::setDefinition).orElse(thing);
+        } else if (segments.length == 1 && FEATURES.equals(segments[0])) {
+            return isDeletion
+                    ? thing.removeFeatures()
+                    : changedThing.flatMap(Thing::getFeatures).map(thing::setFeatures).orElse(thing);
+        } else if (segments.length == 2 && FEATURES.equals(segments[0])) {
+            return isDeletion
+                    ? thing.removeFeature(segments[1])
+                    : changedFeature(changedThing, segments[1]).map(thing::setFeature).orElse(thing);
+        } else if (segments.length == 3 && FEATURES.equals(segments[0]) && DEFINITION.equals(segments[2])) {
+            return isDeletion
+                    ? thing.removeFeatureDefinition(segments[1])
+                    : changedFeature(changedThing, segments[1]).flatMap(Feature::getDefinition)
+                            .map(definition -> thing.setFeatureDefinition(segments[1], definition))
+                            .orElse(thing);
+        }
+        return thing;
+    }
+
+    private static Optional<Feature> changedFeature(Optional<Thing> changedThing, String featureId) {
+        return changedThing.flatMap(Thing::getFeatures).flatMap(features -> features.getFeature(featureId));
+    }
+
+    private static Map<String, String> definitionsOf(Thing thing) {
+        final Map<String, String> definitions = new HashMap<>();
+        thing.getDefinition().ifPresent(definition -> definitions.put("", definition.toString()));
+        thing.getFeatures().ifPresent(features -> features.forEach(feature -> feature.getDefinition().ifPresent(
+                definition -> definitions.put(feature.getId(), definition.getFirstIdentifier().toString()))));
+        return definitions;
+    }
+
+    /*
+     * Apply a change of the Ditto Thing.
+     */
+    void onThingChange(ThingChange change) {
+        this.refreshOntologyOnDefinitionChange(change);
+        final DTKGTransaction transaction = this.dtkgEngine.beginTransaction();
+        switch (change.getAction()) {
+            case CREATED:
+            case UPDATED:
+                if (!(this.configuration.isIncrementalApplyEnabled() && applyChangedPath(transaction, change))) {
+                    change.getThing().ifPresent(thing -> {
+                        thing.getAttributes().ifPresent(attributes -> applyAttributes(transaction, attributes));
+                        thing.getFeatures().ifPresent(features ->
+                                features.forEach(feature -> applyFeature(transaction, feature)));
+                    });
+                }
+                break;
+            case DELETED:
+                String elementToDelete = change.getPath().toString().split("/")[2];
+                if (change.getPath().toString().contains("attributes")) {
+                    if (elementToDelete.contains("rel-")) {
+                        handleRelationship(transaction, elementToDelete, null, true);
+                    } else {
+                        handleProperty(transaction, elementToDelete, null, false, true, null);
+                    }
+                }
+                if (change.getPath().toString().contains("features")) {
+                    final OntologyIndex ontologyIndex = this.configuration.getOntology().getOntologyIndex();
+                    final Optional<String> feature = Optional.of(elementToDelete);
+                    ontologyIndex.findPropertiesByFeature(feature)
+                            .forEach(prop -> handleProperty(transaction, prop.getField(), null, true, true, elementToDelete));
+                    ontologyIndex.findActionsByFeature(feature)
+                            .forEach(action -> handleAction(transaction, action.getField(), true, elementToDelete));
+                    ontologyIndex.findEventsByFeature(feature)
+                            .forEach(event -> handleEvent(event.getField(), true, elementToDelete));
+                }
+                break;
+            default:
+                break;
+        }
+        transaction.commit();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,236 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.eclipse.ditto.client.changes.ChangeAction;
+import org.eclipse.ditto.client.changes.ThingChange;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.IngestionOverflowPolicy;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Bounded queue that decouples the reception of the Ditto Thing changes from their application.
+ * Changes are applied in order by a single consumer thread, so that the Ditto client thread is never
+ * slowed down by the DTKG and DTD updates. When the queue is full the configured overflow policy is applied.
+ * When coalescing is enabled, a pending update of an attribute or a feature property is replaced by a newer
+ * update of the same path (last value wins), so only the latest value is applied when the adapter falls behind.
+ */
+final class ThingChangeIngestionQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThingChangeIngestionQueue.class);
+
+    private final Consumer<ThingChange> consumer;
+    private final int capacity;
+    private final IngestionOverflowPolicy overflowPolicy;
+    private final boolean coalesceUpdates;
+    private final ExecutorService executor;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final Map<Object, PendingChange> pendingChanges;
+    private final LongAdder droppedChanges;
+    private final LongAdder coalescedChanges;
+    private final LongAdder failedChanges;
+    private final AdapterMetrics.Timer latency;
+    private long nextKey;
+    private boolean closed;
+
+    ThingChangeIngestionQueue(
+        final Consumer<ThingChange> consumer,
+        final int capacity,
+        final IngestionOverflowPolicy overflowPolicy,
+        final boolean coalesceUpdates,
+        final AdapterMetrics metrics
+    ) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The ingestion queue capacity must be positive");
+        }
+        this.consumer = consumer;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.coalesceUpdates = coalesceUpdates || overflowPolicy == IngestionOverflowPolicy.COALESCE;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ditto-ingestion");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.notFull = this.lock.newCondition();
+        this.pendingChanges = new LinkedHashMap<>();
+        this.droppedChanges = metrics.counter("ingestion.dropped");
+        this.coalescedChanges = metrics.counter("ingestion.coalesced");
+        this.failedChanges = metrics.counter("ingestion.failed");
+        this.latency = metrics.timer("ingestion.latency");
+        metrics.gauge("ingestion.queue.depth", this::size);
+    }
+
+    /*
+     * Start the consumer thread.
+     */
+    void start() {
+        this.executor.execute(this::consume);
+    }
+
+    /*
+     * Stop the consumer thread, discarding the pending changes.
+     */
+    void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.pendingChanges.clear();
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        this.executor.shutdownNow();
+    }
+
+    /*
+     * Enqueue a change applying the overflow policy if the queue is full.
+     * Returns false if the change has been discarded.
+     */
+    boolean offer(final ThingChange change) {
+        final PendingChange pendingChange = new PendingChange(change, System.nanoTime());
+        this.lock.lock();
+        try {
+            final Object key = this.keyOf(change);
+            if (this.coalesceUpdates && this.pendingChanges.remove(key) != null) {
+                // The newest change is moved to the tail to preserve the order with respect to the other paths.
+                this.coalescedChanges.increment();
+                this.pendingChanges.put(key, pendingChange);
+                return true;
+            }
+            if (this.overflowPolicy == IngestionOverflowPolicy.BLOCK) {
+                while (!this.closed && this.pendingChanges.size() >= this.capacity) {
+                    this.notFull.await();
+                }
+            } else if (this.pendingChanges.size() >= this.capacity) {
+                this.dropOldest();
+            }
+            if (this.closed) {
+                this.droppedChanges.increment();
+                return false;
+            }
+            this.pendingChanges.put(key, pendingChange);
+            this.notEmpty.signal();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.droppedChanges.increment();
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /*
+     * Obtain the number of pending changes.
+     */
+    long size() {
+        this.lock.lock();
+        try {
+            return this.pendingChanges.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private Object keyOf(final ThingChange change) {
+        if (this.coalesceUpdates) {
+            final Optional<String> pathKey = coalescingKey(change);
+            if (pathKey.isPresent()) {
+                return pathKey.get();
+            }
+        }
+        return this.nextKey++;
+    }
+
+    /*
+     * Only the changes that replace the whole value of an attribute or of a feature property
+     * (or of a part of them) can be coalesced: merge patches must be applied one after the other,
+     * while structural changes of the Thing or of a feature are always kept.
+     */
+    static Optional<String> coalescingKey(final ThingChange change) {
+        if (change.getAction() == ChangeAction.MERGED) {
+            return Optional.empty();
+        }
+        final String path = change.getPath().toString();
+        final String[] segments = (path.startsWith("/") ? path.substring(1) : path).split("/");
+        final boolean isAttributePath = segments.length >= 2 && "attributes".equals(segments[0]);
+        final boolean isFeaturePropertyPath = segments.length >= 4
+                && "features".equals(segments[0])
+                && "properties".equals(segments[2]);
+        return isAttributePath || isFeaturePropertyPath
+                ? Optional.of(change.getEntityId() + "/" + String.join("/", segments))
+                : Optional.empty();
+    }
+
+    private void dropOldest() {
+        final Iterator<PendingChange> iterator = this.pendingChanges.values().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            this.droppedChanges.increment();
+        }
+    }
+
+    private PendingChange take() throws InterruptedException {
+        this.lock.lock();
+        try {
+            while (!this.closed && this.pendingChanges.isEmpty()) {
+                this.notEmpty.await();
+            }
+            if (this.closed) {
+                return null;
+            }
+            final Iterator<PendingChange> iterator = this.pendingChanges.values().iterator();
+            final PendingChange pendingChange = iterator.next();
+            iterator.remove();
+            this.notFull.signal();
+            return pendingChange;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void consume() {
+        try {
+            PendingChange pendingChange = this.take();
+            while (pendingChange != null) {
+                try {
+                    this.consumer.accept(pendingChange.change);
+                } catch (RuntimeException e) {
+                    this.failedChanges.increment();
+                    LOGGER.error("Error applying a Ditto Thing change", e);
+                }
+                this.latency.recordSince(pendingChange.enqueueTime);
+                pendingChange = this.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingChange {
+        private final ThingChange change;
+        private final long enqueueTime;
+
+        PendingChange(final ThingChange change, final long enqueueTime) {
+            this.change = change;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
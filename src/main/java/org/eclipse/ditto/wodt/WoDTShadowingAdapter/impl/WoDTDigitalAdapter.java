@@ -1,12 +1,16 @@
 package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.net.URI;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.ditto.client.changes.ThingChange;
 import org.eclipse.ditto.things.model.Thing;
 import org.eclipse.ditto.wodt.DTDManager.api.DTDManager;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyManagerImpl;
 import org.eclipse.ditto.wodt.DTDManager.impl.WoTDTDManager;
+import org.eclipse.ditto.wodt.DTDManager.impl.YamlOntologyCache;
 import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGEngine;
 import org.eclipse.ditto.wodt.DTKGEngine.impl.JenaDTKGEngine;
 import org.eclipse.ditto.wodt.PlatformManagementInterface.api.PlatformManagementInterface;
@@ -14,10 +18,10 @@ import org.eclipse.ditto.wodt.PlatformManagementInterface.impl.BasePlatformManag
 import org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.api.WoDTWebServer;
 import org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl.WoDTWebServerImpl;
 import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
-import org.eclipse.ditto.wodt.common.ThingModelElement;
-import static org.eclipse.ditto.wodt.common.ThingModelUtils.convertStringToType;
-import static org.eclipse.ditto.wodt.common.ThingModelUtils.extractSubPropertiesNames;
-import static org.eclipse.ditto.wodt.common.ThingModelUtils.extractSubPropertyValue;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.ditto.wodt.common.DittoBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
 * This class represents the Eclipse Ditto Adapter that allows to implement the WoDT Digital Twin layer
@@ -25,212 +29,152 @@ import static org.eclipse.ditto.wodt.common.ThingModelUtils.extractSubPropertyVa
 */
 public final class WoDTDigitalAdapter {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(WoDTDigitalAdapter.class);
+
     private final DTKGEngine dtkgEngine;
     private final DTDManager dtdManager;
     private final WoDTWebServer woDTWebServer;
     private final PlatformManagementInterface platformManagementInterface;
     private final WoDTDigitalAdapterConfiguration configuration;    
     private final DittoThingListener dittoClientThread;
+    private final AdapterMetrics metrics;
+    private final ThingChangeApplier thingChangeApplier;
 
     /**
     * Default constructor.
     * @param configuration the configuration of the Digital Adapter
     */
     public WoDTDigitalAdapter(final WoDTDigitalAdapterConfiguration configuration) {
+        this(configuration, new StartupPhases(new AdapterMetrics()), Optional.empty());
+    }
+
+    private WoDTDigitalAdapter(
+        final WoDTDigitalAdapterConfiguration configuration,
+        final StartupPhases startupPhases,
+        final Optional<WoDTWebServerImpl> startedWebServer
+    ) {
         this.configuration = configuration;
+        this.metrics = startupPhases.getMetrics();
         this.platformManagementInterface = new BasePlatformManagementInterface(
             this.configuration.getDigitalTwinUri());
-        this.dtkgEngine = new JenaDTKGEngine(this.configuration.getDigitalTwinUri());
+        this.dtkgEngine = new JenaDTKGEngine(
+            this.configuration.getDigitalTwinUri(),
+            this.configuration.isDTKGSlotStorageEnabled(),
+            this.configuration.isDTKGSnapshotReadsEnabled());
         this.dtdManager = new WoTDTDManager(
             this.configuration,
-            this.platformManagementInterface
+            this.platformManagementInterface,
+            this.metrics
         );
-        this.syncWithDittoThing(this.configuration.getDittoThing());
-        this.woDTWebServer = new WoDTWebServerImpl(
-            this.configuration.getPortNumber(),
-            this.dtkgEngine,
-            this.dtdManager,
-            this.platformManagementInterface
-        );
-        this.dittoClientThread = new DittoThingListener(this);
-        this.startAdapter();        
-    }
-
-    private void startAdapter() {
-        this.woDTWebServer.start();
-        this.configuration.getPlatformToRegister().forEach(platform ->
-                this.platformManagementInterface.registerToPlatform(platform, this.dtdManager.getDTD().toJson()));
-        dittoClientThread.start();
-    }
-
-    public void stopAdapter() {
-        this.platformManagementInterface.signalDigitalTwinDeletion();
-        this.dittoClientThread.stopThread();
-    }
-
-    private void handleRelationship(String key, String value, boolean isDeletion) {
-        configuration.getOntology().obtainPropertyValueType(key).ifPresent(
-            relType -> {
-                configuration.getOntology().convertRelationship(key, value).ifPresent(triple -> {
-                    if (isDeletion) {
-                        this.dtkgEngine.removeRelationship(triple.getLeft(), triple.getRight());
-                        this.dtdManager.removeRelationship(key);
-                    } else {
-                        this.dtkgEngine.addRelationship(triple.getLeft(), triple.getRight());
-                        this.dtdManager.addRelationship(key);
-                    }
-                });
-            }
-        );
-    }
-    
-    private void handleProperty(String key, String value, boolean isFeatureProperty, boolean isDeletion, String featureId) {
-        String fullPropertyName = (isFeatureProperty ? featureId + "_" : "") + key;
-        configuration.getOntology().convertPropertyValue(fullPropertyName, convertStringToType(value)).ifPresent(triple -> {
-            if (isDeletion) {
-                this.dtkgEngine.removeProperty(triple.getLeft());
-                this.dtdManager.removeProperty(fullPropertyName);
-            } else {
-                this.dtkgEngine.addDigitalTwinPropertyUpdate(triple.getLeft(), triple.getRight());
-                this.dtdManager.addProperty(fullPropertyName);
-            }
+        this.thingChangeApplier = new ThingChangeApplier(this.configuration, this.dtkgEngine, this.dtdManager);
+        startupPhases.run("sync", () -> {
+            this.thingChangeApplier.syncWithDittoThing(this.configuration.getDittoThing());
+            return this.dtkgEngine.getCurrentSequenceNumber();
         });
-    }
-    
-    private void handleAction(String actionId, boolean isDeletion, String featureId) {
-        String fullActionName = (featureId != null ? featureId + "_" : "") + actionId;
-        if (isDeletion) {
-            this.dtdManager.removeAction(fullActionName);
-            this.dtkgEngine.removeActionId(fullActionName);
+        if (startedWebServer.isPresent()) {
+            startedWebServer.get().bindDigitalTwin(
+                this.dtkgEngine,
+                this.dtdManager,
+                this.platformManagementInterface,
+                this.configuration.getDTKGNotificationWindow()
+            );
+            this.woDTWebServer = startedWebServer.get();
         } else {
-            this.dtdManager.addAction(fullActionName);
-            this.dtkgEngine.addActionId(fullActionName);
-        }
-    }
-    
-    private void handleEvent(String eventId, boolean isDeletion, String featureId) {
-        String fullEventName = (featureId != null ? featureId + "_" : "") + eventId;
-        if (isDeletion) {
-            this.dtdManager.removeEvent(fullEventName);
-        } else {
-            this.dtdManager.addEvent(fullEventName);
+            this.woDTWebServer = new WoDTWebServerImpl(
+                this.configuration.getPortNumber(),
+                this.dtkgEngine,
+                this.dtdManager,
+                this.platformManagementInterface,
+                this.configuration.getDTKGNotificationWindow(),
+                this.metrics
+            );
+            this.woDTWebServer.start();
         }
+        this.dittoClientThread = new DittoThingListener(
+            this,
+            this.configuration.getDittoThing().getEntityId().get().toString(),
+            new ThingChangeIngestionQueue(
+                this::onThingChange,
+                this.configuration.getIngestionQueueCapacity(),
+                this.configuration.getIngestionOverflowPolicy(),
+                this.configuration.isIngestionCoalescingEnabled(),
+                this.metrics
+            )
+        );
+        this.startAdapter();
     }
 
-    private void syncWithDittoThing(final Thing thing) {
-        // Thing Attributes (Relationships and Properties)
-        thing.getAttributes().ifPresent(attributes -> {
-            attributes.forEach((attribute) -> {
-                if (attribute.getKey().toString().contains("rel-")) {
-                    handleRelationship(attribute.getKey().toString(), attribute.getValue().asString(), false);
+    /**
+     * Start a Digital Adapter overlapping the independent startup steps. The web server is started first,
+    * answering 503 on its resources and on /ready until the initial synchronization with the Ditto Thing
+    * completes; meanwhile the Ditto Thing is retrieved and the YAML ontology mapping is loaded in parallel,
+    * then the Thing Models are resolved. The duration of each phase is logged and exported in the metrics.
+    * @param thingId the id of the Ditto Thing
+    * @param yamlOntologyPath the path of the YAML ontology mapping
+    * @param physicalAssetId the id of the associated physical asset
+    * @param platformToRegister the platforms to which register
+    * @return the future Digital Adapter, completed when it is ready
+    */
+    public static CompletableFuture<WoDTDigitalAdapter> startAsync(
+        final String thingId,
+        final String yamlOntologyPath,
+        final String physicalAssetId,
+        final Set<URI> platformToRegister
+    ) {
+        final AdapterMetrics metrics = new AdapterMetrics();
+        final StartupPhases startupPhases = new StartupPhases(metrics);
+        final int portNumber = WoDTDigitalAdapterConfiguration.portNumberFromEnvironment();
+        final WoDTWebServerImpl webServer = startupPhases.run("server", () -> {
+            final WoDTWebServerImpl server = new WoDTWebServerImpl(portNumber, metrics);
+            server.start();
+            return server;
+        });
+        final YamlOntologyCache yamlOntologyCache = new YamlOntologyCache();
+        final CompletableFuture<YamlOntologyCache> yamlOntology = startupPhases.runAsync("yaml", () -> {
+            yamlOntologyCache.obtain(yamlOntologyPath);
+            return yamlOntologyCache;
+        });
+        final CompletableFuture<Thing> thing = startupPhases.runAsync("thing",
+            () -> WoDTDigitalAdapterConfiguration.retrieveDittoThing(thingId));
+        return thing
+            .thenCombine(yamlOntology, (dittoThing, cache) -> startupPhases.run("ontology",
+                () -> new OntologyManagerImpl(dittoThing, yamlOntologyPath, cache)))
+            .thenCombine(thing, (ontology, dittoThing) -> new WoDTDigitalAdapterConfiguration(
+                dittoThing,
+                ontology,
+                WoDTDigitalAdapterConfiguration.digitalTwinUriFromEnvironment(),
+                portNumber,
+                physicalAssetId,
+                platformToRegister
+            ))
+            .thenApply(configuration ->
+                new WoDTDigitalAdapter(configuration, startupPhases, Optional.of(webServer)))
+            .whenComplete((adapter, error) -> {
+                if (error != null) {
+                    LOGGER.error("Startup failed", error);
+                    webServer.signalStartupFailure();
                 } else {
-                    handleProperty(attribute.getKey().toString(), attribute.getValue().toString(), false, false, null);
+                    startupPhases.completed();
                 }
             });
-        });
-
-        // Thing Features (Properties, Actions, Events)
-        thing.getFeatures().ifPresent(features -> {
-            features.forEach((feature) -> {
-                feature.getProperties().ifPresent(properties -> {
-                    properties.forEach((property) -> {
-                        List<String> subProperties = extractSubPropertiesNames(property.getValue().toString());
-                        if (!subProperties.isEmpty()) {
-                            subProperties.forEach(subProperty -> {
-                                String fullKey = property.getKey().toString() + "_" + subProperty;
-                                handleProperty(fullKey, extractSubPropertyValue(property.getValue().toString(), subProperty), true, false, feature.getId());
-                            });
-                        } else {
-                            handleProperty(property.getKey().toString(), property.getValue().toString(), true, false, feature.getId());
-                        }
-                    });
-                });
-
-                this.configuration.getOntology().getAvailableActions().stream()
-                        .filter(action -> action.getFeature().isPresent() && action.getFeature().get().equals(feature.getId()))
-                        .forEach(action -> handleAction(action.getField(), false, feature.getId()));
-
-                this.configuration.getOntology().getAvailableEvents().stream()
-                    .filter(event -> event.getFeature().isPresent() && event.getFeature().get().equals(feature.getId()))
-                    .forEach(event -> handleEvent(event.getField(), false, feature.getId()));
-            });
-        });
+    }
 
-        // Thing Actions
-        this.configuration.getOntology().getAvailableActions().stream()
-                .filter(action -> action.getFeature().isEmpty())
-                .forEach(action -> handleAction(action.getField(), false, null));
+    private void startAdapter() {
+        // Registrations do not delay the startup: they are sent concurrently and retried in background.
+        this.platformManagementInterface.registerToPlatforms(
+                this.configuration.getPlatformToRegister(), this.dtdManager::getDTDJson);
+        this.dtdManager.addDTDChangeListener(() ->
+                this.platformManagementInterface.signalDigitalTwinDescriptorUpdate(this.dtdManager::getDTDJson));
+        dittoClientThread.start();
+    }
 
-        // Thing Events
-        this.configuration.getOntology().getAvailableEvents().stream()
-                .filter(event -> event.getFeature().isEmpty())
-                .forEach(event -> handleEvent(event.getField(), false, null));
+    public void stopAdapter() {
+        this.platformManagementInterface.signalDigitalTwinDeletion();
+        this.dittoClientThread.stopThread();
+        DittoBase.closeShared();
     }
 
     public void onThingChange(ThingChange change) {
-        switch (change.getAction()) {
-            case CREATED:
-            case UPDATED:
-                change.getThing().get().getAttributes().ifPresent(attributes -> {
-                    attributes.forEach((attribute) -> {
-                        if (attribute.getKey().toString().contains("rel-")) {
-                            handleRelationship(attribute.getKey().toString(), attribute.getValue().asString(), false);
-                        } else {
-                            handleProperty(attribute.getKey().toString(), attribute.getValue().toString(), false, false, null);
-                        }
-                    });
-                });
-                change.getThing().get().getFeatures().ifPresent(features -> {
-                    features.forEach((feature) -> {
-                        feature.getProperties().ifPresent(properties -> {
-                            properties.forEach((property) -> {
-                                List<String> subProperties = extractSubPropertiesNames(property.getValue().toString());
-                                if (!subProperties.isEmpty()) {
-                                    subProperties.forEach(subProperty -> {
-                                        String fullKey = property.getKey().toString() + "_" + subProperty;
-                                        handleProperty(fullKey, extractSubPropertyValue(property.getValue().toString(), subProperty), true, false, feature.getId());
-                                    });
-                                } else {
-                                    handleProperty(property.getKey().toString(), property.getValue().toString(), true, false, feature.getId());
-                                }
-                            });
-                        });
-                        this.configuration.getOntology().getAvailableActions().stream()
-                                .filter(action -> action.getFeature().isPresent() && action.getFeature().get().equals(feature.getId()))
-                                .forEach(action -> handleAction(action.getField(), false, feature.getId()));
-
-                        this.configuration.getOntology().getAvailableEvents().stream()
-                                .filter(event -> event.getFeature().isPresent() && event.getFeature().get().equals(feature.getId()))
-                                .forEach(event -> handleEvent(event.getField(), false, feature.getId()));
-                    });
-                });
-                break;
-            case DELETED:
-                String elementToDelete = change.getPath().toString().split("/")[2];
-                if (change.getPath().toString().contains("attributes")) {
-                    if (elementToDelete.contains("rel-")) {
-                        handleRelationship(elementToDelete, null, true);
-                    } else {
-                        handleProperty(elementToDelete, null, false, true, null);
-                    }
-                }
-                if (change.getPath().toString().contains("features")) {
-                    List<ThingModelElement> matchingProperties = this.configuration.getOntology().getAvailableProperties().stream()
-                            .filter(p -> p.getFeature().isPresent() && p.getFeature().get().equals(elementToDelete))
-                            .collect(Collectors.toList());
-                    matchingProperties.forEach(prop -> handleProperty(prop.getField(), null, true, true, elementToDelete));
-
-                    this.configuration.getOntology().getAvailableActions().stream()
-                            .filter(action -> action.getFeature().isPresent() && action.getFeature().get().equals(elementToDelete))
-                            .forEach(action -> handleAction(action.getField(), true, elementToDelete));
-
-                    this.configuration.getOntology().getAvailableEvents().stream()
-                            .filter(event -> event.getFeature().isPresent() && event.getFeature().get().equals(elementToDelete))
-                            .forEach(event -> handleEvent(event.getField(), true, elementToDelete));
-                }
-                break;
-            default:
-                break;
-        }
+        this.thingChangeApplier.onThingChange(change);
     }
-}
\ No newline at end of file
+}
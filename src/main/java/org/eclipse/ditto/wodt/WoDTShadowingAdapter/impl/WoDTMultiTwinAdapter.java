@@ -0,0 +1,257 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.ditto.client.changes.ThingChange;
+import org.eclipse.ditto.things.model.Thing;
+import org.eclipse.ditto.things.model.ThingId;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyManagerImpl;
+import org.eclipse.ditto.wodt.DTDManager.impl.WoTDTDManager;
+import org.eclipse.ditto.wodt.DTDManager.impl.YamlOntologyCache;
+import org.eclipse.ditto.wodt.DTKGEngine.impl.JenaDTKGEngine;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.impl.BasePlatformManagementInterface;
+import org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl.MultiTwinWebServerImpl;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTMultiTwinAdapterConfiguration;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.ditto.wodt.common.DittoBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+* This class represents an Eclipse Ditto Adapter that hosts the WoDT Digital Twin layer of many Ditto Things
+* in a single process. The Digital Twins share a single Ditto client subscription, a single ingestion queue,
+* a single HTTP server and the parsed YAML ontology mappings, while each of them has its own DTKG and DTD.
+* Digital Twins can be added and removed while the adapter is running.
+*/
+public final class WoDTMultiTwinAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WoDTMultiTwinAdapter.class);
+    private static final int STARTUP_PARALLELISM = 8;
+
+    private final WoDTMultiTwinAdapterConfiguration configuration;
+    private final AdapterMetrics metrics;
+    private final DittoBase dittoClient;
+    private final YamlOntologyCache yamlOntologyCache;
+    private final Map<String, HostedDigitalTwin> digitalTwins;
+    private final Set<String> addingTwinIds;
+    private final MultiTwinWebServerImpl webServer;
+    private final DittoThingListener dittoClientThread;
+
+    /**
+    * Default constructor.
+    * @param configuration the configuration of the adapter
+    */
+    public WoDTMultiTwinAdapter(final WoDTMultiTwinAdapterConfiguration configuration) {
+        this.configuration = configuration;
+        this.metrics = new AdapterMetrics();
+        this.dittoClient = DittoBase.getShared();
+        this.yamlOntologyCache = new YamlOntologyCache();
+        this.digitalTwins = new ConcurrentHashMap<>();
+        this.addingTwinIds = ConcurrentHashMap.newKeySet();
+        this.webServer = new MultiTwinWebServerImpl(
+            this.configuration.getPortNumber(),
+            this.configuration.getDTKGNotificationWindow(),
+            this.metrics,
+            List.of(new DigitalTwinManagementController(this, configuration))
+        );
+        this.dittoClientThread = new DittoThingListener(
+            this.dittoClient,
+            this.digitalTwins.keySet(),
+            new ThingChangeIngestionQueue(
+                this::onThingChange,
+                this.configuration.getIngestionQueueCapacity(),
+                this.configuration.getIngestionOverflowPolicy(),
+                this.configuration.isIngestionCoalescingEnabled(),
+                this.metrics
+            ),
+            this::stopAdapter
+        );
+        this.webServer.start();
+        this.dittoClientThread.start();
+    }
+
+    /**
+     * Host the Digital Twin of a Ditto Thing, retrieving the Thing with the shared Ditto client.
+    * @param thingId the id of the Ditto Thing, also used as the id of the Digital Twin
+    * @param yamlOntologyPath the path of the YAML ontology mapping
+    * @param physicalAssetId the id of the associated physical asset
+    * @param platformToRegister the platforms to which register
+    * @return false if the Digital Twin was already hosted
+    */
+    public boolean addDigitalTwin(
+        final String thingId,
+        final String yamlOntologyPath,
+        final String physicalAssetId,
+        final Set<URI> platformToRegister
+    ) {
+        // The id is reserved for the whole addition, so concurrent requests for it do not host it twice.
+        if (!this.addingTwinIds.add(thingId)) {
+            return false;
+        }
+        try {
+            return !this.digitalTwins.containsKey(thingId)
+                && this.hostDigitalTwin(thingId, yamlOntologyPath, physicalAssetId, platformToRegister);
+        } finally {
+            this.addingTwinIds.remove(thingId);
+        }
+    }
+
+    private boolean hostDigitalTwin(
+        final String thingId,
+        final String yamlOntologyPath,
+        final String physicalAssetId,
+        final Set<URI> platformToRegister
+    ) {
+        final Thing thing = this.retrieveThing(thingId);
+        final WoDTDigitalAdapterConfiguration twinConfiguration = this.configuration.createDigitalTwinConfiguration(
+            thingId,
+            thing,
+            new OntologyManagerImpl(thing, yamlOntologyPath, this.yamlOntologyCache),
+            physicalAssetId,
+            platformToRegister
+        );
+        final HostedDigitalTwin digitalTwin = new HostedDigitalTwin(twinConfiguration, this.metrics);
+        if (this.digitalTwins.putIfAbsent(thingId, digitalTwin) != null) {
+            return false;
+        }
+        // The Thing is retrieved again once its changes are requested to Ditto, so that no change is missed.
+        // Changes ingested in the meantime are applied before or after the whole Thing, never concurrently.
+        try {
+            this.dittoClientThread.refreshSubscription().toCompletableFuture().join();
+            digitalTwin.syncWithDittoThing(this.retrieveThing(thingId));
+        } catch (final RuntimeException e) {
+            this.digitalTwins.remove(thingId);
+            this.dittoClientThread.refreshSubscription();
+            throw e;
+        }
+        this.webServer.addDigitalTwin(thingId, digitalTwin.dtkgEngine, digitalTwin.dtdManager,
+            digitalTwin.platformManagementInterface);
+        digitalTwin.platformManagementInterface.registerToPlatforms(
+            twinConfiguration.getPlatformToRegister(), digitalTwin.dtdManager::getDTDJson);
+        digitalTwin.dtdManager.addDTDChangeListener(digitalTwin.dtdChangeListener);
+        LOGGER.info("Hosting Digital Twin of Thing {}", thingId);
+        return true;
+    }
+
+    /**
+     * Host the Digital Twins of many Ditto Things, retrieving the Things and resolving their Thing Models
+    * and ontologies in parallel. The Thing id is used as the physical asset id.
+    * @param thingIds the ids of the Ditto Things
+    * @param yamlOntologyPath the path of the YAML ontology mapping
+    * @param platformToRegister the platforms to which register
+    * @return the ids of the Things whose Digital Twin could not be hosted
+    */
+    public Set<String> addDigitalTwins(
+        final Collection<String> thingIds,
+        final String yamlOntologyPath,
+        final Set<URI> platformToRegister
+    ) {
+        final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(thingIds.size(), STARTUP_PARALLELISM)));
+        try {
+            final Map<String, CompletableFuture<Boolean>> additions = new LinkedHashMap<>();
+            thingIds.forEach(thingId -> additions.put(thingId, CompletableFuture.supplyAsync(
+                () -> this.addDigitalTwin(thingId, yamlOntologyPath, thingId, platformToRegister), executor)));
+            final Set<String> failedThingIds = new TreeSet<>();
+            additions.forEach((thingId, addition) -> {
+                try {
+                    addition.join();
+                } catch (CompletionException e) {
+                    LOGGER.error("Unable to host the Digital Twin of Thing " + thingId, e.getCause());
+                    failedThingIds.add(thingId);
+                }
+            });
+            return failedThingIds;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Stop hosting the Digital Twin of a Ditto Thing, signaling its deletion to the registered platforms.
+    * @param thingId the id of the Ditto Thing
+    * @return true if the Digital Twin was hosted
+    */
+    public boolean removeDigitalTwin(final String thingId) {
+        final HostedDigitalTwin digitalTwin = this.digitalTwins.remove(thingId);
+        if (digitalTwin == null) {
+            return false;
+        }
+        this.webServer.removeDigitalTwin(thingId);
+        this.dittoClientThread.refreshSubscription();
+        // The deletion also cancels the registration retries and the pending DTD update.
+        digitalTwin.dtdManager.removeDTDChangeListener(digitalTwin.dtdChangeListener);
+        digitalTwin.platformManagementInterface.signalDigitalTwinDeletion();
+        LOGGER.info("Removed Digital Twin of Thing {}", thingId);
+        return true;
+    }
+
+    /**
+     * Obtain the ids of the hosted Digital Twins.
+    * @return the sorted ids
+    */
+    public Set<String> getDigitalTwinIds() {
+        return new TreeSet<>(this.digitalTwins.keySet());
+    }
+
+    public void stopAdapter() {
+        this.getDigitalTwinIds().forEach(this::removeDigitalTwin);
+        this.dittoClientThread.stopThread();
+        DittoBase.closeShared();
+    }
+
+    private Thing retrieveThing(final String thingId) {
+        return this.dittoClient.getClient().twin()
+            .forId(ThingId.of(thingId))
+            .retrieve()
+            .toCompletableFuture()
+            .join();
+    }
+
+    private void onThingChange(final ThingChange change) {
+        final HostedDigitalTwin digitalTwin = this.digitalTwins.get(change.getEntityId().toString());
+        if (digitalTwin != null) {
+            digitalTwin.onThingChange(change);
+        }
+    }
+
+    private static final class HostedDigitalTwin {
+        private final JenaDTKGEngine dtkgEngine;
+        private final WoTDTDManager dtdManager;
+        private final BasePlatformManagementInterface platformManagementInterface;
+        private final ThingChangeApplier thingChangeApplier;
+        private final Runnable dtdChangeListener;
+
+        HostedDigitalTwin(final WoDTDigitalAdapterConfiguration configuration, final AdapterMetrics metrics) {
+            this.platformManagementInterface = new BasePlatformManagementInterface(configuration.getDigitalTwinUri());
+            this.dtkgEngine = new JenaDTKGEngine(
+                configuration.getDigitalTwinUri(),
+                configuration.isDTKGSlotStorageEnabled(),
+                configuration.isDTKGSnapshotReadsEnabled());
+            this.dtdManager = new WoTDTDManager(configuration, this.platformManagementInterface, metrics);
+            this.thingChangeApplier = new ThingChangeApplier(configuration, this.dtkgEngine, this.dtdManager);
+            this.dtdChangeListener = () -> this.platformManagementInterface
+                .signalDigitalTwinDescriptorUpdate(this.dtdManager::getDTDJson);
+        }
+
+        synchronized void syncWithDittoThing(final Thing thing) {
+            this.thingChangeApplier.syncWithDittoThing(thing);
+        }
+
+        synchronized void onThingChange(final ThingChange change) {
+            this.thingChangeApplier.onThingChange(change);
+        }
+    }
+}
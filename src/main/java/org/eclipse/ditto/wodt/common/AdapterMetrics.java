@@ -0,0 +1,126 @@
+package org.eclipse.ditto.wodt.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lightweight registry of the metrics of a Digital Adapter.
+ * Counters, timers and gauges are created on first use and are safe to update from any thread.
+ * A snapshot of all the registered metrics can be obtained as a map, ready to be serialized.
+*/
+public final class AdapterMetrics {
+    private final Map<String, LongAdder> counters;
+    private final Map<String, Timer> timers;
+    private final Map<String, LongSupplier> gauges;
+
+    /**
+     * Default constructor.
+    */
+    public AdapterMetrics() {
+        this.counters = new ConcurrentHashMap<>();
+        this.timers = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Obtain the counter with the given name, creating it if absent.
+    * @param name the name of the counter
+    * @return the counter
+    */
+    public LongAdder counter(final String name) {
+        return this.counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Obtain the timer with the given name, creating it if absent.
+    * @param name the name of the timer
+    * @return the timer
+    */
+    public Timer timer(final String name) {
+        return this.timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Register a gauge whose value is sampled each time a snapshot is taken.
+    * @param name the name of the gauge
+    * @param value the supplier of the current value
+    */
+    public void gauge(final String name, final LongSupplier value) {
+        this.gauges.put(name, value);
+    }
+
+    /**
+     * Obtain a snapshot of all the registered metrics, sorted by name.
+    * @return the unmodifiable snapshot
+    */
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new TreeMap<>();
+        this.counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        this.timers.forEach((name, timer) -> snapshot.put(name, timer.snapshot()));
+        this.gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Timer that tracks the number, the total and the maximum duration of the recorded events.
+    */
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer() { }
+
+        /**
+         * Record the duration of an event.
+        * @param nanos the duration in nanoseconds
+        */
+        public void record(final long nanos) {
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulate(nanos);
+        }
+
+        /**
+         * Record the time elapsed since the given start.
+        * @param startNanos the start of the event obtained with {@link System#nanoTime()}
+        */
+        public void recordSince(final long startNanos) {
+            this.record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Obtain the number of recorded events.
+        * @return the count
+        */
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        /**
+         * Obtain the total recorded duration.
+        * @return the total duration in nanoseconds
+        */
+        public long getTotalNanos() {
+            return this.totalNanos.sum();
+        }
+
+        private Map<String, Object> snapshot() {
+            final long events = this.count.sum();
+            final long total = this.totalNanos.sum();
+            final Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("count", events);
+            snapshot.put("totalMs", TimeUnit.NANOSECONDS.toMillis(total));
+            snapshot.put("meanUs", events == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(total / events));
+            snapshot.put("maxUs", TimeUnit.NANOSECONDS.toMicros(this.maxNanos.get()));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.eclipse.ditto.wodt.common;
+
+/*
+ * Copyright (c) 2023. Andrea Giulianelli
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.websocket.WsConnectContext;
+import io.javalin.websocket.WsContext;
+
+/**
+ * Lookup of the controller that handles a request to the routes registered by a {@link WebServerController},
+* e.g. the controller bound once the Digital Twin is ready, or the one of the Digital Twin identified by the path.
+* Requests without a controller are answered with a given status, and WebSockets are closed with a given code.
+* @param <C> the type of the controller
+*/
+public final class ControllerLookup<C> {
+    private final Function<Function<String, String>, C> lookup;
+    private final HttpStatus missingStatus;
+    private final int missingCloseCode;
+    private final String missingReason;
+
+    /**
+     * Default constructor.
+    * @param lookup the function that obtains the controller, or null, from the path parameters of the request
+    * @param missingStatus the status of the responses to the requests without a controller
+    * @param missingCloseCode the close code of the WebSockets without a controller
+    * @param missingReason the close reason of the WebSockets without a controller
+    */
+    public ControllerLookup(
+            final Function<Function<String, String>, C> lookup,
+            final HttpStatus missingStatus,
+            final int missingCloseCode,
+            final String missingReason
+    ) {
+        this.lookup = lookup;
+        this.missingStatus = missingStatus;
+        this.missingCloseCode = missingCloseCode;
+        this.missingReason = missingReason;
+    }
+
+    /**
+     * Obtain the lookup of a controller that handles all the requests.
+    * @param controller the controller
+    * @param <C> the type of the controller
+    * @return the lookup
+    */
+    public static <C> ControllerLookup<C> of(final C controller) {
+        return new ControllerLookup<>(pathParams -> controller, HttpStatus.NOT_FOUND, 0, "");
+    }
+
+    /**
+     * Obtain the controller of an HTTP request, answering the request if there is none.
+    * @param context the request context
+    * @return the controller, if any
+    */
+    public Optional<C> find(final Context context) {
+        final Optional<C> controller = Optional.ofNullable(this.lookup.apply(context::pathParam));
+        if (controller.isEmpty()) {
+            context.status(this.missingStatus);
+        }
+        return controller;
+    }
+
+    /**
+     * Obtain the controller of a connecting WebSocket, closing the WebSocket if there is none.
+    * @param context the WebSocket context
+    * @return the controller, if any
+    */
+    public Optional<C> find(final WsConnectContext context) {
+        final Optional<C> controller = Optional.ofNullable(this.lookup.apply(context::pathParam));
+        if (controller.isEmpty()) {
+            context.closeSession(this.missingCloseCode, this.missingReason);
+        }
+        return controller;
+    }
+
+    /**
+     * Obtain the controller of a connected WebSocket.
+    * @param context the WebSocket context
+    * @return the controller, if any
+    */
+    public Optional<C> find(final WsContext context) {
+        return Optional.ofNullable(this.lookup.apply(context::pathParam));
+    }
+}
@@ -48,6 +48,7 @@ public class DittoBase {
 
     private static final ConfigProperties CONFIG_PROPERTIES = ConfigProperties.getInstance();
     private static final int TIMEOUT = 10;
+    private static DittoBase sharedInstance;
     private final DittoClient client;
 
     public DittoBase() {
@@ -58,6 +59,28 @@ public class DittoBase {
         }
     }
 
+    /**
+     * Returns the connection shared by all the components of the process, connecting it on the first call.
+     * Components using the shared connection must not terminate it.
+     */
+    public static synchronized DittoBase getShared() {
+        if (sharedInstance == null) {
+            sharedInstance = new DittoBase();
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Terminates the connection shared by the process, if connected, so that a following {@link #getShared()}
+     * connects again. Only the owner of the process calls it, e.g. when the adapter is stopped.
+     */
+    public static synchronized void closeShared() {
+        if (sharedInstance != null) {
+            sharedInstance.terminate();
+            sharedInstance = null;
+        }
+    }
+
     public DittoClient getClient() {
         return this.client;
     }
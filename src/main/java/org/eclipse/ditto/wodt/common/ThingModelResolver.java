@@ -0,0 +1,348 @@
+package org.eclipse.ditto.wodt.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/*
+ * Resolver of Thing Model documents, with an in-memory and an optional on-disk cache.
+ * A cached Thing Model is used without contacting its server for the TTL, then it is revalidated
+ * with its ETag or Last-Modified, and still used if the server cannot be reached.
+ * Concurrent requests of the same Thing Model share a single fetch.
+ * With a mirror directory no request leaves the process: http(s) Thing Models are read
+ * from <mirror>/<host>/<path>, as file: Thing Models always are.
+ *
+ * The default resolver is configured by the TM_CACHE_DIR, TM_CACHE_TTL_SECONDS,
+ * TM_FETCH_TIMEOUT_MS and TM_MIRROR_DIR environment variables.
+ */
+public final class ThingModelResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThingModelResolver.class);
+    private static final long DEFAULT_TTL_SECONDS = 300;
+    private static final long DEFAULT_FETCH_TIMEOUT_MS = 10_000;
+    private static final int NOT_MODIFIED = 304;
+    private static final int OK = 200;
+    private static ThingModelResolver defaultInstance;
+
+    private final HttpClient httpClient;
+    private final Duration ttl;
+    private final Duration fetchTimeout;
+    private final Optional<Path> cacheDirectory;
+    private final Optional<Path> mirrorDirectory;
+    private final Map<String, CachedThingModel> cache;
+    private final Map<String, CompletableFuture<JsonObject>> inFlight;
+
+    public ThingModelResolver(
+        Duration ttl,
+        Duration fetchTimeout,
+        Optional<Path> cacheDirectory,
+        Optional<Path> mirrorDirectory
+    ) {
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(fetchTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        this.ttl = ttl;
+        this.fetchTimeout = fetchTimeout;
+        this.cacheDirectory = cacheDirectory;
+        this.mirrorDirectory = mirrorDirectory;
+        this.cache = new ConcurrentHashMap<>();
+        this.inFlight = new ConcurrentHashMap<>();
+    }
+
+    /*
+     * Obtain the resolver shared by the process, configured from the environment.
+     */
+    public static synchronized ThingModelResolver getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new ThingModelResolver(
+                Duration.ofSeconds(readLongEnv("TM_CACHE_TTL_SECONDS", DEFAULT_TTL_SECONDS)),
+                Duration.ofMillis(readLongEnv("TM_FETCH_TIMEOUT_MS", DEFAULT_FETCH_TIMEOUT_MS)),
+                readPathEnv("TM_CACHE_DIR"),
+                readPathEnv("TM_MIRROR_DIR")
+            );
+        }
+        return defaultInstance;
+    }
+
+    private static long readLongEnv(String name, long defaultValue) {
+        return Optional.ofNullable(System.getenv(name))
+            .filter(value -> !value.isBlank())
+            .map(value -> Long.parseLong(value.trim()))
+            .orElse(defaultValue);
+    }
+
+    private static Optional<Path> readPathEnv(String name) {
+        return Optional.ofNullable(System.getenv(name))
+            .filter(value -> !value.isBlank())
+            .map(value -> Paths.get(value.trim()));
+    }
+
+    /*
+     * Obtain the Thing Model at the given URL. The returned document is shared and must not be modified.
+     */
+    public CompletableFuture<JsonObject> resolve(String url) {
+        final CachedThingModel cached = this.cache.get(url);
+        if (cached != null && cached.isFresh(this.ttl)) {
+            return CompletableFuture.completedFuture(cached.document);
+        }
+        final CompletableFuture<JsonObject> pending = new CompletableFuture<>();
+        final CompletableFuture<JsonObject> existing = this.inFlight.putIfAbsent(url, pending);
+        if (existing != null) {
+            return existing;
+        }
+        final CompletableFuture<JsonObject> loading;
+        try {
+            loading = this.load(url);
+        } catch (RuntimeException e) {
+            // The pending fetch must always complete, or the following requests of the URL would wait forever.
+            this.inFlight.remove(url, pending);
+            pending.completeExceptionally(e);
+            return pending;
+        }
+        loading.whenComplete((document, error) -> {
+            this.inFlight.remove(url, pending);
+            if (error != null) {
+                pending.completeExceptionally(error);
+            } else {
+                pending.complete(document);
+            }
+        });
+        return pending;
+    }
+
+    /*
+     * Obtain the URL of a Thing Model linked by another one, e.g. with tm:extends, resolving a relative href
+     * against the URL of the linking Thing Model.
+     */
+    public static String resolveHref(String baseUrl, String href) {
+        try {
+            return URI.create(baseUrl).resolve(href).toString();
+        } catch (IllegalArgumentException e) {
+            // An invalid URL is reported when it is resolved.
+            return href;
+        }
+    }
+
+    /*
+     * Forget all the cached Thing Models, in memory and on disk.
+     */
+    public void invalidateAll() {
+        this.cache.clear();
+        this.cacheDirectory.ifPresent(directory -> {
+            try (var files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            } catch (IOException e) {
+                LOGGER.warn("Unable to clear the Thing Model cache directory " + directory, e);
+            }
+        });
+    }
+
+    private CompletableFuture<JsonObject> load(String url) {
+        final URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!uri.isAbsolute() || (!"file".equalsIgnoreCase(uri.getScheme()) && uri.getHost() == null)) {
+            return CompletableFuture.failedFuture(new IOException("Unsupported Thing Model URL " + url));
+        }
+        final Optional<Path> localFile = this.localFile(uri);
+        if (localFile.isPresent()) {
+            try {
+                return CompletableFuture.completedFuture(this.readLocalFile(url, localFile.get()));
+            } catch (CompletionException e) {
+                return CompletableFuture.failedFuture(e.getCause());
+            }
+        }
+        final Optional<CachedThingModel> cached = Optional.ofNullable(this.cache.get(url))
+            .or(() -> this.readFromDisk(url));
+        if (cached.isPresent() && cached.get().isFresh(this.ttl)) {
+            this.cache.put(url, cached.get());
+            return CompletableFuture.completedFuture(cached.get().document);
+        }
+        final HttpRequest.Builder request = HttpRequest.newBuilder().uri(uri).timeout(this.fetchTimeout);
+        cached.ifPresent(model -> {
+            model.etag.ifPresent(etag -> request.header("If-None-Match", etag));
+            model.lastModified.ifPresent(lastModified -> request.header("If-Modified-Since", lastModified));
+        });
+        return this.httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+            .thenApply(response -> this.onResponse(url, response, cached))
+            .exceptionally(error -> {
+                if (cached.isPresent()) {
+                    LOGGER.warn("Unable to revalidate Thing Model " + url + ", using the cached one", error);
+                    return cached.get().document;
+                }
+                throw error instanceof CompletionException
+                    ? (CompletionException) error
+                    : new CompletionException(error);
+            });
+    }
+
+    private JsonObject onResponse(String url, HttpResponse<String> response, Optional<CachedThingModel> cached) {
+        final CachedThingModel model;
+        if (response.statusCode() == NOT_MODIFIED && cached.isPresent()) {
+            model = cached.get().revalidated();
+        } else if (response.statusCode() == OK) {
+            model = new CachedThingModel(
+                response.body(),
+                JsonParser.parseString(response.body()).getAsJsonObject(),
+                response.headers().firstValue("ETag"),
+                response.headers().firstValue("Last-Modified"),
+                Instant.now()
+            );
+        } else {
+            throw new CompletionException(
+                new IOException("Unexpected status " + response.statusCode() + " fetching Thing Model " + url));
+        }
+        this.cache.put(url, model);
+        this.writeToDisk(url, model);
+        return model.document;
+    }
+
+    private Optional<Path> localFile(URI uri) {
+        if ("file".equalsIgnoreCase(uri.getScheme())) {
+            return Optional.of(Paths.get(uri));
+        }
+        return this.mirrorDirectory.map(mirror -> {
+            final String path = Optional.ofNullable(uri.getPath()).orElse("");
+            return mirror.resolve(uri.getHost()).resolve(path.startsWith("/") ? path.substring(1) : path);
+        });
+    }
+
+    private JsonObject readLocalFile(String url, Path file) {
+        try {
+            final String body = Files.readString(file, StandardCharsets.UTF_8);
+            final JsonObject document = JsonParser.parseString(body).getAsJsonObject();
+            // Local files are always fresh: they are read again only when evicted.
+            this.cache.put(url, new CachedThingModel(body, document, Optional.empty(), Optional.empty(), Instant.MAX));
+            return document;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Optional<CachedThingModel> readFromDisk(String url) {
+        return this.cacheDirectory.flatMap(directory -> {
+            final Path metadataFile = directory.resolve(cacheKey(url) + ".properties");
+            final Path bodyFile = directory.resolve(cacheKey(url) + ".json");
+            if (!Files.exists(metadataFile) || !Files.exists(bodyFile)) {
+                return Optional.empty();
+            }
+            try (InputStream input = Files.newInputStream(metadataFile)) {
+                final Properties metadata = new Properties();
+                metadata.load(input);
+                if (!url.equals(metadata.getProperty("url"))) {
+                    return Optional.empty();
+                }
+                final String body = Files.readString(bodyFile, StandardCharsets.UTF_8);
+                return Optional.of(new CachedThingModel(
+                    body,
+                    JsonParser.parseString(body).getAsJsonObject(),
+                    Optional.ofNullable(metadata.getProperty("etag")),
+                    Optional.ofNullable(metadata.getProperty("lastModified")),
+                    Instant.parse(metadata.getProperty("fetchedAt"))
+                ));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Ignoring the unreadable cached Thing Model " + url, e);
+                return Optional.empty();
+            }
+        });
+    }
+
+    private void writeToDisk(String url, CachedThingModel model) {
+        this.cacheDirectory.ifPresent(directory -> {
+            final Path metadataFile = directory.resolve(cacheKey(url) + ".properties");
+            final Path bodyFile = directory.resolve(cacheKey(url) + ".json");
+            try {
+                Files.createDirectories(directory);
+                final Properties metadata = new Properties();
+                metadata.setProperty("url", url);
+                model.etag.ifPresent(etag -> metadata.setProperty("etag", etag));
+                model.lastModified.ifPresent(lastModified -> metadata.setProperty("lastModified", lastModified));
+                metadata.setProperty("fetchedAt", model.fetchedAt.toString());
+                // Written to temporary files and moved, so a concurrent reader never sees a partial file.
+                final Path temporaryBody = Files.createTempFile(directory, "tm", ".tmp");
+                Files.writeString(temporaryBody, model.body, StandardCharsets.UTF_8);
+                Files.move(temporaryBody, bodyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                final Path temporaryMetadata = Files.createTempFile(directory, "tm", ".tmp");
+                try (OutputStream output = Files.newOutputStream(temporaryMetadata)) {
+                    metadata.store(output, null);
+                }
+                Files.move(temporaryMetadata, metadataFile,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to cache on disk the Thing Model " + url, e);
+            }
+        });
+    }
+
+    private static String cacheKey(String url) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final StringBuilder key = new StringBuilder();
+            for (final byte value : digest.digest(url.getBytes(StandardCharsets.UTF_8))) {
+                key.append(String.format("%02x", value));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class CachedThingModel {
+        private final String body;
+        private final JsonObject document;
+        private final Optional<String> etag;
+        private final Optional<String> lastModified;
+        private final Instant fetchedAt;
+
+        CachedThingModel(
+            String body,
+            JsonObject document,
+            Optional<String> etag,
+            Optional<String> lastModified,
+            Instant fetchedAt
+        ) {
+            this.body = body;
+            this.document = document;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isFresh(Duration ttl) {
+            return this.fetchedAt.equals(Instant.MAX) || Instant.now().isBefore(this.fetchedAt.plus(ttl));
+        }
+
+        CachedThingModel revalidated() {
+            return new CachedThingModel(this.body, this.document, this.etag, this.lastModified, Instant.now());
+        }
+    }
+}
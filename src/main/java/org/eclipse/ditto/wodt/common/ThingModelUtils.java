@@ -1,17 +1,20 @@
 package org.eclipse.ditto.wodt.common;
 
-import java.io.IOException;
 import java.math.BigInteger;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.ditto.json.JsonValue;
 import org.eclipse.ditto.things.model.Thing;
 import org.eclipse.ditto.wodt.model.ontology.WoDTVocabulary;
 import org.slf4j.Logger;
@@ -27,22 +30,75 @@ import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
 /*
- * Utility class for Thing-related operations
+ * Utility class for Thing-related operations.
+ * An instance holds the immutable result of the resolution of the Thing Models of a Thing:
+ * instances do not share state, so the Thing Models of many Things can be resolved concurrently.
  */
 public final class ThingModelUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ThingModelUtils.class);
 
-    private static final HttpClient httpClient = HttpClient.newHttpClient();
-    private static Optional<String> digitalTwinType;
-    private static List<ThingModelElement> contextExtensionsList;
-    private static List<ThingModelElement> propertiesList;
-    private static List<ThingModelElement> actionsList;
-    private static List<ThingModelElement> eventsList;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private final ThingModelResolver thingModelResolver;
+    private final Optional<String> digitalTwinType;
+    private final List<ThingModelElement> contextExtensionsList;
+    private final List<ThingModelElement> propertiesList;
+    private final List<ThingModelElement> actionsList;
+    private final List<ThingModelElement> eventsList;
 
     public ThingModelUtils(Thing thing) {
-        digitalTwinType = Optional.empty();
-        this.extractDataFromThing(thing);
+        this(thing, ThingModelResolver.getDefault());
+    }
+
+    public ThingModelUtils(Thing thing, ThingModelResolver thingModelResolver) {
+        this.thingModelResolver = thingModelResolver;
+        this.prefetchThingModels(thing);
+        final ExtractedModel model = this.extractDataFromThing(thing);
+        this.digitalTwinType = model.digitalTwinType;
+        this.contextExtensionsList = List.copyOf(model.contextExtensions);
+        this.propertiesList = List.copyOf(model.properties);
+        this.actionsList = List.copyOf(model.actions);
+        this.eventsList = List.copyOf(model.events);
+    }
+
+    /*
+     * Fetch in parallel the Thing Models of the Thing and of its features, with all the linked submodels,
+     * so that the extraction, that follows the links in order, finds them already resolved.
+     */
+    private void prefetchThingModels(Thing thing) {
+        final Set<String> visitedUrls = ConcurrentHashMap.newKeySet();
+        final List<CompletableFuture<Void>> fetches = new ArrayList<>();
+        thing.getDefinition().ifPresent(definition -> fetches.add(prefetch(definition.toString(), visitedUrls)));
+        thing.getFeatures().ifPresent(features -> features.forEach(feature ->
+            feature.getDefinition().ifPresent(definition ->
+                fetches.add(prefetch(definition.getFirstIdentifier().toString(), visitedUrls)))));
+        try {
+            CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            // The Thing Models that cannot be fetched are reported during the extraction.
+        }
+    }
+
+    private CompletableFuture<Void> prefetch(String url, Set<String> visitedUrls) {
+        if (!visitedUrls.add(url)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return this.thingModelResolver.resolve(url).thenCompose(jsonObject -> {
+            final List<CompletableFuture<Void>> linkedFetches = new ArrayList<>();
+            if (jsonObject.has("links")) {
+                jsonObject.getAsJsonArray("links").forEach(linkElement -> {
+                    JsonObject link = linkElement.getAsJsonObject();
+                    if (link.has("rel") && link.has("href")) {
+                        String rel = link.get("rel").getAsString();
+                        if ("tm:submodel".equals(rel) || "tm:extends".equals(rel)) {
+                            final String href = ThingModelResolver.resolveHref(url, link.get("href").getAsString());
+                            linkedFetches.add(prefetch(href, visitedUrls));
+                        }
+                    }
+                });
+            }
+            return CompletableFuture.allOf(linkedFetches.toArray(new CompletableFuture<?>[0]));
+        });
     }
 
     /**
@@ -53,55 +109,34 @@ public final class ThingModelUtils {
      * [2] = Actions list with element:                         (name, featureName?, type?)
      * [3] = Events list with element:                          (name, featureName?, type?)
      */
-    private void extractDataFromThing(Thing thing) {
-        contextExtensionsList = new ArrayList<>();
-        propertiesList = new ArrayList<>();
-        actionsList = new ArrayList<>();
-        eventsList = new ArrayList<>();
+    private ExtractedModel extractDataFromThing(Thing thing) {
+        final ExtractedModel model = new ExtractedModel();
 
         // Current Thing
-        extractDataFromCurrentModel(
-            thing.getDefinition().get().toString(), "",
-            contextExtensionsList, propertiesList,
-            actionsList, eventsList
-        );
+        extractDataFromCurrentModel(thing.getDefinition().get().toString(), "", model);
 
         // Submodels
         thing.getFeatures().ifPresent(features -> {
             features.forEach((feature) -> {
                 String featureName = feature.getId();
                 feature.getDefinition().ifPresent(def -> {
-                    extractDataFromCurrentModel(
-                        def.getFirstIdentifier().toString(), featureName,
-                        contextExtensionsList, propertiesList,
-                        actionsList, eventsList
-                    );
+                    extractDataFromCurrentModel(def.getFirstIdentifier().toString(), featureName, model);
                 });
             });
         });
+        return model;
     }
 
-    private static void extractDataFromCurrentModel(
-        String url,
-        String featureName,
-        List<ThingModelElement> contextExtensionsList,
-        List<ThingModelElement> propertiesList,
-        List<ThingModelElement> actionsList,
-        List<ThingModelElement> eventsList
-    ) {
+    private void extractDataFromCurrentModel(String url, String featureName, ExtractedModel model) {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            JsonObject jsonObject = JsonParser.parseString(response.body()).getAsJsonObject();
+            JsonObject jsonObject = this.thingModelResolver.resolve(url).join();
 
             // Digital twin type
             if (jsonObject.has("@type")) {
                 try {
                     JsonArray typeArray = jsonObject.getAsJsonArray("@type");
                     if (typeArray.size() > 1) {
-                        digitalTwinType = Optional.of(typeArray.get(1).getAsString());
+                        model.digitalTwinType = Optional.of(typeArray.get(1).getAsString());
                     }
                 } catch (Exception e) {
                     // Continue
@@ -117,7 +152,7 @@ public final class ThingModelUtils {
                         for (Map.Entry<String, JsonElement> entry : contextObj.entrySet()) {
                             String alias = entry.getKey();
                             String contextUrl = entry.getValue().getAsString();
-                            addModelElement(contextExtensionsList, new ThingModelElement(alias, Optional.of(contextUrl), Optional.empty(), Optional.empty()));
+                            model.contextExtensions.add(new ThingModelElement(alias, Optional.of(contextUrl), Optional.empty(), Optional.empty()));
                         }
                     }
                 }
@@ -139,11 +174,11 @@ public final class ThingModelUtils {
                             Optional<String> subType = subProperty.has("@type") ? Optional.of(subProperty.get("@type").getAsString()) : Optional.empty();
                             Optional<String> subDomainPredicate = subProperty.has(WoDTVocabulary.DOMAIN_PREDICATE.getUri())
                                 ? Optional.of(subProperty.get(WoDTVocabulary.DOMAIN_PREDICATE.getUri()).getAsString()) : Optional.empty();
-                            addModelElement(propertiesList, new ThingModelElement(propertyKey + "_" + subPropertyKey, Optional.of(featureName), subType, subDomainPredicate));
+                            model.properties.add(new ThingModelElement(propertyKey + "_" + subPropertyKey, Optional.of(featureName), subType, subDomainPredicate));
                         }
                     } else {
                         // Simple properties
-                        addModelElement(propertiesList, new ThingModelElement(propertyKey, Optional.of(featureName), type, domainPredicate));
+                        model.properties.add(new ThingModelElement(propertyKey, Optional.of(featureName), type, domainPredicate));
                     }
                 }
             }
@@ -154,7 +189,7 @@ public final class ThingModelUtils {
                 for (String actionKey : actions.keySet()) {
                     JsonObject action = actions.getAsJsonObject(actionKey);
                     Optional<String> type = action.has("@type") ? Optional.of(action.get("@type").getAsString()) : Optional.empty();
-                    addModelElement(actionsList, new ThingModelElement(actionKey, Optional.of(featureName), type, Optional.empty()));
+                    model.actions.add(new ThingModelElement(actionKey, Optional.of(featureName), type, Optional.empty()));
                 }
             }
 
@@ -167,7 +202,7 @@ public final class ThingModelUtils {
                     if (event.has("data") && event.getAsJsonObject("data").has("type")) {
                         type = Optional.of(event.getAsJsonObject("data").get("type").getAsString());
                     }
-                    addModelElement(eventsList, new ThingModelElement(eventKey, Optional.of(featureName), type, Optional.empty()));
+                    model.events.add(new ThingModelElement(eventKey, Optional.of(featureName), type, Optional.empty()));
                 }
             }
 
@@ -179,18 +214,18 @@ public final class ThingModelUtils {
                     if (link.has("rel")) {
                         String rel = link.get("rel").getAsString();
                         if ("tm:submodel".equals(rel)) {
-                            String href = link.get("href").getAsString();
+                            String href = ThingModelResolver.resolveHref(url, link.get("href").getAsString());
                             String instanceName = link.has("instanceName") ? link.get("instanceName").getAsString() : "";
-                            extractDataFromCurrentModel(href, instanceName, contextExtensionsList, propertiesList, actionsList, eventsList);
+                            extractDataFromCurrentModel(href, instanceName, model);
                         } else if ("tm:extends".equals(rel)) {
-                            String href = link.get("href").getAsString();
-                            extractDataFromCurrentModel(href, featureName, contextExtensionsList, propertiesList, actionsList, eventsList);
+                            String href = ThingModelResolver.resolveHref(url, link.get("href").getAsString());
+                            extractDataFromCurrentModel(href, featureName, model);
                         }
                     }
                 });
             }
-        } catch (IOException | InterruptedException e) {
-            LOGGER.error("Error during thing model parsing: " + url, e);
+        } catch (CompletionException e) {
+            LOGGER.error("Error during thing model parsing: " + url, e.getCause());
         }
     }
 
@@ -243,14 +278,110 @@ public final class ThingModelUtils {
         return input.replace("\"", "");
     }
 
+    /*
+     * Convert a Ditto JSON value to its corresponding type, with the same result of
+     * convertStringToType(value.toString()) but without serializing and parsing it again.
+     */
+    public static Object convertJsonValueToType(final JsonValue value) {
+        if (value == null || value.isNull()) {
+            return null;
+        } else if (value.isBoolean()) {
+            return value.asBoolean();
+        } else if (value.isNumber()) {
+            return convertNumber(value);
+        } else if (value.isString()) {
+            return value.asString().replace("\"", "");
+        } else {
+            return convertStringToType(value.toString());
+        }
+    }
+
+    /*
+     * Convert each sub-property of a JSON object property to its corresponding type in a single pass,
+     * with the same result of extractSubPropertiesNames and convertStringToType(extractSubPropertyValue(...)).
+     * The map preserves the order of the sub-properties and is empty if the value is not an object.
+     */
+    public static Map<String, Object> convertSubProperties(final JsonValue value) {
+        if (value == null || !value.isObject()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Object> subProperties = new LinkedHashMap<>();
+        value.asObject().forEach(field ->
+            subProperties.put(field.getKey().toString(), convertSubPropertyValue(field.getValue())));
+        return subProperties;
+    }
+
+    /*
+     * Convert the value of a sub-property to its corresponding type. As for extractSubPropertyValue,
+     * strings are interpreted by their content and nested objects or arrays have no textual value.
+     */
+    public static Object convertSubPropertyValue(final JsonValue value) {
+        if (value.isString()) {
+            return convertText(value.asString());
+        } else if (value.isObject() || value.isArray()) {
+            return "";
+        } else {
+            return convertJsonValueToType(value);
+        }
+    }
+
+    private static Object convertNumber(final JsonValue value) {
+        final String text = value.toString();
+        if (isIntegral(text)) {
+            return value.isLong() ? BigInteger.valueOf(value.asLong()) : Double.valueOf(text);
+        }
+        return value.asDouble();
+    }
+
+    private static Object convertText(final String text) {
+        if (text.equalsIgnoreCase("null")) {
+            return null;
+        } else if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+            return Boolean.valueOf(text);
+        } else if (isIntegral(text) && text.length() < 19) {
+            // Shorter than Long.MIN_VALUE/MAX_VALUE digits: it always fits in a long.
+            return BigInteger.valueOf(Long.parseLong(text));
+        } else if (isDecimal(text) || text.startsWith("{") || text.startsWith("[")) {
+            // Rare cases, delegated to the textual conversion.
+            return convertStringToType(text);
+        } else {
+            return text.replace("\"", "");
+        }
+    }
+
+    private static boolean isIntegral(final String text) {
+        final int start = !text.isEmpty() && (text.charAt(0) == '-' || text.charAt(0) == '+') ? 1 : 0;
+        if (start == text.length()) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDecimal(final String text) {
+        boolean digits = false;
+        for (int i = 0; i < text.length(); i++) {
+            final char character = text.charAt(i);
+            if (character >= '0' && character <= '9') {
+                digits = true;
+            } else if ("+-.eE".indexOf(character) < 0) {
+                return false;
+            }
+        }
+        return digits;
+    }
+
     /*
      * Extract the names of the sub-properties of a JSON property.
      */
     public static List<String> extractSubPropertiesNames(final String jsonProperty) {
         List<String> subProperties = new ArrayList<>();
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            JsonNode rootNode = objectMapper.readTree(jsonProperty);
+            JsonNode rootNode = OBJECT_MAPPER.readTree(jsonProperty);
             if (rootNode.isObject()) {
                 Iterator<String> fieldNames = rootNode.fieldNames();
                 while (fieldNames.hasNext()) {
@@ -268,9 +399,8 @@ public final class ThingModelUtils {
      * Extract the value of a sub-property of a JSON property.
      */
     public static String extractSubPropertyValue(final String jsonValue, final String key) {
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            JsonNode rootNode = objectMapper.readTree(jsonValue);
+            JsonNode rootNode = OBJECT_MAPPER.readTree(jsonValue);
             if (rootNode.isObject() && rootNode.has(key)) {
                 JsonNode subPropertyNode = rootNode.get(key);
                 return subPropertyNode.asText();
@@ -281,29 +411,35 @@ public final class ThingModelUtils {
         return null;
     }
 
-    private static void addModelElement(List<ThingModelElement> list, ThingModelElement element) {
-        if (!list.contains(element)) {
-            list.add(element);
-        }
-    }
-
     public Optional<String> getDigitalTwinType() {
-        return digitalTwinType;
-    }    
+        return this.digitalTwinType;
+    }
 
     public List<ThingModelElement> getTMContextExtensions() {
-        return List.copyOf(contextExtensionsList);
+        return this.contextExtensionsList;
     }
 
     public List<ThingModelElement> getTMProperties() {
-        return List.copyOf(propertiesList);
+        return this.propertiesList;
     }
 
     public List<ThingModelElement> getTMActions() {
-        return List.copyOf(actionsList);
+        return this.actionsList;
     }
 
     public List<ThingModelElement> getTMEvents() {
-        return List.copyOf(eventsList);
+        return this.eventsList;
+    }
+
+    /*
+     * Elements collected during the resolution of the Thing Models of a Thing.
+     * The linked sets drop the duplicates, keeping the order in which the elements are first found.
+     */
+    private static final class ExtractedModel {
+        private Optional<String> digitalTwinType = Optional.empty();
+        private final Set<ThingModelElement> contextExtensions = new LinkedHashSet<>();
+        private final Set<ThingModelElement> properties = new LinkedHashSet<>();
+        private final Set<ThingModelElement> actions = new LinkedHashSet<>();
+        private final Set<ThingModelElement> events = new LinkedHashSet<>();
     }
 }
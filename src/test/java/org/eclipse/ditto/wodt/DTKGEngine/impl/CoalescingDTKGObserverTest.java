@@ -0,0 +1,159 @@
+package org.eclipse.ditto.wodt.DTKGEngine.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGObserver;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGUpdate;
+import org.eclipse.ditto.wodt.model.ontology.Literal;
+import org.eclipse.ditto.wodt.model.ontology.Property;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CoalescingDTKGObserverTest {
+
+    private static final String TWIN_URI = "http://example.org/twin";
+    private static final Property SPEED = new Property("http://example.org/speed");
+    private static final Property STATUS = new Property("http://example.org/status");
+    private static final int BURST_SIZE = 100;
+
+    private ScheduledExecutorService scheduler;
+    private List<DTKGUpdate> updates;
+    private List<String> graphs;
+    private DTKGObserver recorder;
+
+    @BeforeEach
+    void setUp() {
+        this.scheduler = CoalescingDTKGObserver.newNotifierScheduler();
+        this.updates = new CopyOnWriteArrayList<>();
+        this.graphs = new CopyOnWriteArrayList<>();
+        this.recorder = new DTKGObserver() {
+            @Override
+            public void notifyNewDTKG(final String dtkg) {
+                graphs.add(dtkg);
+            }
+
+            @Override
+            public void notifyDTKGUpdate(final DTKGUpdate update) {
+                updates.add(update);
+                graphs.add(update.getDigitalTwinKnowledgeGraph());
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.scheduler.shutdownNow();
+    }
+
+    @Test
+    void testBurstWithinWindowIsNotifiedOnceWithoutCopies() throws Exception {
+        for (final boolean slotStorage : new boolean[] {true, false}) {
+            this.updates.clear();
+            this.graphs.clear();
+            final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI, slotStorage);
+            final CoalescingDTKGObserver observer = new CoalescingDTKGObserver(
+                    this.recorder, engine, Duration.ofHours(1), this.scheduler);
+            engine.addDTKGObserver(observer);
+
+            for (int i = 1; i <= BURST_SIZE; i++) {
+                engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(i));
+            }
+            engine.addDigitalTwinPropertyUpdate(STATUS, new Literal<>("moving"));
+            observer.flush();
+            this.awaitNotifications();
+
+            assertEquals(0, engine.getGraphCopyCount());
+            assertEquals(1, this.updates.size());
+            assertEquals(BURST_SIZE + 1, this.updates.get(0).getSequenceNumber());
+            assertEquals(engine.getCurrentDigitalTwinKnowledgeGraph(), this.graphs.get(0));
+            assertTrue(this.graphs.get(0).contains(String.valueOf(BURST_SIZE)));
+            assertTrue(this.graphs.get(0).contains("moving"));
+        }
+    }
+
+    @Test
+    void testCoalescedUpdateHasTheGraphOfItsSequenceNumber() throws Exception {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final CoalescingDTKGObserver observer = new CoalescingDTKGObserver(
+                this.recorder, engine, Duration.ofHours(1), this.scheduler);
+        engine.addDTKGObserver(observer);
+
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+        observer.flush();
+        this.awaitNotifications();
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+        observer.flush();
+        this.awaitNotifications();
+
+        assertEquals(2, this.updates.size());
+        assertEquals(1, this.updates.get(0).getSequenceNumber());
+        assertEquals(2, this.updates.get(1).getSequenceNumber());
+        assertTrue(this.graphs.get(0).contains("1"));
+        assertTrue(this.graphs.get(1).contains("2"));
+        assertEquals(0, engine.getGraphCopyCount());
+    }
+
+    @Test
+    void testFlushWaitsForTheUpdatesOfTheGraphRead() throws Exception {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final CoalescingDTKGObserver observer = new CoalescingDTKGObserver(
+                this.recorder, engine, Duration.ofHours(1), this.scheduler);
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+
+        // The second update has been written but not yet received when the window ends.
+        observer.notifyDTKGUpdate(new DTKGUpdate(1, Set.of("<a> <b> <c> ."), Set.of(), () -> "unused"));
+        observer.flush();
+        this.awaitNotifications();
+        assertTrue(this.updates.isEmpty());
+
+        observer.notifyDTKGUpdate(new DTKGUpdate(2, Set.of("<a> <b> <d> ."), Set.of(), () -> "unused"));
+        this.awaitNotifications();
+        assertEquals(1, this.updates.size());
+        assertEquals(2, this.updates.get(0).getSequenceNumber());
+        assertEquals(2, this.updates.get(0).getAddedTriples().size());
+        assertEquals(engine.getCurrentDigitalTwinKnowledgeGraph(), this.graphs.get(0));
+    }
+
+    @Test
+    void testUpdatesAreForwardedWithZeroWindow() {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        engine.addDTKGObserver(new CoalescingDTKGObserver(this.recorder, engine, Duration.ZERO, this.scheduler));
+
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+
+        assertEquals(2, this.updates.size());
+        assertTrue(this.graphs.get(1).contains("2"));
+        assertEquals(0, engine.getGraphCopyCount());
+    }
+
+    @Test
+    void testClosedObserverIsNotNotified() throws Exception {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final CoalescingDTKGObserver observer = new CoalescingDTKGObserver(
+                this.recorder, engine, Duration.ofHours(1), this.scheduler);
+        engine.addDTKGObserver(observer);
+
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+        observer.close();
+        observer.flush();
+        this.awaitNotifications();
+
+        assertTrue(this.updates.isEmpty());
+    }
+
+    private void awaitNotifications() throws Exception {
+        // The scheduler is single threaded, so a task submitted after the flush runs after it.
+        this.scheduler.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,231 @@
+package org.eclipse.ditto.wodt.DTKGEngine.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGFormat;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGObserver;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGTransaction;
+import org.eclipse.ditto.wodt.DTKGEngine.api.DTKGUpdate;
+import org.eclipse.ditto.wodt.model.ontology.BlankNode;
+import org.eclipse.ditto.wodt.model.ontology.Individual;
+import org.eclipse.ditto.wodt.model.ontology.Literal;
+import org.eclipse.ditto.wodt.model.ontology.Property;
+import org.junit.jupiter.api.Test;
+
+public class JenaDTKGEngineTest {
+
+    private static final String TWIN_URI = "http://example.org/twin";
+    private static final Property SPEED = new Property("http://example.org/speed");
+    private static final Property STATUS = new Property("http://example.org/status");
+    private static final Property LOCATION = new Property("http://example.org/location");
+    private static final Property OWNER = new Property("http://example.org/owner");
+    // A blank node with a predicate without property makes the mutation fail after it has changed the model.
+    private static final BlankNode FAILING_VALUE = new BlankNode(List.of(Pair.of((Property) null, new Literal<>(1))));
+
+    @Test
+    void testTriplesAreRecordedForObserversThatRequireThem() {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final RecordingObserver observer = new RecordingObserver(true);
+        engine.addDTKGObserver(observer);
+
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+
+        assertEquals(2, observer.updates.size());
+        final DTKGUpdate slotUpdate = observer.updates.get(1);
+        assertTrue(slotUpdate.hasTriples());
+        assertEquals(1, slotUpdate.getAddedTriples().size());
+        assertEquals(1, slotUpdate.getRemovedTriples().size());
+        assertTrue(slotUpdate.getAddedTriples().iterator().next().contains("\"2\""));
+    }
+
+    @Test
+    void testTriplesAreNotRecordedWithoutObserversThatRequireThem() {
+        for (final boolean slotStorage : new boolean[] {true, false}) {
+            final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI, slotStorage);
+            final RecordingObserver observer = new RecordingObserver(false);
+            engine.addDTKGObserver(observer);
+
+            engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+            engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+            // Writing the same value does not change the graph, so it is not notified.
+            engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+
+            assertEquals(2, observer.updates.size());
+            observer.updates.forEach(update -> {
+                assertFalse(update.hasTriples());
+                assertFalse(update.isEmpty());
+            });
+            assertEquals(2, engine.getCurrentSequenceNumber());
+            assertTrue(observer.graphs.get(1).contains("2"));
+        }
+    }
+
+    @Test
+    void testMergeWithUpdateWithoutTriplesHasNoTriples() {
+        final DTKGUpdate withTriples = new DTKGUpdate(1, Set.of("<a> <b> <c> ."), Set.of(),
+                () -> "first");
+        final DTKGUpdate withoutTriples = new DTKGUpdate(2, () -> "second");
+
+        final DTKGUpdate merged = withTriples.merge(withoutTriples);
+
+        assertFalse(merged.hasTriples());
+        assertFalse(merged.isEmpty());
+        assertEquals(2, merged.getSequenceNumber());
+        assertEquals("second", merged.getDigitalTwinKnowledgeGraph());
+        assertTrue(withoutTriples.merge(withTriples).getAddedTriples().isEmpty());
+    }
+
+    @Test
+    void testRemovedPropertyIsNotified() {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final RecordingObserver observer = new RecordingObserver(true);
+        engine.addDTKGObserver(observer);
+
+        engine.addDigitalTwinPropertyUpdate(STATUS, new Literal<>("moving"));
+
+        assertTrue(engine.removeProperty(STATUS));
+        assertFalse(engine.removeProperty(STATUS));
+        assertEquals(2, observer.updates.size());
+        assertEquals(1, observer.updates.get(1).getRemovedTriples().size());
+    }
+
+    @Test
+    void testFailingTransactionIsRolledBack() {
+        for (final boolean slotStorage : new boolean[] {true, false}) {
+            for (final boolean snapshotReads : new boolean[] {true, false}) {
+                final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI, slotStorage, snapshotReads);
+                final RecordingObserver observer = new RecordingObserver(true);
+                engine.addDTKGObserver(observer);
+                engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+                engine.addDigitalTwinPropertyUpdate(STATUS, new Literal<>("moving"));
+                engine.addDigitalTwinPropertyUpdate(LOCATION, new Literal<>("depot"));
+                final String dtkg = engine.getCurrentDigitalTwinKnowledgeGraph();
+
+                final DTKGTransaction transaction = engine.beginTransaction();
+                transaction.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+                transaction.addDigitalTwinPropertyUpdate(STATUS, new Literal<>("stopped"));
+                transaction.addRelationship(OWNER, new Individual("http://example.org/owner1"));
+                transaction.addDigitalTwinPropertyUpdate(LOCATION, FAILING_VALUE);
+                assertThrows(NullPointerException.class, transaction::commit);
+
+                assertEquals(3, engine.getCurrentSequenceNumber());
+                assertEquals(3, observer.updates.size());
+                assertIsomorphic(dtkg, engine.getCurrentDigitalTwinKnowledgeGraph());
+                // The slot is back to its previous value, so writing the value of the transaction changes it.
+                engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+                assertEquals(4, engine.getCurrentSequenceNumber());
+                final DTKGUpdate update = observer.updates.get(3);
+                assertEquals(1, update.getRemovedTriples().size());
+                assertTrue(update.getRemovedTriples().iterator().next().contains("\"1\""));
+                assertTrue(update.getAddedTriples().iterator().next().contains("\"2\""));
+            }
+        }
+    }
+
+    @Test
+    void testFailingWriteIsRolledBack() {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final RecordingObserver observer = new RecordingObserver(true);
+        engine.addDTKGObserver(observer);
+        engine.addDigitalTwinPropertyUpdate(LOCATION, new Literal<>("depot"));
+        final String dtkg = engine.getCurrentDigitalTwinKnowledgeGraph();
+
+        assertThrows(NullPointerException.class,
+                () -> engine.addDigitalTwinPropertyUpdate(LOCATION, FAILING_VALUE));
+
+        assertEquals(1, engine.getCurrentSequenceNumber());
+        assertEquals(1, observer.updates.size());
+        assertIsomorphic(dtkg, engine.getCurrentDigitalTwinKnowledgeGraph());
+    }
+
+    @Test
+    void testCommittedTransactionIsNotifiedOnce() {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final RecordingObserver observer = new RecordingObserver(true);
+        engine.addDTKGObserver(observer);
+
+        final DTKGTransaction transaction = engine.beginTransaction();
+        transaction.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+        transaction.addDigitalTwinPropertyUpdate(STATUS, new Literal<>("moving"));
+        transaction.commit();
+
+        assertEquals(1, engine.getCurrentSequenceNumber());
+        assertEquals(1, observer.updates.size());
+        assertEquals(2, observer.updates.get(0).getAddedTriples().size());
+        assertThrows(IllegalStateException.class, transaction::commit);
+        assertThrows(IllegalStateException.class,
+                () -> transaction.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2)));
+    }
+
+    @Test
+    void testGraphOfAnUpdateIsWrittenAtItsSequenceNumber() throws Exception {
+        final JenaDTKGEngine engine = new JenaDTKGEngine(TWIN_URI);
+        final RecordingObserver observer = new RecordingObserver(false);
+        engine.addDTKGObserver(observer);
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(1));
+        engine.addDigitalTwinPropertyUpdate(SPEED, new Literal<>(2));
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(engine.writeDigitalTwinKnowledgeGraph(observer.updates.get(0), () -> output,
+                DTKGFormat.RDF_THRIFT));
+
+        final Model written = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(written, new ByteArrayInputStream(output.toByteArray()), Lang.RDFTHRIFT);
+        assertTrue(parse(observer.graphs.get(0)).isIsomorphicWith(written));
+        assertFalse(parse(engine.getCurrentDigitalTwinKnowledgeGraph()).isIsomorphicWith(written));
+    }
+
+    private static void assertIsomorphic(final String expected, final String actual) {
+        assertTrue(parse(expected).isIsomorphicWith(parse(actual)),
+                () -> "Expected\n" + expected + "\nbut was\n" + actual);
+    }
+
+    private static Model parse(final String turtle) {
+        return ModelFactory.createDefaultModel().read(new StringReader(turtle), null, "TTL");
+    }
+
+    /**
+     * Observer that keeps the notified updates together with their graphs.
+    */
+    static final class RecordingObserver implements DTKGObserver {
+        final List<DTKGUpdate> updates = new CopyOnWriteArrayList<>();
+        final List<String> graphs = new CopyOnWriteArrayList<>();
+        private final boolean requiresTriples;
+
+        RecordingObserver(final boolean requiresTriples) {
+            this.requiresTriples = requiresTriples;
+        }
+
+        @Override
+        public void notifyNewDTKG(final String dtkg) {
+            this.graphs.add(dtkg);
+        }
+
+        @Override
+        public void notifyDTKGUpdate(final DTKGUpdate update) {
+            this.updates.add(update);
+            this.graphs.add(update.getDigitalTwinKnowledgeGraph());
+        }
+
+        @Override
+        public boolean requiresTriples() {
+            return this.requiresTriples;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.eclipse.ditto.wodt.WoDTDigitalTwinInterface.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.javalin.websocket.WsConnectContext;
+import io.javalin.websocket.WsContext;
+
+public class WebSocketBroadcasterTest {
+
+    private static final long QUEUE_CAPACITY = 2;
+
+    private AdapterMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        this.metrics = new AdapterMetrics();
+    }
+
+    @Test
+    void testBroadcastIsSentToEveryClientInOrder() {
+        final WebSocketBroadcaster broadcaster = this.newBroadcaster(WebSocketBroadcaster.OverflowPolicy.DISCONNECT);
+        final StubClient first = StubClient.fast("first");
+        final StubClient second = StubClient.fast("second");
+        broadcaster.addClient(first.context);
+        broadcaster.addClient(second.context);
+
+        broadcaster.broadcast("m1");
+        broadcaster.broadcast(ByteBuffer.wrap("m2".getBytes(StandardCharsets.UTF_8)));
+        broadcaster.broadcast("m3");
+
+        assertEquals(List.of("m1", "m2", "m3"), first.received);
+        assertEquals(List.of("m1", "m2", "m3"), second.received);
+        assertEquals(6, this.counter("websocket.sent"));
+    }
+
+    @Test
+    void testSlowClientDropsTheOldestMessages() {
+        final WebSocketBroadcaster broadcaster = this.newBroadcaster(WebSocketBroadcaster.OverflowPolicy.DROP_OLDEST);
+        final StubClient slow = StubClient.slow("slow");
+        final StubClient fast = StubClient.fast("fast");
+        broadcaster.addClient(slow.context);
+        broadcaster.addClient(fast.context);
+
+        for (int i = 1; i <= 5; i++) {
+            broadcaster.broadcast("m" + i);
+        }
+
+        assertEquals(List.of("m1", "m2", "m3", "m4", "m5"), fast.received);
+        assertEquals(List.of("m1"), slow.received);
+        // The slow client has been positioned just before the latest message when it lagged behind.
+        assertEquals(2L, this.stateOf(broadcaster, "slow").get("dropped"));
+        slow.acknowledgeAll();
+        assertEquals(List.of("m1", "m4", "m5"), slow.received);
+        assertEquals(2, this.counter("websocket.dropped"));
+        assertEquals(0, this.counter("websocket.evicted"));
+        assertTrue(broadcaster.contains(slow.context));
+        assertEquals(0L, this.stateOf(broadcaster, "slow").get("pending"));
+    }
+
+    @Test
+    void testSlowClientIsDisconnected() {
+        final WebSocketBroadcaster broadcaster = this.newBroadcaster(WebSocketBroadcaster.OverflowPolicy.DISCONNECT);
+        final StubClient slow = StubClient.slow("slow");
+        final StubClient fast = StubClient.fast("fast");
+        broadcaster.addClient(slow.context);
+        broadcaster.addClient(fast.context);
+
+        for (int i = 1; i <= 4; i++) {
+            broadcaster.broadcast("m" + i);
+        }
+
+        assertEquals(List.of("m1", "m2", "m3", "m4"), fast.received);
+        assertFalse(broadcaster.contains(slow.context));
+        assertTrue(broadcaster.contains(fast.context));
+        assertEquals(1013, slow.closeCode);
+        assertEquals(1, this.counter("websocket.evicted"));
+        slow.acknowledgeAll();
+        broadcaster.broadcast("m5");
+        assertEquals(List.of("m1"), slow.received);
+    }
+
+    @Test
+    void testDirectMessageReplacesTheUnsentOne() {
+        final WebSocketBroadcaster broadcaster = this.newBroadcaster(WebSocketBroadcaster.OverflowPolicy.DISCONNECT);
+        final StubClient slow = StubClient.slow("slow");
+        broadcaster.addClient(slow.context);
+
+        broadcaster.broadcast("m1");
+        broadcaster.send(slow.context, "snapshot1");
+        broadcaster.send(slow.context, "snapshot2");
+        broadcaster.broadcast("m2");
+        slow.acknowledgeAll();
+
+        // The direct message is sent before the broadcast messages not yet sent.
+        assertEquals(List.of("m1", "snapshot2", "m2"), slow.received);
+        assertEquals(1, this.counter("websocket.dropped"));
+    }
+
+    @Test
+    void testClientIsRemovedWhenTheWriteFails() {
+        final WebSocketBroadcaster broadcaster = this.newBroadcaster(WebSocketBroadcaster.OverflowPolicy.DISCONNECT);
+        final StubClient failing = StubClient.slow("failing");
+        final StubClient throwing = StubClient.throwing("throwing");
+        broadcaster.addClient(failing.context);
+        broadcaster.addClient(throwing.context);
+
+        broadcaster.broadcast("m1");
+        assertFalse(broadcaster.contains(throwing.context));
+        assertTrue(broadcaster.contains(failing.context));
+        failing.failAll();
+
+        assertTrue(broadcaster.isEmpty());
+        broadcaster.broadcast("m2");
+        assertEquals(List.of("m1"), failing.received);
+        assertEquals(0, this.counter("websocket.sent"));
+    }
+
+    private WebSocketBroadcaster newBroadcaster(final WebSocketBroadcaster.OverflowPolicy policy) {
+        // The messages are sent on the calling thread, so that each step of the test is deterministic.
+        return new WebSocketBroadcaster(policy, QUEUE_CAPACITY, Runnable::run, this.metrics);
+    }
+
+    private long counter(final String name) {
+        return this.metrics.counter(name).sum();
+    }
+
+    private Map<String, Object> stateOf(final WebSocketBroadcaster broadcaster, final String sessionId) {
+        return broadcaster.getClientStates().stream()
+                .filter(state -> sessionId.equals(state.get("id")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /*
+     * Client whose WebSocket records the sent messages, and acknowledges them immediately (fast),
+     * only when requested (slow), or throws when sending them.
+     */
+    private static final class StubClient {
+        private final WsContext context;
+        private final List<String> received = new ArrayList<>();
+        private final Deque<WriteCallback> callbacks = new ArrayDeque<>();
+        private final Mode mode;
+        private boolean open = true;
+        private int closeCode;
+
+        private enum Mode { FAST, SLOW, THROWING }
+
+        private StubClient(final String sessionId, final Mode mode) {
+            this.mode = mode;
+            final RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(
+                    RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[] {RemoteEndpoint.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("sendString")) {
+                            this.onSend((String) args[0], (WriteCallback) args[1]);
+                        } else if (method.getName().equals("sendBytes")) {
+                            final ByteBuffer bytes = (ByteBuffer) args[0];
+                            this.onSend(StandardCharsets.UTF_8.decode(bytes).toString(), (WriteCallback) args[1]);
+                        } else {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return null;
+                    });
+            final Session session = (Session) Proxy.newProxyInstance(
+                    Session.class.getClassLoader(),
+                    new Class<?>[] {Session.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getRemote":
+                                return remote;
+                            case "isOpen":
+                                return this.open;
+                            case "close":
+                                this.open = false;
+                                this.closeCode = args != null && args.length > 0 ? (int) args[0] : 1000;
+                                return null;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return sessionId;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+            this.context = new WsConnectContext(sessionId, session);
+        }
+
+        static StubClient fast(final String sessionId) {
+            return new StubClient(sessionId, Mode.FAST);
+        }
+
+        static StubClient slow(final String sessionId) {
+            return new StubClient(sessionId, Mode.SLOW);
+        }
+
+        static StubClient throwing(final String sessionId) {
+            return new StubClient(sessionId, Mode.THROWING);
+        }
+
+        private void onSend(final String message, final WriteCallback callback) {
+            if (this.mode == Mode.THROWING) {
+                throw new IllegalStateException("Broken WebSocket");
+            }
+            this.received.add(message);
+            if (this.mode == Mode.FAST) {
+                callback.writeSuccess();
+            } else {
+                this.callbacks.add(callback);
+            }
+        }
+
+        void acknowledgeAll() {
+            while (!this.callbacks.isEmpty()) {
+                this.callbacks.poll().writeSuccess();
+            }
+        }
+
+        void failAll() {
+            while (!this.callbacks.isEmpty()) {
+                this.callbacks.poll().writeFailed(new IllegalStateException("Broken WebSocket"));
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.eclipse.ditto.base.model.headers.DittoHeaders;
+import org.eclipse.ditto.client.changes.ChangeAction;
+import org.eclipse.ditto.client.changes.ThingChange;
+import org.eclipse.ditto.client.changes.internal.ImmutableThingChange;
+import org.eclipse.ditto.json.JsonPointer;
+import org.eclipse.ditto.things.model.Thing;
+import org.eclipse.ditto.things.model.ThingId;
+import org.eclipse.ditto.things.model.ThingsModelFactory;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyIndex;
+import org.eclipse.ditto.wodt.DTDManager.impl.OntologyManagerImpl;
+import org.eclipse.ditto.wodt.DTDManager.impl.WoTDTDManager;
+import org.eclipse.ditto.wodt.DTKGEngine.impl.JenaDTKGEngine;
+import org.eclipse.ditto.wodt.PlatformManagementInterface.impl.BasePlatformManagementInterface;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.WoDTDigitalAdapterConfiguration;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.eclipse.ditto.wodt.common.ThingModelElement;
+import org.eclipse.ditto.wodt.model.ontology.WoDTVocabulary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ThingChangeApplierTest {
+
+    private static final String THING_ID = "org.example:car";
+    private static final String DIGITAL_TWIN_URI = "http://localhost:3000/";
+    private static final String ONTOLOGY = "https://example.org/ontology#";
+    private static final String XSD_DOUBLE = "https://www.w3.org/2001/XMLSchema#double";
+    private static final String THING = "{\"thingId\":\"" + THING_ID + "\","
+            + "\"attributes\":{\"speed\":1},"
+            + "\"features\":{\"engine\":{\"properties\":{\"temperature\":20.5,\"status\":{\"code\":1}}}}}";
+
+    private JenaDTKGEngine dtkgEngine;
+    private ThingChangeApplier applier;
+
+    @Test
+    void testAttributeChangeAppliesTheValueAtItsPath() {
+        this.startApplier(mappedOntology());
+
+        this.applier.onThingChange(change("/attributes/speed", "{\"attributes\":{\"speed\":42}}"));
+
+        assertEquals(Set.of("42"), this.valuesOf(ONTOLOGY + "speed"));
+        assertEquals(Set.of("20.5"), this.valuesOf(ONTOLOGY + "temperature"));
+    }
+
+    @Test
+    void testFeaturePropertyChangeAppliesTheValueAtItsPath() {
+        this.startApplier(mappedOntology());
+
+        this.applier.onThingChange(change("/features/engine/properties/temperature",
+                "{\"features\":{\"engine\":{\"properties\":{\"temperature\":90.5}}}}"));
+
+        assertEquals(Set.of("90.5"), this.valuesOf(ONTOLOGY + "temperature"));
+        assertEquals(Set.of("1"), this.valuesOf(ONTOLOGY + "speed"));
+    }
+
+    @Test
+    void testSubPropertyChangeAppliesTheValueAtItsPath() {
+        this.startApplier(mappedOntology());
+        assertEquals(Set.of("1"), this.valuesOf(ONTOLOGY + "statusCode"));
+
+        this.applier.onThingChange(change("/features/engine/properties/status/code",
+                "{\"features\":{\"engine\":{\"properties\":{\"status\":{\"code\":7}}}}}"));
+
+        assertEquals(Set.of("7"), this.valuesOf(ONTOLOGY + "statusCode"));
+        assertEquals(Set.of("20.5"), this.valuesOf(ONTOLOGY + "temperature"));
+    }
+
+    @Test
+    void testDefinitionChangeRefreshesTheOntology(@TempDir final Path thingModels) throws Exception {
+        final String initialModel = writeThingModel(thingModels.resolve("initial.tm.json"), "speed", "speed");
+        final String changedModel = writeThingModel(thingModels.resolve("changed.tm.json"), "speed", "velocity");
+        final Thing thing = ThingsModelFactory.newThing("{\"thingId\":\"" + THING_ID + "\","
+                + "\"definition\":\"" + initialModel + "\",\"attributes\":{\"speed\":1}}");
+        this.startApplier(thing, new OntologyManagerImpl(thing, ""));
+        assertEquals(Set.of("1"), this.valuesOf(ONTOLOGY + "speed"));
+
+        this.applier.onThingChange(change("/definition", "{\"definition\":\"" + changedModel + "\"}"));
+        this.applier.onThingChange(change("/attributes/speed", "{\"attributes\":{\"speed\":42}}"));
+
+        assertEquals(Set.of("42"), this.valuesOf(ONTOLOGY + "velocity"));
+    }
+
+    private void startApplier(final OntologyManagerImpl ontology) {
+        this.startApplier(ThingsModelFactory.newThing(THING), ontology);
+    }
+
+    private void startApplier(final Thing thing, final OntologyManagerImpl ontology) {
+        final WoDTDigitalAdapterConfiguration configuration = new WoDTDigitalAdapterConfiguration(
+                thing, ontology, DIGITAL_TWIN_URI, 3000, "car", Set.of());
+        this.dtkgEngine = new JenaDTKGEngine(DIGITAL_TWIN_URI);
+        final WoTDTDManager dtdManager = new WoTDTDManager(configuration,
+                new BasePlatformManagementInterface(DIGITAL_TWIN_URI), new AdapterMetrics());
+        this.applier = new ThingChangeApplier(configuration, this.dtkgEngine, dtdManager);
+        this.applier.syncWithDittoThing(thing);
+    }
+
+    private Set<String> valuesOf(final String predicate) {
+        final Model model = ModelFactory.createDefaultModel()
+                .read(new StringReader(this.dtkgEngine.getCurrentDigitalTwinKnowledgeGraph()), null, "TTL");
+        return model.listObjectsOfProperty(model.createProperty(predicate)).toList().stream()
+                .map(node -> node.asLiteral().getLexicalForm())
+                .collect(Collectors.toSet());
+    }
+
+    private static OntologyManagerImpl mappedOntology() {
+        return new OntologyManagerImpl(OntologyIndex.compile(
+                Optional.of(ONTOLOGY + "Car"),
+                List.of(),
+                List.of(
+                        element("speed", Optional.empty(), "speed"),
+                        element("engine_temperature", Optional.of("engine"), "temperature"),
+                        element("engine_status_code", Optional.of("engine"), "statusCode")),
+                List.of(),
+                List.of(),
+                Optional.empty()));
+    }
+
+    private static ThingModelElement element(final String rawName, final Optional<String> feature,
+            final String predicate) {
+        return new ThingModelElement(rawName, feature, Optional.of(XSD_DOUBLE), Optional.of(ONTOLOGY + predicate));
+    }
+
+    /*
+     * The change of a Thing carries the partial Thing with only the changed part, as the Ditto client notifies it.
+     */
+    private static ThingChange change(final String path, final String changedJson) {
+        final Thing changedThing = ThingsModelFactory.newThing(
+                "{\"thingId\":\"" + THING_ID + "\"," + changedJson.substring(1));
+        return new ImmutableThingChange(ThingId.of(THING_ID), ChangeAction.UPDATED, changedThing,
+                JsonPointer.of(path), 1L, null, null, DittoHeaders.empty());
+    }
+
+    private static String writeThingModel(final Path file, final String property, final String predicate)
+            throws Exception {
+        Files.writeString(file, "{\"@context\":[\"https://www.w3.org/2022/wot/td/v1.1\"],"
+                + "\"@type\":[\"tm:ThingModel\",\"" + ONTOLOGY + "Car\"],"
+                + "\"properties\":{\"" + property + "\":{\"type\":\"number\",\"@type\":\"" + XSD_DOUBLE + "\","
+                + "\"" + WoDTVocabulary.DOMAIN_PREDICATE.getUri() + "\":\"" + ONTOLOGY + predicate + "\"}}}");
+        return file.toUri().toString();
+    }
+}
@@ -0,0 +1,247 @@
+package org.eclipse.ditto.wodt.WoDTShadowingAdapter.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.ditto.base.model.headers.DittoHeaders;
+import org.eclipse.ditto.client.changes.ChangeAction;
+import org.eclipse.ditto.client.changes.ThingChange;
+import org.eclipse.ditto.client.changes.internal.ImmutableThingChange;
+import org.eclipse.ditto.json.JsonPointer;
+import org.eclipse.ditto.things.model.ThingId;
+import org.eclipse.ditto.wodt.WoDTShadowingAdapter.api.IngestionOverflowPolicy;
+import org.eclipse.ditto.wodt.common.AdapterMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ThingChangeIngestionQueueTest {
+
+    private static final ThingId THING_ID = ThingId.of("org.example:twin");
+    private static final int CAPACITY = 2;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private AdapterMetrics metrics;
+    private BlockingConsumer consumer;
+    private ThingChangeIngestionQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        this.metrics = new AdapterMetrics();
+        this.consumer = new BlockingConsumer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.consumer.release();
+        if (this.queue != null) {
+            this.queue.close();
+        }
+    }
+
+    @Test
+    void testBlockPolicyWaitsForSpace() throws Exception {
+        this.startBlockedQueue(IngestionOverflowPolicy.BLOCK, false);
+        final ThingChange first = update("/attributes/a", 2);
+        final ThingChange second = update("/attributes/b", 3);
+        final ThingChange third = update("/attributes/c", 4);
+        assertTrue(this.queue.offer(first));
+        assertTrue(this.queue.offer(second));
+
+        final CompletableFuture<Boolean> blockedOffer = CompletableFuture.supplyAsync(() -> this.queue.offer(third));
+        Thread.sleep(200);
+        assertFalse(blockedOffer.isDone());
+        assertEquals(CAPACITY, this.queue.size());
+
+        this.consumer.release();
+        assertTrue(blockedOffer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        this.consumer.awaitApplied(4);
+        assertEquals(List.of(first, second, third), this.consumer.applied.subList(1, 4));
+        assertEquals(0, this.counter("ingestion.dropped"));
+    }
+
+    @Test
+    void testDropOldestPolicyDropsTheOldestPendingChange() throws Exception {
+        this.startBlockedQueue(IngestionOverflowPolicy.DROP_OLDEST, false);
+        final ThingChange oldest = update("/attributes/speed", 2);
+        final ThingChange second = update("/attributes/speed", 3);
+        final ThingChange newest = update("/attributes/status", 4);
+
+        assertTrue(this.queue.offer(oldest));
+        assertTrue(this.queue.offer(second));
+        assertTrue(this.queue.offer(newest));
+        assertEquals(CAPACITY, this.queue.size());
+
+        this.consumer.release();
+        this.consumer.awaitApplied(3);
+        assertEquals(List.of(second, newest), this.consumer.applied.subList(1, 3));
+        assertEquals(1, this.counter("ingestion.dropped"));
+        assertEquals(0, this.counter("ingestion.coalesced"));
+    }
+
+    @Test
+    void testCoalescePolicyKeepsTheLatestValueOfEachPath() throws Exception {
+        this.startBlockedQueue(IngestionOverflowPolicy.COALESCE, false);
+        final ThingChange oldSpeed = update("/attributes/speed", 2);
+        final ThingChange status = update("/features/engine/properties/status", 3);
+        final ThingChange newSpeed = update("/attributes/speed", 4);
+        final ThingChange location = update("/attributes/location", 5);
+
+        assertTrue(this.queue.offer(oldSpeed));
+        assertTrue(this.queue.offer(status));
+        // The newer speed replaces the pending one and is moved after the status.
+        assertTrue(this.queue.offer(newSpeed));
+        assertEquals(CAPACITY, this.queue.size());
+        // The queue is still full, so the oldest pending change, the status, is dropped.
+        assertTrue(this.queue.offer(location));
+
+        this.consumer.release();
+        this.consumer.awaitApplied(3);
+        assertEquals(List.of(newSpeed, location), this.consumer.applied.subList(1, 3));
+        assertEquals(1, this.counter("ingestion.coalesced"));
+        assertEquals(1, this.counter("ingestion.dropped"));
+    }
+
+    @Test
+    void testCoalescingPreservesTheOrderOfTheOtherPaths() throws Exception {
+        this.startBlockedQueue(IngestionOverflowPolicy.BLOCK, true);
+        final ThingChange speed = update("/attributes/speed", 2);
+        final ThingChange status = update("/attributes/status", 3);
+        final ThingChange newSpeed = update("/attributes/speed", 4);
+        final ThingChange newStatus = update("/attributes/status", 5);
+
+        this.queue.offer(speed);
+        this.queue.offer(status);
+        this.queue.offer(newSpeed);
+        this.queue.offer(newStatus);
+
+        this.consumer.release();
+        this.consumer.awaitApplied(3);
+        assertEquals(List.of(newSpeed, newStatus), this.consumer.applied.subList(1, 3));
+        assertEquals(2, this.counter("ingestion.coalesced"));
+        assertEquals(0, this.counter("ingestion.dropped"));
+    }
+
+    @Test
+    void testMergesAndStructuralChangesAreNeverCoalesced() throws Exception {
+        this.startBlockedQueue(IngestionOverflowPolicy.DROP_OLDEST, true);
+        final ThingChange merge = change(ChangeAction.MERGED, "/attributes/speed", 2);
+        final ThingChange nextMerge = change(ChangeAction.MERGED, "/attributes/speed", 3);
+
+        this.queue.offer(merge);
+        this.queue.offer(nextMerge);
+
+        this.consumer.release();
+        this.consumer.awaitApplied(3);
+        assertEquals(List.of(merge, nextMerge), this.consumer.applied.subList(1, 3));
+        assertEquals(0, this.counter("ingestion.coalesced"));
+        assertEquals(Optional.empty(), ThingChangeIngestionQueue.coalescingKey(merge));
+        assertEquals(Optional.empty(),
+                ThingChangeIngestionQueue.coalescingKey(update("/features/engine/definition", 1)));
+        assertEquals(Optional.empty(), ThingChangeIngestionQueue.coalescingKey(update("/attributes", 1)));
+        assertEquals(Optional.of("org.example:twin/features/engine/properties/status/code"),
+                ThingChangeIngestionQueue.coalescingKey(update("/features/engine/properties/status/code", 1)));
+    }
+
+    @Test
+    void testFailedChangeDoesNotStopTheConsumer() throws Exception {
+        final List<ThingChange> applied = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final ThingChange failing = update("/attributes/speed", 1);
+        final ThingChange next = update("/attributes/status", 2);
+        this.queue = new ThingChangeIngestionQueue(change -> {
+            if (change == failing) {
+                throw new IllegalStateException("failure");
+            }
+            applied.add(change);
+            done.countDown();
+        }, CAPACITY, IngestionOverflowPolicy.BLOCK, false, this.metrics);
+        this.queue.start();
+
+        this.queue.offer(failing);
+        this.queue.offer(next);
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of(next), applied);
+        assertEquals(1, this.counter("ingestion.failed"));
+    }
+
+    @Test
+    void testClosedQueueDiscardsTheChanges() throws Exception {
+        this.startBlockedQueue(IngestionOverflowPolicy.BLOCK, false);
+        this.queue.offer(update("/attributes/speed", 2));
+
+        this.queue.close();
+
+        assertEquals(0, this.queue.size());
+        assertFalse(this.queue.offer(update("/attributes/speed", 3)));
+        assertEquals(1, this.counter("ingestion.dropped"));
+        assertEquals(0L, this.metrics.snapshot().get("ingestion.queue.depth"));
+    }
+
+    /*
+     * Start a queue whose consumer is blocked on a first change, so that the following changes stay pending.
+     */
+    private void startBlockedQueue(final IngestionOverflowPolicy policy, final boolean coalesceUpdates)
+            throws InterruptedException {
+        this.queue = new ThingChangeIngestionQueue(this.consumer, CAPACITY, policy, coalesceUpdates, this.metrics);
+        this.queue.start();
+        this.queue.offer(update("/attributes/blocking", 1));
+        assertTrue(this.consumer.started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, this.queue.size());
+    }
+
+    private long counter(final String name) {
+        return this.metrics.counter(name).sum();
+    }
+
+    private static ThingChange update(final String path, final long revision) {
+        return change(ChangeAction.UPDATED, path, revision);
+    }
+
+    private static ThingChange change(final ChangeAction action, final String path, final long revision) {
+        return new ImmutableThingChange(THING_ID, action, null, JsonPointer.of(path), revision,
+                null, null, DittoHeaders.empty());
+    }
+
+    /*
+     * Consumer that records the applied changes and blocks on the first one until it is released.
+     */
+    private static final class BlockingConsumer implements Consumer<ThingChange> {
+        private final List<ThingChange> applied = new CopyOnWriteArrayList<>();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void accept(final ThingChange change) {
+            this.applied.add(change);
+            this.started.countDown();
+            try {
+                this.released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void release() {
+            this.released.countDown();
+        }
+
+        void awaitApplied(final int count) throws InterruptedException {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (this.applied.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, this.applied.size());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.eclipse.ditto.wodt.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+
+public class ThingModelResolverTest {
+
+    private static final String THING_MODEL = "{\"title\":\"Car\",\"properties\":{\"speed\":{\"type\":\"number\"}}}";
+    private static final String ETAG = "\"v1\"";
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(5);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private HttpServer server;
+    private AtomicInteger requests;
+    private List<String> ifNoneMatch;
+    private CountDownLatch responding;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.requests = new AtomicInteger();
+        this.ifNoneMatch = new CopyOnWriteArrayList<>();
+        this.responding = new CountDownLatch(0);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/car.tm.json", exchange -> {
+            this.requests.incrementAndGet();
+            final String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+            if (etag != null) {
+                this.ifNoneMatch.add(etag);
+            }
+            try {
+                this.responding.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            if (ETAG.equals(etag)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                final byte[] body = THING_MODEL.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+            exchange.close();
+        });
+        this.server.start();
+        this.url = "http://localhost:" + this.server.getAddress().getPort() + "/car.tm.json";
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.responding.countDown();
+        this.server.stop(0);
+    }
+
+    @Test
+    void testFreshThingModelIsNotFetchedAgain() throws Exception {
+        final ThingModelResolver resolver = newResolver(Duration.ofHours(1), Optional.empty(), Optional.empty());
+
+        final JsonObject first = resolve(resolver, this.url);
+        final JsonObject second = resolve(resolver, this.url);
+
+        assertEquals(JsonParser.parseString(THING_MODEL), first);
+        assertSame(first, second);
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    void testConcurrentRequestsShareASingleFetch() throws Exception {
+        final ThingModelResolver resolver = newResolver(Duration.ofHours(1), Optional.empty(), Optional.empty());
+        this.responding = new CountDownLatch(1);
+
+        final CompletableFuture<JsonObject> first = resolver.resolve(this.url);
+        final CompletableFuture<JsonObject> second = resolver.resolve(this.url);
+        this.responding.countDown();
+
+        assertSame(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    void testStaleThingModelIsRevalidatedWithItsETag() throws Exception {
+        final ThingModelResolver resolver = newResolver(Duration.ZERO, Optional.empty(), Optional.empty());
+
+        final JsonObject first = resolve(resolver, this.url);
+        final JsonObject revalidated = resolve(resolver, this.url);
+
+        assertSame(first, revalidated);
+        assertEquals(2, this.requests.get());
+        assertEquals(List.of(ETAG), this.ifNoneMatch);
+    }
+
+    @Test
+    void testStaleThingModelIsUsedWhenTheServerIsUnreachable() throws Exception {
+        final ThingModelResolver resolver = newResolver(Duration.ZERO, Optional.empty(), Optional.empty());
+        final JsonObject first = resolve(resolver, this.url);
+
+        this.server.stop(0);
+
+        assertSame(first, resolve(resolver, this.url));
+    }
+
+    @Test
+    void testDiskCacheIsSharedByTheResolvers(@TempDir final Path cache) throws Exception {
+        resolve(newResolver(Duration.ofHours(1), Optional.of(cache), Optional.empty()), this.url);
+        this.server.stop(0);
+
+        // A new resolver, as after a restart, uses the Thing Model cached on disk while it is fresh.
+        final JsonObject cached = resolve(newResolver(Duration.ofHours(1), Optional.of(cache), Optional.empty()),
+                this.url);
+
+        assertEquals(JsonParser.parseString(THING_MODEL), cached);
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    void testStaleDiskCacheIsRevalidated(@TempDir final Path cache) throws Exception {
+        resolve(newResolver(Duration.ZERO, Optional.of(cache), Optional.empty()), this.url);
+
+        final JsonObject revalidated = resolve(newResolver(Duration.ZERO, Optional.of(cache), Optional.empty()),
+                this.url);
+
+        assertEquals(JsonParser.parseString(THING_MODEL), revalidated);
+        assertEquals(2, this.requests.get());
+        assertEquals(List.of(ETAG), this.ifNoneMatch);
+    }
+
+    @Test
+    void testMissingThingModelFailsWithoutCache(@TempDir final Path cache) {
+        final ThingModelResolver resolver = newResolver(Duration.ofHours(1), Optional.of(cache), Optional.empty());
+        this.server.stop(0);
+
+        assertThrows(ExecutionException.class, () -> resolve(resolver, this.url));
+    }
+
+    @Test
+    void testUnwritableCacheDirectoryDoesNotFailTheResolution(@TempDir final Path directory) throws Exception {
+        // A regular file cannot be used as directory, whatever the permissions of the user running the test.
+        final Path cache = Files.writeString(directory.resolve("cache"), "");
+        final ThingModelResolver resolver = newResolver(Duration.ofHours(1), Optional.of(cache), Optional.empty());
+
+        assertEquals(JsonParser.parseString(THING_MODEL), resolve(resolver, this.url));
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    void testMirroredThingModelIsReadWithoutRequests(@TempDir final Path mirror) throws Exception {
+        final Path file = mirror.resolve("models.example.org").resolve("vehicles").resolve("car.tm.json");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, THING_MODEL);
+        final ThingModelResolver resolver = newResolver(Duration.ZERO, Optional.empty(), Optional.of(mirror));
+
+        final JsonObject mirrored = resolve(resolver, "https://models.example.org/vehicles/car.tm.json");
+        Files.delete(file);
+
+        assertEquals(JsonParser.parseString(THING_MODEL), mirrored);
+        // A mirrored Thing Model is always fresh, so it is not read again.
+        assertSame(mirrored, resolve(resolver, "https://models.example.org/vehicles/car.tm.json"));
+        assertEquals(0, this.requests.get());
+    }
+
+    @Test
+    void testThingModelMissingFromTheMirrorFails(@TempDir final Path mirror) {
+        final ThingModelResolver resolver = newResolver(Duration.ZERO, Optional.empty(), Optional.of(mirror));
+
+        assertThrows(ExecutionException.class,
+                () -> resolve(resolver, "http://localhost:" + this.server.getAddress().getPort() + "/car.tm.json"));
+        assertEquals(0, this.requests.get());
+    }
+
+    @Test
+    void testInvalidThingModelUrlFails() {
+        final ThingModelResolver resolver = newResolver(Duration.ZERO, Optional.empty(), Optional.empty());
+
+        assertThrows(ExecutionException.class, () -> resolve(resolver, "car.tm.json"));
+        assertThrows(ExecutionException.class, () -> resolve(resolver, "http://exa mple.org/car.tm.json"));
+    }
+
+    @Test
+    void testRelativeHrefIsResolvedAgainstTheLinkingThingModel() {
+        final String car = "https://models.example.org/vehicles/car.tm.json";
+        assertEquals("https://models.example.org/vehicles/engine.tm.json",
+                ThingModelResolver.resolveHref(car, "engine.tm.json"));
+        assertEquals("https://models.example.org/common/base.tm.json",
+                ThingModelResolver.resolveHref(car, "../common/base.tm.json"));
+        assertEquals("https://other.example.org/base.tm.json",
+                ThingModelResolver.resolveHref(car, "https://other.example.org/base.tm.json"));
+    }
+
+    private static ThingModelResolver newResolver(final Duration ttl, final Optional<Path> cacheDirectory,
+            final Optional<Path> mirrorDirectory) {
+        return new ThingModelResolver(ttl, FETCH_TIMEOUT, cacheDirectory, mirrorDirectory);
+    }
+
+    private static JsonObject resolve(final ThingModelResolver resolver, final String url) throws Exception {
+        return resolver.resolve(url).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}